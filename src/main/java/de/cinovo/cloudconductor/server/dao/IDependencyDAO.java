@@ -43,4 +43,12 @@ public interface IDependencyDAO extends IEntityDAO<EDependency, Long> {
 	 * @return the objects
 	 */
 	List<EDependency> findByIds(Set<Long> dependencies);
+	
+	/**
+	 * Inserts the given dependencies using a single JDBC batch. The generated ids are set on the given dependencies, which
+	 * are not attached to the current persistence context.
+	 *
+	 * @param dependencies the dependencies to insert
+	 */
+	void insertBatch(List<EDependency> dependencies);
 }
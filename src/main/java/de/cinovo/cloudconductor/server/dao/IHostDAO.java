@@ -18,9 +18,12 @@ package de.cinovo.cloudconductor.server.dao;
  */
 
 import de.cinovo.cloudconductor.server.model.EHost;
+import de.cinovo.cloudconductor.server.model.PagedSimpleHost;
 import de.taimos.dvalin.jpa.IEntityDAO;
 
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Copyright 2013 Cinovo AG<br>
@@ -52,4 +55,50 @@ public interface IHostDAO extends IEntityDAO<EHost, Long>, IFindNamed<EHost> {
 	 * @return the number of hosts of a template
 	 */
 	Long countForTemplate(Long templateId);
+	
+	/**
+	 * @param startedAfter only hosts which started their update after this timestamp are returned
+	 * @return list of hosts currently updating
+	 */
+	List<EHost> findUpdating(Long startedAfter);
+	
+	/**
+	 * @param templateId   the id of the template
+	 * @param startedAfter only hosts which started their update after this timestamp are returned
+	 * @return list of hosts of the given template currently updating
+	 */
+	List<EHost> findUpdating(Long templateId, Long startedAfter);
+	
+	/**
+	 * Updates the last seen timestamps of the given hosts using a single JDBC batch. Timestamps older than the stored
+	 * ones are ignored.
+	 *
+	 * @param lastSeen map of host uuid to last seen timestamp
+	 */
+	void updateLastSeen(Map<String, Long> lastSeen);
+	
+	/**
+	 * Resets the package digests of all hosts, so every agent has to send its full package state again.
+	 *
+	 * @return the number of updated hosts
+	 */
+	int resetPackageDigests();
+	
+	/**
+	 * Selects the hosts with the names of their agent and template and the number of their services and packages in a
+	 * single query, ordered by id. The stream has to be closed and consumed within the transaction.
+	 *
+	 * @param afterId only hosts with a greater id are returned, null to start with the first host
+	 * @param limit   the maximum number of hosts, 0 for all hosts
+	 * @return the hosts, the last seen timestamps are the ones stored in the database
+	 */
+	Stream<PagedSimpleHost> streamSimpleHosts(Long afterId, int limit);
+	
+	/**
+	 * Selects a host like {@link #streamSimpleHosts(Long, int)} does.
+	 *
+	 * @param hostId the id of the host
+	 * @return the host or null if there is no such host, the last seen timestamp is the one stored in the database
+	 */
+	PagedSimpleHost findSimpleHost(Long hostId);
 }
@@ -20,6 +20,7 @@ package de.cinovo.cloudconductor.server.dao;
 import de.cinovo.cloudconductor.server.model.EPackageState;
 import de.taimos.dvalin.jpa.IEntityDAO;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -35,4 +36,18 @@ public interface IPackageStateDAO extends IEntityDAO<EPackageState, Long> {
 	 */
 	List<EPackageState> findByHost(Long id);
 	
+	/**
+	 * Inserts the given package states using a single JDBC batch. The states are not attached to the current persistence
+	 * context.
+	 *
+	 * @param states the package states to insert
+	 */
+	void insertBatch(Collection<EPackageState> states);
+	
+	/**
+	 * @param ids the ids of the package states to delete
+	 * @return the number of deleted package states
+	 */
+	int deleteByIds(Collection<Long> ids);
+	
 }
@@ -79,12 +79,30 @@ public interface IPackageVersionDAO extends IEntityDAO<EPackageVersion, Long> {
 	 */
 	List<EPackageVersion> findProvidedInRange(String pkgName, Collection<Long> providingRepoIds, String fixedMajor, String fixedMinor, String fixedPatch);
 
+	/**
+	 * @param pkgName			name of the package to find the version for
+	 * @param providingRepoIds	providing repo ids
+	 * @param fixedParts		the fixed major, minor and patch version numbers, as many as the update range fixes
+	 * @return the greatest provided package version matching the fixed version numbers or null if there is none
+	 */
+	EPackageVersion findLatestProvided(String pkgName, Collection<Long> providingRepoIds, String... fixedParts);
+
 	/**
 	 * @param baseName the package base name
 	 * @param version  the version
 	 * @return single package version
 	 */
 	EPackageVersion find(String baseName, String version);
+	
+	/**
+	 * Finds all package versions matching one of the given package names and one of the given versions. As this includes
+	 * combinations of names and versions which were not asked for, callers have to filter the result.
+	 *
+	 * @param baseNames the package base names
+	 * @param versions  the versions
+	 * @return list of package versions
+	 */
+	List<EPackageVersion> find(Collection<String> baseNames, Collection<String> versions);
 
 	/**
 	 * @param pkgName	name of the package
@@ -117,4 +135,12 @@ public interface IPackageVersionDAO extends IEntityDAO<EPackageVersion, Long> {
 	 * @return the package versions
 	 */
 	List<EPackageVersion> findByIds(Iterable<Long> ids);
+
+	/**
+	 * Inserts the given package versions together with their dependency and repo mappings using JDBC batches. The
+	 * generated ids are set on the given versions, which are not attached to the current persistence context.
+	 *
+	 * @param versions the package versions to insert
+	 */
+	void insertBatch(List<EPackageVersion> versions);
 }
@@ -21,6 +21,7 @@ import de.cinovo.cloudconductor.server.model.EPackage;
 import de.cinovo.cloudconductor.server.model.EService;
 import de.taimos.dvalin.jpa.IEntityDAO;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -61,6 +62,12 @@ public interface IServiceDAO extends IEntityDAO<EService, Long>, IFindNamed<ESer
 	 */
 	List<EService> findByPackage(Long pkgId);
 	
+	/**
+	 * @param pkgIds the package ids
+	 * @return list of services used by any of the packages
+	 */
+	List<EService> findByPackages(Collection<Long> pkgIds);
+	
 	/**
 	 * @param serviceId the service id
 	 * @return the name of the service
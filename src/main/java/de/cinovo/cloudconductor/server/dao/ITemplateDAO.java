@@ -81,4 +81,12 @@ public interface ITemplateDAO extends IEntityDAO<ETemplate, Long>, IFindNamed<ET
 	 * @return the name of the template
 	 */
 	String findNameById(Long templateId);
+	
+	/**
+	 * Locks the row of the given template until the end of the current transaction. Used to serialize decisions
+	 * concerning all hosts of a template across several servers.
+	 *
+	 * @param template the template to lock
+	 */
+	void lockForUpdate(ETemplate template);
 }
@@ -21,8 +21,12 @@ import de.cinovo.cloudconductor.api.model.Dependency;
 import de.cinovo.cloudconductor.server.dao.IDependencyDAO;
 import de.cinovo.cloudconductor.server.model.EDependency;
 import de.taimos.dvalin.jpa.EntityDAOHibernate;
+import org.hibernate.Session;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -57,4 +61,33 @@ public class DependencyDAOIHib extends EntityDAOHibernate<EDependency, Long> imp
 		return this.findListByQuery("FROM EDependency AS r WHERE r.id IN ?1", dependencies);
 	}
 	
+	@Override
+	public void insertBatch(List<EDependency> dependencies) {
+		if ((dependencies == null) || dependencies.isEmpty()) {
+			return;
+		}
+		// language=SQL
+		String q = "INSERT INTO cloudconductor.dependency (type, name, operator, version) VALUES (?, ?, ?, ?)";
+		this.entityManager.unwrap(Session.class).doWork(connection -> {
+			try (PreparedStatement stmt = connection.prepareStatement(q, new String[] {"id"})) {
+				for (EDependency dependency : dependencies) {
+					stmt.setInt(1, dependency.getType().ordinal());
+					stmt.setString(2, dependency.getName());
+					stmt.setString(3, dependency.getOperator());
+					stmt.setString(4, dependency.getVersion());
+					stmt.addBatch();
+				}
+				stmt.executeBatch();
+				try (ResultSet keys = stmt.getGeneratedKeys()) {
+					for (EDependency dependency : dependencies) {
+						if (!keys.next()) {
+							throw new SQLException("Missing generated id for dependency " + dependency.getName());
+						}
+						dependency.setId(keys.getLong("id"));
+					}
+				}
+			}
+		});
+	}
+	
 }
@@ -2,10 +2,17 @@ package de.cinovo.cloudconductor.server.dao.hibernate;
 
 import de.cinovo.cloudconductor.server.dao.IHostDAO;
 import de.cinovo.cloudconductor.server.model.EHost;
+import de.cinovo.cloudconductor.server.model.PagedSimpleHost;
 import de.taimos.dvalin.jpa.EntityDAOHibernate;
+import org.hibernate.Session;
+import org.hibernate.annotations.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.TypedQuery;
+import java.sql.PreparedStatement;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /*
  * #%L
@@ -33,6 +40,12 @@ import java.util.List;
 @Repository("HostDAOHib")
 public class HostDAOHib extends EntityDAOHibernate<EHost, Long> implements IHostDAO {
 	
+	// the counts are answered by the host id indexes of the state tables
+	// language=HQL
+	private static final String SIMPLE_HOSTS = "SELECT NEW de.cinovo.cloudconductor.server.model.PagedSimpleHost(h.id, h.name, a.name, h.uuid, t.name, h.lastSeen, " //
+			+ "(SELECT COUNT(s) FROM EServiceState AS s WHERE s.hostId = h.id), (SELECT COUNT(p) FROM EPackageState AS p WHERE p.hostId = h.id)) " //
+			+ "FROM EHost AS h LEFT JOIN EAgent AS a ON a.id = h.agentId LEFT JOIN ETemplate AS t ON t.id = h.templateId";
+	
 	@Override
 	public Class<EHost> getEntityClass() {
 		return EHost.class;
@@ -74,4 +87,69 @@ public class HostDAOHib extends EntityDAOHibernate<EHost, Long> implements IHost
 		return this.findListByQuery("SELECT h FROM EHost AS h WHERE h.templateId = ?1", templateId);
 	}
 	
+	@Override
+	public List<EHost> findUpdating(Long startedAfter) {
+		// language=HQL
+		return this.findListByQuery("SELECT h FROM EHost AS h WHERE h.startedUpdate > ?1", startedAfter);
+	}
+	
+	@Override
+	public List<EHost> findUpdating(Long templateId, Long startedAfter) {
+		// language=HQL
+		return this.findListByQuery("SELECT h FROM EHost AS h WHERE h.templateId = ?1 AND h.startedUpdate > ?2", templateId, startedAfter);
+	}
+	
+	@Override
+	public int resetPackageDigests() {
+		// language=HQL
+		return this.entityManager.createQuery("UPDATE EHost AS h SET h.packageDigest = NULL WHERE h.packageDigest IS NOT NULL").executeUpdate();
+	}
+	
+	@Override
+	public Stream<PagedSimpleHost> streamSimpleHosts(Long afterId, int limit) {
+		// the pages are ordered by the primary key as the uuid is neither unique nor mandatory
+		String q = HostDAOHib.SIMPLE_HOSTS;
+		if (afterId != null) {
+			q += " WHERE h.id > :after";
+		}
+		TypedQuery<PagedSimpleHost> query = this.entityManager.createQuery(q + " ORDER BY h.id", PagedSimpleHost.class);
+		if (afterId != null) {
+			query.setParameter("after", afterId);
+		}
+		if (limit > 0) {
+			query.setMaxResults(limit);
+		}
+		// lets the driver fetch the rows in chunks instead of reading all of them before the first one is returned
+		query.setHint(QueryHints.FETCH_SIZE, 500);
+		return query.getResultStream();
+	}
+	
+	@Override
+	public PagedSimpleHost findSimpleHost(Long hostId) {
+		TypedQuery<PagedSimpleHost> query = this.entityManager.createQuery(HostDAOHib.SIMPLE_HOSTS + " WHERE h.id = :id", PagedSimpleHost.class);
+		query.setParameter("id", hostId);
+		List<PagedSimpleHost> hosts = query.getResultList();
+		return hosts.isEmpty() ? null : hosts.get(0);
+	}
+	
+	@Override
+	public void updateLastSeen(Map<String, Long> lastSeen) {
+		if ((lastSeen == null) || lastSeen.isEmpty()) {
+			return;
+		}
+		// language=SQL
+		String q = "UPDATE cloudconductor.host SET lastseen = ? WHERE uuid = ? AND (lastseen IS NULL OR lastseen < ?)";
+		this.entityManager.unwrap(Session.class).doWork(connection -> {
+			try (PreparedStatement stmt = connection.prepareStatement(q)) {
+				for (Map.Entry<String, Long> entry : lastSeen.entrySet()) {
+					stmt.setLong(1, entry.getValue());
+					stmt.setString(2, entry.getKey());
+					stmt.setLong(3, entry.getValue());
+					stmt.addBatch();
+				}
+				stmt.executeBatch();
+			}
+		});
+	}
+	
 }
@@ -20,8 +20,11 @@ package de.cinovo.cloudconductor.server.dao.hibernate;
 import de.cinovo.cloudconductor.server.dao.IPackageStateDAO;
 import de.cinovo.cloudconductor.server.model.EPackageState;
 import de.taimos.dvalin.jpa.EntityDAOHibernate;
+import org.hibernate.Session;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -45,5 +48,36 @@ public class PackageStateDAOHib extends EntityDAOHibernate<EPackageState, Long>
 		String q = "FROM EPackageState as ps WHERE ps.hostId = ?1";
 		return this.findListByQuery(q, id);
 	}
+	
+	@Override
+	public void insertBatch(Collection<EPackageState> states) {
+		if ((states == null) || states.isEmpty()) {
+			return;
+		}
+		// language=SQL
+		String q = "INSERT INTO cloudconductor.packagestate (hostid, rpmid, pkgid, pkgname, version) VALUES (?, ?, ?, ?, ?)";
+		this.entityManager.unwrap(Session.class).doWork(connection -> {
+			try (PreparedStatement stmt = connection.prepareStatement(q)) {
+				for (EPackageState state : states) {
+					stmt.setObject(1, state.getHostId());
+					stmt.setObject(2, state.getVersionId());
+					stmt.setObject(3, state.getPkgId());
+					stmt.setString(4, state.getPkgName());
+					stmt.setString(5, state.getVersion());
+					stmt.addBatch();
+				}
+				stmt.executeBatch();
+			}
+		});
+	}
+	
+	@Override
+	public int deleteByIds(Collection<Long> ids) {
+		if ((ids == null) || ids.isEmpty()) {
+			return 0;
+		}
+		// language=HQL
+		return this.entityManager.createQuery("DELETE FROM EPackageState AS ps WHERE ps.id IN ?1").setParameter(1, ids).executeUpdate();
+	}
 
 }
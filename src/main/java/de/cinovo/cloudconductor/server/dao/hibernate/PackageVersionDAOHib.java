@@ -21,8 +21,12 @@ import de.cinovo.cloudconductor.server.dao.IPackageVersionDAO;
 import de.cinovo.cloudconductor.server.model.EPackage;
 import de.cinovo.cloudconductor.server.model.EPackageVersion;
 import de.taimos.dvalin.jpa.EntityDAOHibernate;
+import org.hibernate.Session;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -109,12 +113,40 @@ public class PackageVersionDAOHib extends EntityDAOHibernate<EPackageVersion, Lo
 		return this.findListByQuery(q, pkgName, providingRepoIds, fixedMajor, fixedMinor, fixedPatch);
 	}
 	
+	@Override
+	public EPackageVersion findLatestProvided(String pkgName, Collection<Long> providingRepoIds, String... fixedParts) {
+		if (providingRepoIds.isEmpty()) {
+			return null;
+		}
+		String[] columns = {"versionMajor", "versionMinor", "versionPatch"};
+		Object[] params = new Object[fixedParts.length + 2];
+		params[0] = pkgName;
+		params[1] = providingRepoIds;
+		// language=HQL
+		StringBuilder q = new StringBuilder("SELECT pv FROM EPackageVersion AS pv LEFT JOIN pv.repos AS repos WHERE pv.pkgName = ?1 AND repos IN ?2");
+		for (int i = 0; i < fixedParts.length; i++) {
+			q.append(" AND pv.").append(columns[i]).append(" = ?").append(i + 3);
+			params[i + 2] = fixedParts[i];
+		}
+		q.append(" AND pv.sortKey IS NOT NULL ORDER BY pv.sortKey DESC");
+		return this.findListByQueryLimit(q.toString(), 0, 1, params).stream().findFirst().orElse(null);
+	}
+	
 	@Override
 	public EPackageVersion find(String baseName, String version) {
 		// language=HQL
 		return this.findByQuery("FROM EPackageVersion pv WHERE pv.pkgName = ?1 AND pv.version = ?2", baseName, version);
 	}
 
+	@Override
+	public List<EPackageVersion> find(Collection<String> baseNames, Collection<String> versions) {
+		if ((baseNames == null) || baseNames.isEmpty() || (versions == null) || versions.isEmpty()) {
+			return Collections.emptyList();
+		}
+		// language=HQL
+		return this.findListByQuery("FROM EPackageVersion pv WHERE pv.pkgName IN ?1 AND pv.version IN ?2", baseNames, versions);
+	}
+
 	@Override
 	public List<EPackageVersion> find(String baseName) {
 		// language=HQL
@@ -147,4 +179,69 @@ public class PackageVersionDAOHib extends EntityDAOHibernate<EPackageVersion, Lo
 		return this.findListByQuery(q, ids);
 	}
 	
+	@Override
+	public void insertBatch(List<EPackageVersion> versions) {
+		if ((versions == null) || versions.isEmpty()) {
+			return;
+		}
+		// language=SQL
+		String q = "INSERT INTO cloudconductor.packageversion (packageid, pkgname, version, vmajor, vminor, vpatch, sortkey) VALUES (?, ?, ?, ?, ?, ?, ?)";
+		// language=SQL
+		String qDeps = "INSERT INTO cloudconductor.mappingrpmdep (rpmid, dependencyid) VALUES (?, ?)";
+		// language=SQL
+		String qRepos = "INSERT INTO cloudconductor.map_version_repo (versionid, repoid) VALUES (?, ?)";
+		this.entityManager.unwrap(Session.class).doWork(connection -> {
+			try (PreparedStatement stmt = connection.prepareStatement(q, new String[] {"id"})) {
+				for (EPackageVersion version : versions) {
+					stmt.setObject(1, version.getPkgId());
+					stmt.setString(2, version.getPkgName());
+					stmt.setString(3, version.getVersion());
+					version.updateVersionKey();
+					stmt.setString(4, version.getVersionMajor());
+					stmt.setString(5, version.getVersionMinor());
+					stmt.setString(6, version.getVersionPatch());
+					stmt.setBytes(7, version.getSortKey());
+					stmt.addBatch();
+				}
+				stmt.executeBatch();
+				try (ResultSet keys = stmt.getGeneratedKeys()) {
+					for (EPackageVersion version : versions) {
+						if (!keys.next()) {
+							throw new SQLException("Missing generated id for package version " + version.getPkgName() + ":" + version.getVersion());
+						}
+						version.setId(keys.getLong("id"));
+					}
+				}
+			}
+			try (PreparedStatement stmt = connection.prepareStatement(qDeps)) {
+				boolean batched = false;
+				for (EPackageVersion version : versions) {
+					for (Long dependencyId : version.getDependencies()) {
+						stmt.setLong(1, version.getId());
+						stmt.setLong(2, dependencyId);
+						stmt.addBatch();
+						batched = true;
+					}
+				}
+				if (batched) {
+					stmt.executeBatch();
+				}
+			}
+			try (PreparedStatement stmt = connection.prepareStatement(qRepos)) {
+				boolean batched = false;
+				for (EPackageVersion version : versions) {
+					for (Long repoId : version.getRepos()) {
+						stmt.setLong(1, version.getId());
+						stmt.setLong(2, repoId);
+						stmt.addBatch();
+						batched = true;
+					}
+				}
+				if (batched) {
+					stmt.executeBatch();
+				}
+			}
+		});
+	}
+	
 }
@@ -23,6 +23,8 @@ import de.cinovo.cloudconductor.server.model.EService;
 import de.taimos.dvalin.jpa.EntityDAOHibernate;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -76,6 +78,15 @@ public class ServiceDAOHib extends EntityDAOHibernate<EService, Long> implements
 		return this.findListByQuery("FROM EService AS s WHERE ?1 in elements(s.packages)", pkgId);
 	}
 	
+	@Override
+	public List<EService> findByPackages(Collection<Long> pkgIds) {
+		if (pkgIds.isEmpty()) {
+			return new ArrayList<>();
+		}
+		// language=HQL
+		return this.findListByQuery("SELECT DISTINCT s FROM EService AS s JOIN s.packages AS p WHERE p IN ?1", pkgIds);
+	}
+	
 	@Override
 	public String findNameById(Long serviceId) {
 		// language=HQL
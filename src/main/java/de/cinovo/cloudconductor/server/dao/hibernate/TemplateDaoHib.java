@@ -7,6 +7,7 @@ import de.cinovo.cloudconductor.server.model.ETemplate;
 import de.taimos.dvalin.jpa.EntityDAOHibernate;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -109,4 +110,9 @@ public class TemplateDaoHib extends EntityDAOHibernate<ETemplate, Long> implemen
 		return this.entityManager.createQuery(q, String.class).setParameter(1, templateId).getSingleResult();
 	}
 	
+	@Override
+	public void lockForUpdate(ETemplate template) {
+		this.entityManager.lock(template, LockModeType.PESSIMISTIC_WRITE);
+	}
+	
 }
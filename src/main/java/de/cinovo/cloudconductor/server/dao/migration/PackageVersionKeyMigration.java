@@ -0,0 +1,88 @@
+package de.cinovo.cloudconductor.server.dao.migration;
+
+import de.cinovo.cloudconductor.server.model.EPackageVersion;
+import de.cinovo.cloudconductor.server.util.comparators.VersionKey;
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Fills the range parts and the sort key of the package versions stored before they were introduced. New package
+ * versions get them when they are saved.
+ *
+ * @author mweise
+ */
+public class PackageVersionKeyMigration implements CustomTaskChange {
+
+	private static final int BATCH_SIZE = 1000;
+
+	private int updated;
+
+
+	@Override
+	public void execute(Database database) throws CustomChangeException {
+		if (!(database.getConnection() instanceof JdbcConnection)) {
+			throw new CustomChangeException("The package version keys can only be filled using a JDBC connection");
+		}
+		Connection con = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+		// language=SQL
+		String q = "UPDATE cloudconductor.packageversion SET vmajor = ?, vminor = ?, vpatch = ?, sortkey = ? WHERE id = ?";
+		try (Statement select = con.createStatement(); ResultSet rs = select.executeQuery("SELECT id, version FROM cloudconductor.packageversion"); PreparedStatement update = con.prepareStatement(q)) {
+			int batched = 0;
+			while (rs.next()) {
+				String version = rs.getString(2);
+				if (version == null) {
+					continue;
+				}
+				VersionKey key = VersionKey.of(version);
+				update.setString(1, EPackageVersion.rangePart(key, 0));
+				update.setString(2, EPackageVersion.rangePart(key, 1));
+				update.setString(3, EPackageVersion.rangePart(key, 2));
+				update.setBytes(4, key.getSortKey());
+				update.setLong(5, rs.getLong(1));
+				update.addBatch();
+				this.updated++;
+				if (++batched == PackageVersionKeyMigration.BATCH_SIZE) {
+					update.executeBatch();
+					batched = 0;
+				}
+			}
+			if (batched > 0) {
+				update.executeBatch();
+			}
+		} catch (SQLException e) {
+			throw new CustomChangeException("Failed to fill the package version keys", e);
+		}
+	}
+
+	@Override
+	public String getConfirmationMessage() {
+		return "Filled the keys of " + this.updated + " package versions";
+	}
+
+	@Override
+	public void setUp() {
+		// nothing to set up
+	}
+
+	@Override
+	public void setFileOpener(ResourceAccessor resourceAccessor) {
+		// no resources needed
+	}
+
+	@Override
+	public ValidationErrors validate(Database database) {
+		return new ValidationErrors();
+	}
+}
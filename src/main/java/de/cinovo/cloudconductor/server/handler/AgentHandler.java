@@ -5,31 +5,26 @@ import de.cinovo.cloudconductor.api.model.AgentOption;
 import de.cinovo.cloudconductor.api.model.ConfigFile;
 import de.cinovo.cloudconductor.api.model.PackageState;
 import de.cinovo.cloudconductor.api.model.PackageStateChanges;
-import de.cinovo.cloudconductor.api.model.PackageVersion;
 import de.cinovo.cloudconductor.api.model.ServiceStates;
 import de.cinovo.cloudconductor.api.model.ServiceStatesChanges;
 import de.cinovo.cloudconductor.server.dao.IAgentDAO;
 import de.cinovo.cloudconductor.server.dao.IAgentOptionsDAO;
 import de.cinovo.cloudconductor.server.dao.IHostDAO;
-import de.cinovo.cloudconductor.server.dao.IPackageDAO;
-import de.cinovo.cloudconductor.server.dao.IPackageStateDAO;
-import de.cinovo.cloudconductor.server.dao.IServiceStateDAO;
 import de.cinovo.cloudconductor.server.dao.ITemplateDAO;
 import de.cinovo.cloudconductor.server.model.EAgent;
 import de.cinovo.cloudconductor.server.model.EAgentOption;
 import de.cinovo.cloudconductor.server.model.EHost;
-import de.cinovo.cloudconductor.server.model.EPackage;
-import de.cinovo.cloudconductor.server.model.EPackageState;
+import de.cinovo.cloudconductor.server.model.EService;
 import de.cinovo.cloudconductor.server.model.EServiceState;
 import de.cinovo.cloudconductor.server.model.ETemplate;
 import de.cinovo.cloudconductor.server.model.EUser;
 import de.cinovo.cloudconductor.server.security.AuthHandler;
-import de.cinovo.cloudconductor.server.websockets.model.WSChangeEvent.ChangeType;
-import de.cinovo.cloudconductor.server.ws.host.HostDetailWSHandler;
-import de.cinovo.cloudconductor.server.ws.host.HostsWSHandler;
+import de.cinovo.cloudconductor.server.util.HeartbeatBuffer;
+import de.cinovo.cloudconductor.server.util.PackageDigest;
+import de.cinovo.cloudconductor.server.util.UpdateSlotTracker;
+import de.cinovo.cloudconductor.server.ws.host.HostChangeBroadcaster;
 import de.taimos.restutils.RESTAssert;
 import org.joda.time.DateTime;
-import org.joda.time.Minutes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,8 +33,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -52,7 +49,6 @@ import java.util.UUID;
 @Service
 public class AgentHandler {
 	private final Logger logger = LoggerFactory.getLogger(AgentHandler.class);
-	private static final int MAX_UPDATE_THRESHOLD = 15;
 	
 	@Autowired
 	private IAgentOptionsDAO agentOptionsDAO;
@@ -60,10 +56,6 @@ public class AgentHandler {
 	private IHostDAO hostDAO;
 	@Autowired
 	private ITemplateDAO templateDAO;
-	@Autowired
-	private IPackageDAO packageDAO;
-	@Autowired
-	private IServiceStateDAO serviceStateDAO;
 	
 	@Autowired
 	private ServiceStateHandler serviceStateHandler;
@@ -79,15 +71,15 @@ public class AgentHandler {
 	private FileHandler fileHandler;
 	
 	@Autowired
-	private HostsWSHandler hostsWSHandler;
-	@Autowired
-	private HostDetailWSHandler hostDetailWsHandler;
+	private HostChangeBroadcaster hostChangeBroadcaster;
 	@Autowired
 	private IAgentDAO agentDAO;
 	@Autowired
 	private AuthHandler userHandler;
 	@Autowired
-	private IPackageStateDAO packageStateDAO;
+	private HeartbeatBuffer heartbeatBuffer;
+	@Autowired
+	private UpdateSlotTracker updateSlotTracker;
 	
 	/**
 	 * @param hostName     the name of the host
@@ -101,55 +93,59 @@ public class AgentHandler {
 		RESTAssert.assertNotEmpty(hostName);
 		EHost host = this.hostDAO.findByUuid(uuid);
 		RESTAssert.assertNotNull(host);
-		host.setLastSeen((new DateTime()).getMillis());
-		host = this.hostDAO.save(host);
-		List<EPackage> packages = this.packageDAO.findList();
-		List<EPackageState> leftPackages = this.packageStateDAO.findByHost(host.getId());
-		for (PackageVersion installedPV : rpmState.getInstalledRpms()) {
-			EPackage knownPackage = packages.stream().filter(p -> p.getName().equals(installedPV.getName())).findFirst().orElse(null);
-			if (knownPackage == null) {
-				continue;
-			}
-			EPackageState state = this.packageStateHandler.updateExistingState(host, installedPV, leftPackages);
-			if (state == null) {
-				this.packageStateHandler.createMissingState(host, installedPV, knownPackage);
-			}
-		}
-		this.packageStateHandler.removePackageState(host, leftPackages);
-		this.hostDetailWsHandler.broadcastChange(host, ChangeType.UPDATED);
-		this.hostsWSHandler.broadcastEvent(host, ChangeType.UPDATED);
-		// check whether the host may updateEntity or has to wait for another host to finish updating
-		if (this.sendPackageChanges(host)) {
-			PackageStateChanges diff = this.psChangeHandler.computePackageDiff(host);
-			if (!diff.getToInstall().isEmpty() || !diff.getToUpdate().isEmpty() || !diff.getToErase().isEmpty()) {
-				host.setStartedUpdate(DateTime.now().getMillis());
-			}
-			return diff;
+		this.heartbeatBuffer.heartbeat(host.getUuid(), DateTime.now().getMillis());
+		this.packageStateHandler.updatePackageStates(host, rpmState.getInstalledRpms());
+		host.setPackageDigest(PackageDigest.compute(rpmState.getInstalledRpms()));
+		this.hostChangeBroadcaster.hostChanged(host);
+		return this.computePackageChanges(host);
+	}
+	
+	/**
+	 * Handles a package state report only containing the digest of the installed packages. If the digest matches the
+	 * one of the last full report of the host, its package states are still valid and do not have to be reconciled.
+	 *
+	 * @param uuid   the uuid
+	 * @param digest the digest of the installed packages, see {@link PackageDigest}
+	 * @return computed changes for package state or null if the digest does not match and a full report is required
+	 */
+	@Transactional
+	public PackageStateChanges handlePackageDigest(String uuid, String digest) {
+		EHost host = this.hostDAO.findByUuid(uuid);
+		RESTAssert.assertNotNull(host);
+		if ((host.getPackageDigest() == null) || !host.getPackageDigest().equals(digest)) {
+			return null;
 		}
-		return new PackageStateChanges(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+		this.heartbeatBuffer.heartbeat(host.getUuid(), DateTime.now().getMillis());
+		this.hostChangeBroadcaster.hostChanged(host);
+		return this.computePackageChanges(host);
 	}
 	
-	private boolean sendPackageChanges(EHost host) {
-		DateTime now = DateTime.now();
+	private PackageStateChanges computePackageChanges(EHost host) {
+		// check whether the host may update or has to wait for other hosts to finish updating
 		ETemplate template = this.templateDAO.findById(host.getTemplateId());
-		long maxHostsOnUpdate = this.hostDAO.countForTemplate(host.getTemplateId()) / 2;
-		long hostsOnUpdate = 0;
-		if ((template.getSmoothUpdate() == null) || !template.getSmoothUpdate() || (maxHostsOnUpdate < 1)) {
-			return true;
-		}
-		if (host.getStartedUpdate() != null) {
-			return true;
+		long maxHostsOnUpdate = this.getMaxHostsOnUpdate(host, template);
+		if ((maxHostsOnUpdate > 0) && this.updateSlotTracker.isExhausted(template.getId(), maxHostsOnUpdate)) {
+			return new PackageStateChanges(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
 		}
-		for (EHost h : this.hostDAO.findHostsForTemplate(template.getId())) {
-			if (h.getStartedUpdate() != null) {
-				int timeElapsed = Minutes.minutesBetween(new DateTime(h.getStartedUpdate()), now).getMinutes();
-				if (timeElapsed > AgentHandler.MAX_UPDATE_THRESHOLD) {
-					continue;
-				}
-				hostsOnUpdate++;
+		PackageStateChanges diff = this.psChangeHandler.computePackageDiff(host);
+		if (!diff.getToInstall().isEmpty() || !diff.getToUpdate().isEmpty() || !diff.getToErase().isEmpty()) {
+			long now = DateTime.now().getMillis();
+			if ((maxHostsOnUpdate > 0) && !this.updateSlotTracker.tryAcquire(host, template, maxHostsOnUpdate, now)) {
+				return new PackageStateChanges(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
 			}
+			host.setStartedUpdate(now);
+		}
+		return diff;
+	}
+	
+	/**
+	 * @return the number of hosts of the template allowed to update at the same time, 0 if the host is not restricted
+	 */
+	private long getMaxHostsOnUpdate(EHost host, ETemplate template) {
+		if ((template.getSmoothUpdate() == null) || !template.getSmoothUpdate() || (host.getStartedUpdate() != null)) {
+			return 0;
 		}
-		return maxHostsOnUpdate > hostsOnUpdate;
+		return this.updateSlotTracker.getMaxSlots(template.getId());
 	}
 	
 	/**
@@ -162,46 +158,64 @@ public class AgentHandler {
 	 */
 	@Transactional
 	public ServiceStatesChanges handleServiceState(String templateName, ServiceStates serviceState, String uuid) {
+		return this.handleServiceState(templateName, serviceState, uuid, null);
+	}
+	
+	/**
+	 * Handle incoming service states and compute changes.
+	 *
+	 * @param templateName the name of the template
+	 * @param serviceState the incoming service state
+	 * @param uuid         the UUID of the agent
+	 * @param filesHash    the hash of the configuration files known to the agent, may be null
+	 * @return the computed changes for the services, without configuration files if they match the given hash
+	 */
+	@Transactional
+	public ServiceStatesChanges handleServiceState(String templateName, ServiceStates serviceState, String uuid, String filesHash) {
 		ETemplate template = this.templateDAO.findByName(templateName);
 		RESTAssert.assertNotNull(template);
 		
 		EHost host = this.hostDAO.findByUuid(uuid);
 		RESTAssert.assertNotNull(host);
 		
-		if (this.serviceHandler.assertHostServices(template, host)) {
-			host = this.hostDAO.findByUuid(uuid);
+		Map<Long, EService> templateServices = new HashMap<>();
+		for (EService service : this.serviceHandler.findByTemplate(template)) {
+			templateServices.put(service.getId(), service);
 		}
-		ServiceStatesChanges serviceStatesChanges = new ServiceStatesChanges(new HashSet<>(), new HashSet<>(), new HashSet<>());
-		List<EServiceState> hostServiceStates = this.serviceStateDAO.findByHost(host.getId());
-		Set<EServiceState> stateList = new HashSet<>(hostServiceStates);
+		List<EServiceState> hostServiceStates = this.serviceHandler.assertHostServices(template, host, templateServices);
 		
-		// agent sends running services
-		for (String sname : serviceState.getRunningServices()) {
-			for (EServiceState state : hostServiceStates) {
-				if (state.getServiceName().equals(sname)) {
-					stateList.remove(state);
-					this.serviceStateHandler.handleStartedService(state, serviceStatesChanges);
-				}
-			}
+		// agent sends running services, all other services are not running at the moment
+		Set<String> runningServices = new HashSet<>();
+		if (serviceState.getRunningServices() != null) {
+			runningServices.addAll(serviceState.getRunningServices());
 		}
-		
-		// remaining elements in stateList refer to services which are not running at the moment
-		for (EServiceState hostState : stateList) {
-			EServiceState state = this.serviceStateDAO.findById(hostState.getId());
-			if (state != null) {
-				this.serviceStateHandler.handleStoppedService(state, serviceStatesChanges);
+		ServiceStatesChanges serviceStatesChanges = new ServiceStatesChanges(new HashSet<>(), new HashSet<>(), new HashSet<>());
+		boolean changed = false;
+		for (EServiceState state : hostServiceStates) {
+			EService service = templateServices.get(state.getServiceId());
+			if (runningServices.contains(state.getServiceName())) {
+				changed |= this.serviceStateHandler.handleStartedService(state, service, serviceStatesChanges);
+			} else {
+				changed |= this.serviceStateHandler.handleStoppedService(state, service, serviceStatesChanges);
 			}
 		}
 		
 		if (serviceStatesChanges.getToStart().isEmpty() && serviceStatesChanges.getToStop().isEmpty() && serviceStatesChanges.getToRestart().isEmpty() && (host.getStartedUpdate() != null)) {
 			host.setStartedUpdate(null);
+			this.updateSlotTracker.release(host);
 			host = this.hostDAO.save(host);
-			this.hostDetailWsHandler.broadcastChange(host, ChangeType.UPDATED);
+			changed = true;
+		}
+		if (changed) {
+			// inform user interface via WS only once per report
+			this.hostChangeBroadcaster.hostChanged(host);
 		}
 		
-		HashSet<ConfigFile> configFiles = new HashSet<>();
-		Collections.addAll(configFiles, this.fileHandler.getFilesForTemplate(templateName));
-		serviceStatesChanges.setConfigFiles(configFiles);
+		if ((filesHash == null) || !filesHash.equals(this.fileHandler.getFilesHashForTemplate(templateName))) {
+			HashSet<ConfigFile> configFiles = new HashSet<>();
+			Collections.addAll(configFiles, this.fileHandler.getFilesForTemplate(templateName));
+			serviceStatesChanges.setConfigFiles(configFiles);
+		}
 		return serviceStatesChanges;
 	}
 	
@@ -222,13 +236,12 @@ public class AgentHandler {
 		}
 		
 		EHost host = this.getHost(templateName, hostName, uuid, agent);
-		host.setLastSeen((new DateTime()).getMillis());
+		this.heartbeatBuffer.heartbeat(host.getUuid(), DateTime.now().getMillis());
 		if (agent != null) {
 			host.setAgentId(agent.getId());
 		}
 		host = this.hostDAO.save(host);
-		this.hostDetailWsHandler.broadcastChange(host, ChangeType.UPDATED);
-		this.hostsWSHandler.broadcastEvent(host, ChangeType.UPDATED);
+		this.hostChangeBroadcaster.hostChanged(host);
 		
 		EAgentOption options = this.agentOptionsDAO.findByTemplate(host.getTemplateId());
 		if (options == null) {
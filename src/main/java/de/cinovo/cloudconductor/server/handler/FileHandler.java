@@ -7,6 +7,7 @@ import de.cinovo.cloudconductor.server.model.EFileData;
 import de.cinovo.cloudconductor.server.model.EPackage;
 import de.cinovo.cloudconductor.server.model.EService;
 import de.cinovo.cloudconductor.server.model.ETemplate;
+import de.cinovo.cloudconductor.server.util.FileManifestCache;
 import de.taimos.restutils.RESTAssert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +42,8 @@ public class FileHandler {
 	private IServiceDAO serviceDAO;
 	@Autowired
 	private ITemplateDAO templateDAO;
+	@Autowired
+	private FileManifestCache fileManifestCache;
 	
 	
 	/**
@@ -52,6 +55,7 @@ public class FileHandler {
 		EFile ef = new EFile();
 		this.fillFields(ef, cf);
 		RESTAssert.assertNotNull(ef);
+		this.fileManifestCache.invalidate(ef.getTemplates());
 		return this.fileDAO.save(ef);
 	}
 	
@@ -62,8 +66,10 @@ public class FileHandler {
 	 * @throws WebApplicationException on error
 	 */
 	public EFile updateEntity(EFile ef, ConfigFile cf) throws WebApplicationException {
+		this.fileManifestCache.invalidate(ef.getTemplates());
 		this.fillFields(ef, cf);
 		RESTAssert.assertNotNull(ef);
+		this.fileManifestCache.invalidate(ef.getTemplates());
 		return this.fileDAO.save(ef);
 	}
 	
@@ -155,7 +161,16 @@ public class FileHandler {
 	 */
 	@Transactional
 	public ConfigFile[] getFilesForTemplate(String templateName) {
-		return this.fileDAO.findByTemplate(templateName).stream().map(f -> f.toApi(this.packageDAO)).toArray(ConfigFile[]::new);
+		return this.fileManifestCache.getFiles(templateName);
+	}
+	
+	/**
+	 * @param templateName the name of the template
+	 * @return the hash of the configuration files which are used in the given template
+	 */
+	@Transactional
+	public String getFilesHashForTemplate(String templateName) {
+		return this.fileManifestCache.getHash(templateName);
 	}
 	
 }
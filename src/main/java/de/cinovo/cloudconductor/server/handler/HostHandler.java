@@ -13,6 +13,7 @@ import de.cinovo.cloudconductor.server.model.EHost;
 import de.cinovo.cloudconductor.server.model.EService;
 import de.cinovo.cloudconductor.server.model.EServiceState;
 import de.cinovo.cloudconductor.server.model.ETemplate;
+import de.cinovo.cloudconductor.server.util.UpdateSlotTracker;
 import de.cinovo.cloudconductor.server.websockets.model.WSChangeEvent.ChangeType;
 import de.cinovo.cloudconductor.server.ws.host.HostDetailWSHandler;
 import de.cinovo.cloudconductor.server.ws.host.HostsWSHandler;
@@ -53,6 +54,8 @@ public class HostHandler {
 	private IAgentDAO agentDAO;
 	@Autowired
 	private IPackageStateDAO packageStateDAO;
+	@Autowired
+	private UpdateSlotTracker updateSlotTracker;
 	
 	
 	/**
@@ -107,6 +110,7 @@ public class HostHandler {
 			newHost.setAgentId(agent.getId());
 		}
 		newHost = this.hostDAO.save(newHost);
+		this.updateSlotTracker.hostsChanged(template.getId());
 		this.hostDetailWSHandler.broadcastChange(newHost, ChangeType.UPDATED);
 		
 		this.hostWSHandler.broadcastEvent(newHost, ChangeType.ADDED);
@@ -129,6 +133,8 @@ public class HostHandler {
 		if (eHost.getTemplateId().equals(newTemp.getId())) {
 			return eHost;
 		}
+		this.updateSlotTracker.hostsChanged(eHost.getTemplateId());
+		this.updateSlotTracker.hostsChanged(newTemp.getId());
 		eHost.setTemplateId(newTemp.getId());
 		return this.hostDAO.save(eHost);
 	}
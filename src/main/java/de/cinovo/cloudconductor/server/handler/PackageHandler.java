@@ -19,11 +19,16 @@ import org.springframework.stereotype.Service;
 
 import javax.ws.rs.WebApplicationException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -36,6 +41,9 @@ import java.util.stream.Collectors;
 @Service
 public class PackageHandler {
 	
+	// the number of rows written by a single JDBC batch
+	private static final int BATCH_SIZE = 1000;
+	
 	private final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 	private final Pattern versionSeparator = Pattern.compile("[.-]");
 
@@ -75,6 +83,77 @@ public class PackageHandler {
 		return this.packageVersionDAO.save(et);
 	}
 	
+	/**
+	 * Creates the given package versions with JDBC batches instead of saving them one by one. All known dependencies are
+	 * loaded once, missing dependencies are inserted as one batch as well.
+	 *
+	 * @param versions the package versions to create
+	 * @param packages the packages of the versions by name
+	 */
+	public void createEntities(Collection<PackageVersion> versions, Map<String, EPackage> packages) {
+		if (versions.isEmpty()) {
+			return;
+		}
+		Set<String> repoNames = new HashSet<>();
+		for (PackageVersion pv : versions) {
+			if (pv.getRepos() != null) {
+				repoNames.addAll(pv.getRepos());
+			}
+		}
+		Map<String, Long> repoIds = new HashMap<>();
+		if (!repoNames.isEmpty()) {
+			for (ERepo repo : this.repoDAO.findByNames(repoNames)) {
+				repoIds.put(repo.getName(), repo.getId());
+			}
+		}
+		Map<EDependency, EDependency> knownDependencies = new HashMap<>();
+		for (EDependency edep : this.dependencyDAO.findList()) {
+			knownDependencies.put(edep, edep);
+		}
+		
+		List<EPackageVersion> entities = new ArrayList<>();
+		List<List<EDependency>> entityDependencies = new ArrayList<>();
+		List<EDependency> newDependencies = new ArrayList<>();
+		for (PackageVersion pv : versions) {
+			EPackage pkg = packages.get(pv.getName());
+			EPackageVersion et = new EPackageVersion();
+			et.setVersion(pv.getVersion());
+			et.setPkgId(pkg.getId());
+			et.setPkgName(pkg.getName());
+			if (pv.getRepos() != null) {
+				pv.getRepos().stream().map(repoIds::get).filter(Objects::nonNull).forEach(et.getRepos()::add);
+			}
+			List<EDependency> deps = new ArrayList<>();
+			if (pv.getDependencies() != null) {
+				for (Dependency dep : pv.getDependencies()) {
+					EDependency edep = new EDependency();
+					this.fillFields(edep, dep);
+					EDependency known = knownDependencies.putIfAbsent(edep, edep);
+					if (known == null) {
+						newDependencies.add(edep);
+					} else {
+						edep = known;
+					}
+					deps.add(edep);
+				}
+			}
+			entities.add(et);
+			entityDependencies.add(deps);
+		}
+		
+		for (int i = 0; i < newDependencies.size(); i += PackageHandler.BATCH_SIZE) {
+			this.dependencyDAO.insertBatch(newDependencies.subList(i, Math.min(i + PackageHandler.BATCH_SIZE, newDependencies.size())));
+		}
+		for (int i = 0; i < entities.size(); i++) {
+			for (EDependency edep : entityDependencies.get(i)) {
+				entities.get(i).getDependencies().add(edep.getId());
+			}
+		}
+		for (int i = 0; i < entities.size(); i += PackageHandler.BATCH_SIZE) {
+			this.packageVersionDAO.insertBatch(entities.subList(i, Math.min(i + PackageHandler.BATCH_SIZE, entities.size())));
+		}
+	}
+	
 	/**
 	 * @param et the entity to update
 	 * @param pv the update data
@@ -160,7 +239,31 @@ public class PackageHandler {
 			return null;
 		}
 
-		return this.getProvidedPackageVersions(pkgName, currentVersion, availableRepoIds, range).stream().max(new PackageVersionComparator()).orElse(null);
+		String[] versionParts = this.versionSeparator.split(currentVersion);
+		String[] fixedParts;
+		switch (range) {
+			case all:
+				fixedParts = new String[0];
+				break;
+			case major:
+				fixedParts = new String[] {versionParts[0]};
+				break;
+			case minor:
+				fixedParts = new String[] {versionParts[0], versionParts[1]};
+				break;
+			case patch:
+				fixedParts = new String[] {versionParts[0], versionParts[1], versionParts[2]};
+				break;
+			default:
+				return null;
+		}
+		for (String fixedPart : fixedParts) {
+			if (fixedPart.length() > EPackageVersion.MAX_RANGE_PART) {
+				// too long to be stored as range part
+				return this.getProvidedPackageVersions(pkgName, currentVersion, availableRepoIds, range).stream().max(new PackageVersionComparator()).orElse(null);
+			}
+		}
+		return this.packageVersionDAO.findLatestProvided(pkgName, availableRepoIds, fixedParts);
 	}
 	
 	/**
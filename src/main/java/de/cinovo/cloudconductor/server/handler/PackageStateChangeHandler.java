@@ -6,15 +6,12 @@ import de.cinovo.cloudconductor.server.dao.IDependencyDAO;
 import de.cinovo.cloudconductor.server.dao.IPackageStateDAO;
 import de.cinovo.cloudconductor.server.dao.IPackageVersionDAO;
 import de.cinovo.cloudconductor.server.dao.IRepoDAO;
-import de.cinovo.cloudconductor.server.dao.IServerOptionsDAO;
-import de.cinovo.cloudconductor.server.dao.ITemplateDAO;
 import de.cinovo.cloudconductor.server.model.EHost;
 import de.cinovo.cloudconductor.server.model.EPackageState;
 import de.cinovo.cloudconductor.server.model.EPackageVersion;
-import de.cinovo.cloudconductor.server.model.ERepo;
-import de.cinovo.cloudconductor.server.model.EServerOptions;
-import de.cinovo.cloudconductor.server.model.ETemplate;
 import de.cinovo.cloudconductor.server.model.enums.PackageCommand;
+import de.cinovo.cloudconductor.server.util.DesiredStateCache;
+import de.cinovo.cloudconductor.server.util.DesiredStateCache.DesiredState;
 import de.cinovo.cloudconductor.server.util.comparators.PackageVersionComparator;
 import de.taimos.restutils.RESTAssert;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,8 +19,11 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
@@ -37,10 +37,8 @@ import java.util.stream.Collectors;
 @Service
 public class PackageStateChangeHandler {
 	
-	@Autowired
-	private ITemplateDAO templateDAO;
-	@Autowired
-	private IServerOptionsDAO serverOptionsDAO;
+	private static final int MAX_CACHED_DIFFS = 10000;
+	
 	@Autowired
 	private IPackageVersionDAO packageVersionDAO;
 	@Autowired
@@ -49,40 +47,75 @@ public class PackageStateChangeHandler {
 	private IPackageStateDAO packageStateDAO;
 	@Autowired
 	private IDependencyDAO dependencyDAO;
+	@Autowired
+	private DesiredStateCache desiredStateCache;
+	
+	// the least recently used diffs are dropped if there are more hosts than diffs
+	private final Map<Long, CachedDiff> cachedDiffs = Collections.synchronizedMap(new LinkedHashMap<Long, CachedDiff>(16, 0.75f, true) {
+		
+		private static final long serialVersionUID = 1L;
+		
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, CachedDiff> eldest) {
+			return this.size() > PackageStateChangeHandler.MAX_CACHED_DIFFS;
+		}
+	});
+	
 	
 	/**
+	 * The result is cached per host as long as neither the package digest of the host nor the desired state of its
+	 * template changes.
+	 *
 	 * @param host the host
 	 * @return the package state changes
 	 */
 	public PackageStateChanges computePackageDiff(EHost host) {
-		return this.computePackageDiff(host, host.getTemplateId());
+		DesiredState desired = this.desiredStateCache.get(host.getTemplateId());
+		RESTAssert.assertNotNull(desired);
+		String digest = host.getPackageDigest();
+		CachedDiff cached = this.cachedDiffs.get(host.getId());
+		if ((digest != null) && (cached != null) && cached.matches(digest, desired)) {
+			return cached.copy();
+		}
+		PackageStateChanges result = this.computePackageDiff(host, desired);
+		if (digest != null) {
+			this.cachedDiffs.put(host.getId(), new CachedDiff(digest, desired, result));
+		}
+		return result;
 	}
 	
 	/**
-	 * @param host       the host
-	 * @param templateId the template to compare with
+	 * Drops the cached package state changes of a deleted host.
+	 *
+	 * @param hostId the id of the host
+	 */
+	public void evict(Long hostId) {
+		this.cachedDiffs.remove(hostId);
+	}
+	
+	/**
+	 * @param host    the host
+	 * @param desired the desired state to compare with
 	 * @return the package state changes
 	 */
-	private PackageStateChanges computePackageDiff(EHost host, Long templateId) {
+	private PackageStateChanges computePackageDiff(EHost host, DesiredState desired) {
 		// Compute instruction lists (install/updateEntity/erase) from difference between packages actually installed packages that
 		// should be installed.
 		List<EPackageVersion> actual = this.packageVersionDAO.findByIds(this.packageStateDAO.findByHost(host.getId()).stream().map(EPackageState::getVersionId).collect(Collectors.toSet()));
-		return this.computePackageDiff(templateId, actual);
+		return this.computePackageDiff(desired, actual);
 	}
 	
 	/**
-	 * @param templateId the referenced template
-	 * @param actual     list of package versions which are actually installed
+	 * @param desired the desired state of the referenced template
+	 * @param actual  list of package versions which are actually installed
 	 * @return multimap including package versions and the command which should be applied to them (e.g install, update, delete)
 	 */
-	private PackageStateChanges computePackageDiff(Long templateId, Collection<EPackageVersion> actual) {
-		ETemplate template = this.templateDAO.findById(templateId);
-		RESTAssert.assertNotNull(template);
-		List<EPackageVersion> nominal = this.packageVersionDAO.findByIds(template.getPackageVersions());
-		TreeSet<EPackageVersion> toInstall = this.findInstalls(actual, nominal);
+	private PackageStateChanges computePackageDiff(DesiredState desired, Collection<EPackageVersion> actual) {
+		TreeSet<EPackageVersion> toInstall = this.findInstalls(actual, desired.getNominal());
 		TreeSet<EPackageVersion> toErase;
-		if (template.getNoUninstalls() == null || !template.getNoUninstalls()) {
-			toErase = this.findDeletes(actual, nominal, this.repoDAO.findByIds(template.getRepos()));
+		if (!desired.isNoUninstalls()) {
+			toErase = this.findDeletes(actual, desired);
 		} else {
 			toErase = new TreeSet<>(new PackageVersionComparator());
 		}
@@ -90,9 +123,9 @@ public class PackageStateChangeHandler {
 		
 		// Convert the lists of package versions to lists of RPM descriptions (RPM name, release, and version).
 		PackageStateChanges result = new PackageStateChanges(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
-		this.fillPackageDiff(result, PackageCommand.INSTALL, toInstall);
-		this.fillPackageDiff(result, PackageCommand.UPDATE, toUpdate);
-		this.fillPackageDiff(result, PackageCommand.ERASE, toErase);
+		this.fillPackageDiff(result, PackageCommand.INSTALL, toInstall, desired);
+		this.fillPackageDiff(result, PackageCommand.UPDATE, toUpdate, desired);
+		this.fillPackageDiff(result, PackageCommand.ERASE, toErase, desired);
 		return result;
 	}
 	
@@ -104,25 +137,22 @@ public class PackageStateChangeHandler {
 		return toInstall;
 	}
 	
-	private TreeSet<EPackageVersion> findDeletes(Collection<EPackageVersion> actual, List<EPackageVersion> nominal, List<ERepo> repos) {
+	private TreeSet<EPackageVersion> findDeletes(Collection<EPackageVersion> actual, DesiredState desired) {
 		TreeSet<EPackageVersion> toErase = new TreeSet<>(new PackageVersionComparator());
 		toErase.addAll(actual);
-		toErase.removeAll(nominal);
+		toErase.removeAll(desired.getNominal());
 		
 		// get rid of reserved packages on erase
 		Set<EPackageVersion> keep = new HashSet<>();
-		EServerOptions eServerOptions = this.serverOptionsDAO.get();
-		for (String pkg : eServerOptions.getDisallowUninstall()) {
-			for (EPackageVersion erase : toErase) {
-				if (erase.getPkgName().trim().equalsIgnoreCase(pkg.trim())) {
-					keep.add(erase);
-					break;
-				}
+		Set<String> reserved = new HashSet<>();
+		for (EPackageVersion erase : toErase) {
+			if (desired.isUninstallDisallowed(erase.getPkgName()) && reserved.add(erase.getPkgName())) {
+				keep.add(erase);
 			}
 		}
 		//keep packages from an repository not provided in the template
 		for (EPackageVersion erase : toErase) {
-			if (erase.getRepos().stream().noneMatch(r -> repos.stream().anyMatch(ir -> ir.getId().equals(r)))) {
+			if (erase.getRepos().stream().noneMatch(desired::usesRepo)) {
 				keep.add(erase);
 			}
 		}
@@ -145,9 +175,13 @@ public class PackageStateChangeHandler {
 		return toUpdate;
 	}
 	
-	private void fillPackageDiff(PackageStateChanges changes, PackageCommand command, Collection<EPackageVersion> packageVersions) {
+	private void fillPackageDiff(PackageStateChanges changes, PackageCommand command, Collection<EPackageVersion> packageVersions, DesiredState desired) {
 		for (EPackageVersion pv : packageVersions) {
-			PackageVersion apiPV = pv.toApi(this.repoDAO, this.dependencyDAO);
+			// versions of the template are converted once per snapshot, only erased ones need to be converted here
+			PackageVersion apiPV = desired.getApiVersion(pv.getId());
+			if (apiPV == null) {
+				apiPV = pv.toApi(this.repoDAO, this.dependencyDAO);
+			}
 			switch (command) {
 				case INSTALL:
 					changes.getToInstall().add(apiPV);
@@ -162,4 +196,27 @@ public class PackageStateChangeHandler {
 		}
 	}
 	
+	
+	private static final class CachedDiff {
+		
+		private final String digest;
+		private final DesiredState desired;
+		private final PackageStateChanges changes;
+		
+		
+		CachedDiff(String digest, DesiredState desired, PackageStateChanges changes) {
+			this.digest = digest;
+			this.desired = desired;
+			this.changes = changes;
+		}
+		
+		boolean matches(String currentDigest, DesiredState currentDesired) {
+			// desired states are replaced on every change, so identity is sufficient
+			return this.digest.equals(currentDigest) && (this.desired == currentDesired);
+		}
+		
+		PackageStateChanges copy() {
+			return new PackageStateChanges(new ArrayList<>(this.changes.getToInstall()), new ArrayList<>(this.changes.getToUpdate()), new ArrayList<>(this.changes.getToErase()));
+		}
+	}
 }
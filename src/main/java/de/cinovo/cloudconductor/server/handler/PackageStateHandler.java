@@ -9,14 +9,21 @@ import de.cinovo.cloudconductor.server.model.EPackage;
 import de.cinovo.cloudconductor.server.model.EPackageState;
 import de.cinovo.cloudconductor.server.model.EPackageVersion;
 import de.cinovo.cloudconductor.server.model.ERepo;
-import de.cinovo.cloudconductor.server.util.comparators.VersionStringComparator;
+import de.cinovo.cloudconductor.server.util.PackageIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Copyright 2017 Cinovo AG<br>
@@ -26,114 +33,126 @@ import java.util.List;
  */
 @Service
 public class PackageStateHandler {
-	
+
 	private final Logger logger = LoggerFactory.getLogger(PackageStateHandler.class);
-	
+
 	@Autowired
 	private IPackageVersionDAO versionDAO;
-	
+
 	@Autowired
 	private IPackageStateDAO packageStateDAO;
-	
+
 	@Autowired
 	private IRepoDAO repoDAO;
-	
-	
+
+	@Autowired
+	private PackageIndex packageIndex;
+
+
 	/**
-	 * @param host         the host which package state should be updated
-	 * @param installedPV  the package version to be updated to
-	 * @param leftPackages the remaining packages
-	 * @return the updated package state or null if no package state was found
+	 * Reconciles the package states of a host with the package versions reported by its agent. The number of queries does not
+	 * depend on the number of installed packages: the states of the host are loaded once, all reported versions are resolved
+	 * with a single query, missing states are inserted as one batch and outdated states are removed with one statement.
+	 * Installed packages which are unknown to the server are ignored.
+	 *
+	 * @param host        the host which package states should be updated
+	 * @param installedPVs the package versions installed on the host
 	 */
-	public EPackageState updateExistingState(EHost host, PackageVersion installedPV, Collection<EPackageState> leftPackages) {
-		VersionStringComparator vsc = new VersionStringComparator();
-		List<EPackageState> pkgStatesByHost = this.packageStateDAO.findByHost(host.getId());
-		for (EPackageState packageState : pkgStatesByHost) {
-			if (packageState.getPkgName().equals(installedPV.getName())) {
-				int comp = vsc.compare(packageState.getPkgName(), installedPV.getVersion());
-				if (comp == 0) {
-					break;
+	public void updatePackageStates(EHost host, Collection<PackageVersion> installedPVs) {
+		Map<String, EPackageState> leftStates = new HashMap<>();
+		List<Long> toDelete = new ArrayList<>();
+		for (EPackageState state : this.packageStateDAO.findByHost(host.getId())) {
+			if (leftStates.putIfAbsent(PackageStateHandler.key(state.getPkgName(), state.getVersion()), state) != null) {
+				// duplicate state for the same package version
+				toDelete.add(state.getId());
+			}
+		}
+
+		Map<String, PackageVersion> missing = new LinkedHashMap<>();
+		Map<String, EPackage> packages = new HashMap<>();
+		if (installedPVs != null) {
+			Map<String, EPackage> knownPackages = this.packageIndex.findByNames(installedPVs.stream().map(PackageVersion::getName).collect(Collectors.toSet()));
+			for (PackageVersion installedPV : installedPVs) {
+				EPackage knownPackage = knownPackages.get(installedPV.getName());
+				if (knownPackage == null) {
+					continue;
 				}
-				
-				// check whether this version of the package already exists
-				EPackageVersion pkgVersion = this.versionDAO.find(installedPV.getName(), installedPV.getVersion());
-				if (pkgVersion == null) {
-					// otherwise create it
-					pkgVersion = new EPackageVersion();
-					pkgVersion.setPkgId(packageState.getPkgId());
-					pkgVersion.setPkgName(packageState.getPkgName());
-					pkgVersion.setVersion(installedPV.getVersion());
-					for (String repoName : installedPV.getRepos()) {
-						ERepo repo = this.repoDAO.findByName(repoName);
-						if (repo != null) {
-							pkgVersion.getRepos().add(repo.getId());
-						}
-					}
-					pkgVersion = this.versionDAO.save(pkgVersion);
+				String key = PackageStateHandler.key(installedPV.getName(), installedPV.getVersion());
+				if ((leftStates.remove(key) == null) && !missing.containsKey(key)) {
+					missing.put(key, installedPV);
+					packages.put(knownPackage.getName(), knownPackage);
 				}
-				
-				leftPackages.remove(packageState);
-				
-				// update package state and save it
-				packageState.setPkgId(pkgVersion.getPkgId());
-				packageState.setPkgName(pkgVersion.getPkgName());
-				packageState.setVersionId(pkgVersion.getId());
-				packageState.setVersion(pkgVersion.getName());
-				return this.packageStateDAO.save(packageState);
 			}
 		}
-		return null;
+
+		List<EPackageState> toInsert = new ArrayList<>();
+		if (!missing.isEmpty()) {
+			Map<String, EPackageVersion> versions = this.findOrCreateVersions(missing, packages);
+			for (String key : missing.keySet()) {
+				toInsert.add(new EPackageState(versions.get(key), host));
+			}
+		}
+		leftStates.values().stream().map(EPackageState::getId).forEach(toDelete::add);
+
+		this.packageStateDAO.deleteByIds(toDelete);
+		this.packageStateDAO.insertBatch(toInsert);
+		this.logger.debug("Updated package states of host '{}': {} added, {} removed", host.getName(), toInsert.size(), toDelete.size());
 	}
-	
-	/**
-	 * @param host        the host for which a new package state should be created
-	 * @param installedPV the package version which is installed on the host
-	 * @param pkg         the package
-	 * @return the new package state
-	 */
-	public EPackageState createMissingState(EHost host, PackageVersion installedPV, EPackage pkg) {
-		
-		// first check whether this package version does already exist
-		EPackageVersion pkgVersion = this.versionDAO.find(installedPV.getName(), installedPV.getVersion());
-		
-		if (pkgVersion == null) {
-			// otherwise create it
-			pkgVersion = new EPackageVersion();
+
+	private Map<String, EPackageVersion> findOrCreateVersions(Map<String, PackageVersion> requested, Map<String, EPackage> packages) {
+		Set<String> names = new HashSet<>();
+		Set<String> versions = new HashSet<>();
+		for (PackageVersion pv : requested.values()) {
+			names.add(pv.getName());
+			versions.add(pv.getVersion());
+		}
+
+		Map<String, EPackageVersion> result = new HashMap<>();
+		for (EPackageVersion existing : this.versionDAO.find(names, versions)) {
+			String key = PackageStateHandler.key(existing.getPkgName(), existing.getVersion());
+			if (requested.containsKey(key)) {
+				result.put(key, existing);
+			}
+		}
+		if (result.size() == requested.size()) {
+			return result;
+		}
+
+		// the host runs versions not provided by any repo, so create them
+		Set<String> repoNames = requested.entrySet().stream() //
+				.filter(e -> !result.containsKey(e.getKey()) && (e.getValue().getRepos() != null)) //
+				.flatMap(e -> e.getValue().getRepos().stream()) //
+				.collect(Collectors.toSet());
+		Map<String, Long> repoIds = new HashMap<>();
+		if (!repoNames.isEmpty()) {
+			for (ERepo repo : this.repoDAO.findByNames(repoNames)) {
+				repoIds.put(repo.getName(), repo.getId());
+			}
+		}
+		for (Map.Entry<String, PackageVersion> entry : requested.entrySet()) {
+			if (result.containsKey(entry.getKey())) {
+				continue;
+			}
+			PackageVersion installedPV = entry.getValue();
+			EPackage pkg = packages.get(installedPV.getName());
+			EPackageVersion pkgVersion = new EPackageVersion();
 			pkgVersion.setPkgId(pkg.getId());
 			pkgVersion.setPkgName(pkg.getName());
 			pkgVersion.setVersion(installedPV.getVersion());
-			for (String repoName : installedPV.getRepos()) {
-				ERepo repo = this.repoDAO.findByName(repoName);
-				if (repo != null) {
-					pkgVersion.getRepos().add(repo.getId());
+			if (installedPV.getRepos() != null) {
+				for (String repoName : installedPV.getRepos()) {
+					Long repoId = repoIds.get(repoName);
+					if (repoId != null) {
+						pkgVersion.getRepos().add(repoId);
+					}
 				}
 			}
-			pkgVersion = this.versionDAO.save(pkgVersion);
+			result.put(entry.getKey(), this.versionDAO.save(pkgVersion));
 		}
-		
-		// create new package state and save it
-		EPackageState newPackageState = new EPackageState();
-		newPackageState.setHostId(host.getId());
-		newPackageState.setPkgId(pkgVersion.getPkgId());
-		newPackageState.setPkgName(pkgVersion.getPkgName());
-		newPackageState.setVersionId(pkgVersion.getId());
-		newPackageState.setVersion(pkgVersion.getName());
-		newPackageState = this.packageStateDAO.save(newPackageState);
-		
-		return newPackageState;
+		return result;
 	}
-	
-	/**
-	 * @param host          the host from which package states should be removed
-	 * @param packageStates set of package states to be removed
-	 */
-	void removePackageState(EHost host, Collection<EPackageState> packageStates) {
-		List<EPackageState> statesByHost = this.packageStateDAO.findByHost(host.getId());
-		for (EPackageState pkgState : packageStates) {
-			if (statesByHost.contains(pkgState)) {
-				this.packageStateDAO.delete(pkgState);
-				statesByHost.remove(pkgState);
-			}
-		}
+
+	private static String key(String pkgName, String version) {
+		return pkgName + '\u0000' + version;
 	}
 }
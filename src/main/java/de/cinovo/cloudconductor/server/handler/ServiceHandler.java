@@ -14,6 +14,7 @@ import de.cinovo.cloudconductor.server.model.EService;
 import de.cinovo.cloudconductor.server.model.EServiceDefaultState;
 import de.cinovo.cloudconductor.server.model.EServiceState;
 import de.cinovo.cloudconductor.server.model.ETemplate;
+import de.cinovo.cloudconductor.server.util.FileManifestCache;
 import de.taimos.restutils.RESTAssert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,8 +22,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.ws.rs.WebApplicationException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -50,6 +53,8 @@ public class ServiceHandler {
 	private IServiceStateDAO serviceStateDAO;
 	@Autowired
 	private IServiceDefaultStateDAO serviceDefaultStateDAO;
+	@Autowired
+	private FileManifestCache fileManifestCache;
 	
 	/**
 	 * @param s the data
@@ -72,9 +77,19 @@ public class ServiceHandler {
 	public EService updateEntity(EService es, Service s) throws WebApplicationException {
 		this.fillFields(es, s);
 		RESTAssert.assertNotNull(es);
+		// the manifests list the services depending on the files by name
+		this.fileManifestCache.invalidateAll();
 		return this.serviceDAO.save(es);
 	}
 	
+	/**
+	 * @param name the name of the service to delete
+	 */
+	public void deleteEntity(String name) {
+		this.serviceDAO.deleteByName(name);
+		this.fileManifestCache.invalidateAll();
+	}
+	
 	private void fillFields(EService es, Service s) {
 		es.setName(s.getName());
 		es.setDescription(s.getDescription());
@@ -87,57 +102,54 @@ public class ServiceHandler {
 	}
 	
 	/**
-	 * @param template the template
-	 * @param host     the host
-	 * @return true if there are services missing, false otherwise
+	 * Makes sure the host has exactly one service state for each service of its template. Unused and duplicate states are
+	 * removed, missing states are created with the default state configured for the template.
+	 *
+	 * @param template         the template
+	 * @param host             the host
+	 * @param templateServices the services of the template by id
+	 * @return the service states of the host
 	 */
-	public boolean assertHostServices(ETemplate template, EHost host) {
-		// first find out which services are needed
-		Set<EService> templateServices = new HashSet<>(this.findByTemplate(template));
+	public List<EServiceState> assertHostServices(ETemplate template, EHost host, Map<Long, EService> templateServices) {
 		ServiceHandler.LOGGER.debug("Found " + templateServices.size() + " services for template '" + template.getName() + "' on  host '" + host.getName() + "'");
 		
-		Set<EService> missingServices = new HashSet<>(templateServices);
-		List<EServiceState> ssForHost = this.serviceStateDAO.findByHost(host.getId());
-		Set<EServiceState> nonUsedServiceStates = new HashSet<>(ssForHost);
-		for (EServiceState state : ssForHost) {
-			for (EService service : templateServices) {
-				if (service.getId().equals(state.getServiceId())) {
-					missingServices.remove(service);
-					for (EServiceState ss : nonUsedServiceStates) {
-						if (ss.getServiceId().equals(service.getId())) {
-							nonUsedServiceStates.remove(ss);
-							break;
-						}
-					}
-					break;
-				}
+		Map<Long, EServiceState> states = new LinkedHashMap<>();
+		List<EServiceState> nonUsedServiceStates = new ArrayList<>();
+		for (EServiceState state : this.serviceStateDAO.findByHost(host.getId())) {
+			if (!templateServices.containsKey(state.getServiceId()) || (states.putIfAbsent(state.getServiceId(), state) != null)) {
+				nonUsedServiceStates.add(state);
 			}
 		}
 		
+		List<EService> missingServices = templateServices.values().stream().filter(s -> !states.containsKey(s.getId())).collect(Collectors.toList());
 		ServiceHandler.LOGGER.debug(missingServices.size() + " services missing and " + nonUsedServiceStates.size() + " unused.");
 		
-		boolean changes = false;
 		// add new service states
-		for (EService service : missingServices) {
-			EServiceState state = new EServiceState();
-			state.setServiceId(service.getId());
-			state.setServiceName(service.getName());
-			state.setHostId(host.getId());
-			
-			EServiceDefaultState dss = this.serviceDefaultStateDAO.findByServiceAndTemplate(service.getId(), template.getId());
-			if ((dss != null)) {
-				state.setState(dss.getState());
+		if (!missingServices.isEmpty()) {
+			Map<Long, EServiceDefaultState> defaultStates = new HashMap<>();
+			for (EServiceDefaultState dss : this.serviceDefaultStateDAO.findByTemplate(template.getId())) {
+				defaultStates.put(dss.getServiceId(), dss);
+			}
+			for (EService service : missingServices) {
+				EServiceState state = new EServiceState();
+				state.setServiceId(service.getId());
+				state.setServiceName(service.getName());
+				state.setHostId(host.getId());
+				
+				EServiceDefaultState dss = defaultStates.get(service.getId());
+				if ((dss != null)) {
+					state.setState(dss.getState());
+				}
+				
+				states.put(service.getId(), this.serviceStateDAO.save(state));
 			}
-			
-			this.serviceStateDAO.save(state);
-			changes = true;
 		}
 		
 		// clean up old no more used service states
 		for (EServiceState ss : nonUsedServiceStates) {
 			this.serviceStateDAO.delete(ss);
 		}
-		return changes;
+		return new ArrayList<>(states.values());
 	}
 	
 	/**
@@ -145,12 +157,8 @@ public class ServiceHandler {
 	 * @return services of template
 	 */
 	public Set<EService> findByTemplate(ETemplate template) {
-		List<EPackageVersion> pkvs = this.packageVersionDAO.findByIds(template.getPackageVersions());
-		Set<EService> result = new HashSet<>();
-		for (EPackageVersion pkv : pkvs) {
-			result.addAll( this.serviceDAO.findByPackage(pkv.getPkgId()));
-		}
-		return result;
+		Set<Long> pkgIds = this.packageVersionDAO.findByIds(template.getPackageVersions()).stream().map(EPackageVersion::getPkgId).collect(Collectors.toSet());
+		return new HashSet<>(this.serviceDAO.findByPackages(pkgIds));
 	}
 	
 	/**
@@ -2,14 +2,9 @@ package de.cinovo.cloudconductor.server.handler;
 
 import de.cinovo.cloudconductor.api.enums.ServiceState;
 import de.cinovo.cloudconductor.api.model.ServiceStatesChanges;
-import de.cinovo.cloudconductor.server.dao.IHostDAO;
-import de.cinovo.cloudconductor.server.dao.IServiceDAO;
 import de.cinovo.cloudconductor.server.dao.IServiceStateDAO;
-import de.cinovo.cloudconductor.server.model.EHost;
 import de.cinovo.cloudconductor.server.model.EService;
 import de.cinovo.cloudconductor.server.model.EServiceState;
-import de.cinovo.cloudconductor.server.websockets.model.WSChangeEvent.ChangeType;
-import de.cinovo.cloudconductor.server.ws.host.HostDetailWSHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -24,84 +19,73 @@ public class ServiceStateHandler {
 	
 	@Autowired
 	private IServiceStateDAO serviceStateDAO;
-	@Autowired
-	private HostDetailWSHandler hostDetailWsHandler;
-	@Autowired
-	private IServiceDAO serviceDao;
-	@Autowired
-	private IHostDAO hostDAO;
+	
 	
 	/**
 	 * @param serviceState the service state
+	 * @param service      the service of the state
 	 * @param stateChanges the stateChanges
-	 * @return the changed service state
+	 * @return true if the service is now started and the user interface has to be informed
 	 */
-	public EServiceState handleStartedService(EServiceState serviceState, ServiceStatesChanges stateChanges) {
-		EService service;
+	public boolean handleStartedService(EServiceState serviceState, EService service, ServiceStatesChanges stateChanges) {
 		switch (serviceState.getState()) {
 			case RESTARTING_STARTING:
 			case STARTING:
 				serviceState.nextState();
-				EServiceState save = this.serviceStateDAO.save(serviceState);
+				this.serviceStateDAO.save(serviceState);
 				// service is now started, inform user interface via WS
-				EHost host = this.hostDAO.findById(save.getHostId());
-				this.hostDetailWsHandler.broadcastChange(host, ChangeType.UPDATED);
-				return save;
+				return true;
 			case STOPPING:
-				service = this.serviceDao.findById(serviceState.getServiceId());
 				stateChanges.getToStop().add(service.getInitScript());
 				break;
 			case RESTARTING_STOPPING:
 				serviceState.nextState();
-				service = this.serviceDao.findById(serviceState.getServiceId());
 				stateChanges.getToRestart().add(service.getInitScript());
-				return this.serviceStateDAO.save(serviceState);
+				this.serviceStateDAO.save(serviceState);
+				break;
 			case STOPPED:
 				serviceState.setState(ServiceState.STOPPING);
-				service = this.serviceDao.findById(serviceState.getServiceId());
 				stateChanges.getToStop().add(service.getInitScript());
-				return this.serviceStateDAO.save(serviceState);
+				this.serviceStateDAO.save(serviceState);
+				break;
 			default:
 				break;
 		}
-		return serviceState;
+		return false;
 	}
 	
 	/**
 	 * @param serviceState the service state
+	 * @param service      the service of the state
 	 * @param stateChanges the stateChanges
+	 * @return true if the service is now stopped and the user interface has to be informed
 	 */
-	public void handleStoppedService(EServiceState serviceState, ServiceStatesChanges stateChanges) {
-		EService service;
+	public boolean handleStoppedService(EServiceState serviceState, EService service, ServiceStatesChanges stateChanges) {
 		switch (serviceState.getState()) {
 			case STARTING:
 			case RESTARTING_STARTING:
-				service = this.serviceDao.findById(serviceState.getServiceId());
 				stateChanges.getToStart().add(service.getInitScript());
 				break;
 			case RESTARTING_STOPPING:
 				serviceState.nextState();
-				service = this.serviceDao.findById(serviceState.getServiceId());
 				stateChanges.getToStart().add(service.getInitScript());
 				this.serviceStateDAO.save(serviceState);
-				return;
+				break;
 			case STOPPED:
 			case STOPPING:
 				serviceState.nextState();
-				EServiceState save = this.serviceStateDAO.save(serviceState);
+				this.serviceStateDAO.save(serviceState);
 				// service is now stopped, inform user interface via WS
-				EHost host = this.hostDAO.findById(save.getHostId());
-				this.hostDetailWsHandler.broadcastChange(host, ChangeType.UPDATED);
-				return;
+				return true;
 			case STARTED:
-				service = this.serviceDao.findById(serviceState.getServiceId());
 				stateChanges.getToStart().add(service.getInitScript());
 				serviceState.setState(ServiceState.STARTING);
 				this.serviceStateDAO.save(serviceState);
-				return;
+				break;
 			default:
 				break;
 		}
+		return false;
 	}
 	
 }
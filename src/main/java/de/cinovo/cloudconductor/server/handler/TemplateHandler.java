@@ -14,6 +14,8 @@ import de.cinovo.cloudconductor.server.model.EHost;
 import de.cinovo.cloudconductor.server.model.EPackageVersion;
 import de.cinovo.cloudconductor.server.model.ERepo;
 import de.cinovo.cloudconductor.server.model.ETemplate;
+import de.cinovo.cloudconductor.server.util.DesiredStateCache;
+import de.cinovo.cloudconductor.server.util.FileManifestCache;
 import de.cinovo.cloudconductor.server.util.GenericModelApiConverter;
 import de.cinovo.cloudconductor.server.websockets.model.WSChangeEvent.ChangeType;
 import de.cinovo.cloudconductor.server.ws.host.HostDetailWSHandler;
@@ -30,6 +32,7 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -60,6 +63,10 @@ public class TemplateHandler {
 	
 	@Autowired
 	private PackageHandler packageHandler;
+	@Autowired
+	private DesiredStateCache desiredStateCache;
+	@Autowired
+	private FileManifestCache fileManifestCache;
 	
 	@Autowired
 	private TemplateDetailWSHandler templateDetailWSHandler;
@@ -85,8 +92,11 @@ public class TemplateHandler {
 	 * @throws WebApplicationException on error
 	 */
 	public ETemplate updateEntity(ETemplate et, Template t) throws WebApplicationException {
+		String name = et.getName();
 		this.fillFields(et, t);
 		RESTAssert.assertNotNull(et);
+		this.desiredStateCache.invalidate(et.getId());
+		this.fileManifestCache.invalidate(Collections.singletonList(name));
 		return this.templateDAO.save(et);
 	}
 	
@@ -157,6 +167,7 @@ public class TemplateHandler {
 		if (updatedPackage) {
 			template.setPackageVersions(list);
 			ETemplate updatedTemplate = this.templateDAO.save(template);
+			this.desiredStateCache.invalidate(updatedTemplate.getId());
 			List<EHost> affectedHosts = this.hostDAO.findHostsForTemplate(updatedTemplate.getId());
 			affectedHosts.forEach(host -> this.hostDetailWSHandler.broadcastChange(host, ChangeType.UPDATED));
 			return updatedTemplate;
@@ -195,6 +206,7 @@ public class TemplateHandler {
 			template.getPackageVersions().remove(entry.getKey().getId());
 			template.getPackageVersions().add(entry.getValue().getId());
 		}
+		this.desiredStateCache.invalidate(template.getId());
 		return template;
 	}
 	
@@ -219,6 +231,7 @@ public class TemplateHandler {
 			template.getPackageVersions().remove(currentPV.getId());
 			template.getPackageVersions().add(targetPV.getId());
 		}
+		this.desiredStateCache.invalidate(template.getId());
 		return template;
 	}
 	
@@ -239,6 +252,7 @@ public class TemplateHandler {
 		if (remove != null) {
 			template.getPackageVersions().remove(remove.getId());
 		}
+		this.desiredStateCache.invalidate(template.getId());
 		return template;
 	}
 	
@@ -331,6 +345,7 @@ public class TemplateHandler {
 		// replace pvs and save
 		template.getPackageVersions().clear();
 		template.getPackageVersions().addAll(newPVs);
+		this.desiredStateCache.invalidate(template.getId());
 		return this.templateDAO.save(template);
 	}
 	
@@ -27,6 +27,7 @@ import de.cinovo.cloudconductor.server.dao.IServiceStateDAO;
 import de.cinovo.cloudconductor.server.dao.ITemplateDAO;
 import de.cinovo.cloudconductor.server.util.GenericModelApiConverter;
 import de.taimos.dvalin.jpa.IEntity;
+import org.hibernate.annotations.DynamicUpdate;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -46,6 +47,7 @@ import java.util.Map;
  */
 @Entity
 @Table(name = "host", schema = "cloudconductor")
+@DynamicUpdate
 public class EHost implements IEntity<Long>, INamed {
 	
 	private static final long serialVersionUID = 1L;
@@ -60,6 +62,7 @@ public class EHost implements IEntity<Long>, INamed {
 	private boolean executedPkg = false;
 	private Long agentId;
 	private String uuid;
+	private String packageDigest;
 	
 	@Override
 	@Id
@@ -219,6 +222,21 @@ public class EHost implements IEntity<Long>, INamed {
 		this.uuid = uuid;
 	}
 	
+	/**
+	 * @return the digest of the package state last reported by the agent
+	 */
+	@Column(name = "packagedigest")
+	public String getPackageDigest() {
+		return this.packageDigest;
+	}
+	
+	/**
+	 * @param packageDigest the digest of the package state last reported by the agent
+	 */
+	public void setPackageDigest(String packageDigest) {
+		this.packageDigest = packageDigest;
+	}
+	
 	/**
 	 * @param serviceStateDAO the service state dao
 	 * @param agentDAO        the agent dao
@@ -23,6 +23,7 @@ import de.cinovo.cloudconductor.api.model.SimplePackageVersion;
 import de.cinovo.cloudconductor.server.dao.IDependencyDAO;
 import de.cinovo.cloudconductor.server.dao.IRepoDAO;
 import de.cinovo.cloudconductor.server.util.GenericModelApiConverter;
+import de.cinovo.cloudconductor.server.util.comparators.VersionKey;
 import de.taimos.dvalin.jpa.IEntity;
 
 import javax.persistence.CollectionTable;
@@ -34,6 +35,8 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 import javax.persistence.Transient;
 import java.util.HashSet;
@@ -54,12 +57,19 @@ public class EPackageVersion implements IEntity<Long>, INamed {
 	
 	private static final long serialVersionUID = 1L;
 	
+	/** the maximum length of a stored range part */
+	public static final int MAX_RANGE_PART = 64;
+	
 	private Long id;
 	private Long pkgId;
 	private String pkgName;
 	private String version;
 	private Set<Long> dependencies = new HashSet<>();
 	private Set<Long> repos = new HashSet<>();
+	private String versionMajor;
+	private String versionMinor;
+	private String versionPatch;
+	private byte[] sortKey;
 	
 	
 	@Override
@@ -196,6 +206,92 @@ public class EPackageVersion implements IEntity<Long>, INamed {
 		this.repos = repos;
 	}
 	
+	/**
+	 * @return the major part of the version matched by update ranges
+	 */
+	@Column(name = "vmajor")
+	public String getVersionMajor() {
+		return this.versionMajor;
+	}
+	
+	/**
+	 * @param versionMajor the major part to set
+	 */
+	public void setVersionMajor(String versionMajor) {
+		this.versionMajor = versionMajor;
+	}
+	
+	/**
+	 * @return the minor part of the version matched by update ranges
+	 */
+	@Column(name = "vminor")
+	public String getVersionMinor() {
+		return this.versionMinor;
+	}
+	
+	/**
+	 * @param versionMinor the minor part to set
+	 */
+	public void setVersionMinor(String versionMinor) {
+		this.versionMinor = versionMinor;
+	}
+	
+	/**
+	 * @return the patch part of the version matched by update ranges
+	 */
+	@Column(name = "vpatch")
+	public String getVersionPatch() {
+		return this.versionPatch;
+	}
+	
+	/**
+	 * @param versionPatch the patch part to set
+	 */
+	public void setVersionPatch(String versionPatch) {
+		this.versionPatch = versionPatch;
+	}
+	
+	/**
+	 * @return the key to sort the versions of a package by, see {@link VersionKey#getSortKey()}
+	 */
+	@Column(name = "sortkey")
+	public byte[] getSortKey() {
+		return this.sortKey;
+	}
+	
+	/**
+	 * @param sortKey the sort key to set
+	 */
+	public void setSortKey(byte[] sortKey) {
+		this.sortKey = sortKey;
+	}
+	
+	/**
+	 * Derives the range parts and the sort key from the version.
+	 */
+	@PrePersist
+	@PreUpdate
+	public void updateVersionKey() {
+		if (this.version == null) {
+			return;
+		}
+		VersionKey key = VersionKey.of(this.version);
+		this.versionMajor = EPackageVersion.rangePart(key, 0);
+		this.versionMinor = EPackageVersion.rangePart(key, 1);
+		this.versionPatch = EPackageVersion.rangePart(key, 2);
+		this.sortKey = key.getSortKey();
+	}
+	
+	/**
+	 * @param key   the version key
+	 * @param index the index of the part
+	 * @return the range part or null if there is none or it is too long to be stored
+	 */
+	public static String rangePart(VersionKey key, int index) {
+		String part = key.getRangePart(index);
+		return ((part == null) || (part.length() > EPackageVersion.MAX_RANGE_PART)) ? null : part;
+	}
+	
 	
 	/**
 	 * @param repoDAO       repo dao
@@ -0,0 +1,53 @@
+package de.cinovo.cloudconductor.server.model;
+
+import de.cinovo.cloudconductor.api.model.SimpleHost;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Simple host with the id of the host, used as position of the host when the hosts are listed page by page. Unlike the
+ * uuid the id is unique and never null.
+ *
+ * @author mweise
+ */
+public class PagedSimpleHost extends SimpleHost {
+
+	private Long id;
+
+
+	/**
+	 * @param id               the id of the host
+	 * @param name             the name of the host
+	 * @param agent            the name of the agent
+	 * @param uuid             the uuid of the host
+	 * @param template         the name of the template
+	 * @param lastSeen         the last seen timestamp
+	 * @param numberOfServices the number of service states
+	 * @param numberOfPackages the number of package states
+	 */
+	public PagedSimpleHost(Long id, String name, String agent, String uuid, String template, Long lastSeen, Long numberOfServices, Long numberOfPackages) {
+		super(name, agent, uuid, template, lastSeen, numberOfServices, numberOfPackages);
+		this.id = id;
+	}
+
+	/**
+	 * @return the id of the host
+	 */
+	public Long getId() {
+		return this.id;
+	}
+
+	/**
+	 * @param id the id of the host
+	 */
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	/**
+	 * @return the host without its id
+	 */
+	public SimpleHost toSimpleHost() {
+		return new SimpleHost(this.getName(), this.getAgent(), this.getUuid(), this.getTemplate(), this.getLastSeen(), this.getNumberOfServices(), this.getNumberOfPackages());
+	}
+}
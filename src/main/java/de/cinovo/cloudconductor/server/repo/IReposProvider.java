@@ -3,9 +3,13 @@ package de.cinovo.cloudconductor.server.repo;
 import de.cinovo.cloudconductor.api.MediaType;
 
 import javax.ws.rs.GET;
+import javax.ws.rs.HEAD;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
 /**
@@ -19,13 +23,27 @@ import javax.ws.rs.core.Response;
 public interface IReposProvider {
 	
 	/**
-	 * @param repo the repo name
-	 * @param file the filename
+	 * @param repo    the repo name
+	 * @param file    the filename
+	 * @param range   the requested byte range
+	 * @param ifRange the entity tag or date the range is valid for
+	 * @param request the request to evaluate the preconditions
 	 * @return the response
 	 */
 	@Path("/{repo}/{file:.*}")
 	@GET
 	@Produces({MediaType.TEXT_HTML, javax.ws.rs.core.MediaType.APPLICATION_OCTET_STREAM})
-	Response get(@PathParam("repo") String repo, @PathParam("file") String file);
+	Response get(@PathParam("repo") String repo, @PathParam("file") String file, @HeaderParam("Range") String range, @HeaderParam("If-Range") String ifRange, @Context Request request);
+	
+	/**
+	 * @param repo    the repo name
+	 * @param file    the filename
+	 * @param request the request to evaluate the preconditions
+	 * @return the response without content
+	 */
+	@Path("/{repo}/{file:.*}")
+	@HEAD
+	@Produces({MediaType.TEXT_HTML, javax.ws.rs.core.MediaType.APPLICATION_OCTET_STREAM})
+	Response head(@PathParam("repo") String repo, @PathParam("file") String file, @Context Request request);
 	
 }
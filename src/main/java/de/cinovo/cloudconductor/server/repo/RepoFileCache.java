@@ -0,0 +1,350 @@
+package de.cinovo.cloudconductor.server.repo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Disk cache of the files served by the repo proxy. Files are stored under a key derived from the checksum and size of
+ * their {@link RepoEntry}, so a changed file gets a new key and identical files of different repos are stored once. The
+ * least recently used files are evicted if the cache grows beyond its maximum size.<br>
+ * <br>
+ * A file is added while it is streamed to the first client and only kept if its size and, where the checksum is an MD5
+ * hash, its content match the entry. The cache is disabled unless <code>repo.cache.dir</code> is set.
+ *
+ * @author mweise
+ */
+@Component
+public class RepoFileCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RepoFileCache.class);
+
+	private static final String TMP_SUFFIX = ".tmp";
+	private static final Pattern MD5_HEX = Pattern.compile("[0-9a-fA-F]{1,32}");
+	private static final Pattern MD5_BASE64 = Pattern.compile("[A-Za-z0-9+/]{22}==");
+
+	@Value("${repo.cache.dir:}")
+	private String cacheDir;
+	@Value("${repo.cache.maxSize:1024}")
+	private long maxSizeMB;
+
+	private File dir;
+	private long maxSize;
+	// access ordered, the first file is the least recently used one
+	private final Map<String, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+	private long size;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong bytesServed = new AtomicLong();
+
+
+	/**
+	 * Creates the cache directory and registers the files cached before.
+	 */
+	@PostConstruct
+	public void init() {
+		if ((this.cacheDir == null) || this.cacheDir.trim().isEmpty()) {
+			return;
+		}
+		File folder = new File(this.cacheDir.trim());
+		if (!folder.isDirectory() && !folder.mkdirs()) {
+			RepoFileCache.LOGGER.error("Failed to create the repo cache directory {}, the cache is disabled", folder);
+			return;
+		}
+		this.maxSize = this.maxSizeMB * 1024 * 1024;
+		File[] existing = folder.listFiles(File::isFile);
+		if (existing != null) {
+			Arrays.sort(existing, Comparator.comparingLong(File::lastModified));
+			for (File file : existing) {
+				if (file.getName().endsWith(RepoFileCache.TMP_SUFFIX)) {
+					RepoFileCache.delete(file);
+				} else {
+					this.add(file.getName(), file.length());
+				}
+			}
+		}
+		this.dir = folder;
+		this.evict();
+		RepoFileCache.LOGGER.info("Repo files are cached in {} using up to {} MB, {} files cached", folder, this.maxSizeMB, this.files.size());
+	}
+
+	/**
+	 * @return true if the cache is enabled
+	 */
+	public boolean isEnabled() {
+		return this.dir != null;
+	}
+
+	/**
+	 * @param entry the entry to find
+	 * @return channel of the cached file or null if the entry is not cached
+	 */
+	public FileChannel get(RepoEntry entry) {
+		String key = RepoFileCache.key(entry);
+		if ((key == null) || !this.isEnabled()) {
+			return null;
+		}
+		synchronized (this) {
+			// get instead of containsKey, only get moves the file to the end of the access order
+			if (this.files.get(key) == null) {
+				this.misses.incrementAndGet();
+				return null;
+			}
+		}
+		try {
+			FileChannel channel = FileChannel.open(new File(this.dir, key).toPath(), StandardOpenOption.READ);
+			this.hits.incrementAndGet();
+			return channel;
+		} catch (IOException e) {
+			// evicted in the meantime
+			this.remove(key);
+			this.misses.incrementAndGet();
+			return null;
+		}
+	}
+
+	/**
+	 * @param entry  the entry of the stream
+	 * @param stream the stream of the provider
+	 * @return stream writing the file to the cache while it is read or the given stream if the entry can not be cached
+	 */
+	public InputStream put(RepoEntry entry, InputStream stream) {
+		String key = RepoFileCache.key(entry);
+		if ((key == null) || (stream == null) || !this.isEnabled() || (entry.getSize() > this.maxSize)) {
+			return stream;
+		}
+		try {
+			File tmp = File.createTempFile(key, RepoFileCache.TMP_SUFFIX, this.dir);
+			return new CachingInputStream(stream, entry, key, tmp);
+		} catch (IOException e) {
+			RepoFileCache.LOGGER.warn("Failed to create a file in the repo cache", e);
+			return stream;
+		}
+	}
+
+	/**
+	 * @param bytes the number of bytes served by the repo proxy
+	 */
+	public void served(long bytes) {
+		this.bytesServed.addAndGet(bytes);
+	}
+
+	/**
+	 * @return the number of requests served from the cache
+	 */
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	/**
+	 * @return the number of requests not found in the cache
+	 */
+	public long getMisses() {
+		return this.misses.get();
+	}
+
+	/**
+	 * @return the number of bytes served by the repo proxy
+	 */
+	public long getBytesServed() {
+		return this.bytesServed.get();
+	}
+
+	/**
+	 * @return the size of the cached files in bytes
+	 */
+	public synchronized long getSize() {
+		return this.size;
+	}
+
+	private synchronized void add(String key, long length) {
+		Long old = this.files.put(key, length);
+		this.size += length - ((old == null) ? 0 : old);
+	}
+
+	private synchronized void remove(String key) {
+		Long old = this.files.remove(key);
+		if (old != null) {
+			this.size -= old;
+		}
+	}
+
+	private synchronized void evict() {
+		Iterator<Map.Entry<String, Long>> it = this.files.entrySet().iterator();
+		while ((this.size > this.maxSize) && it.hasNext()) {
+			Map.Entry<String, Long> eldest = it.next();
+			it.remove();
+			this.size -= eldest.getValue();
+			RepoFileCache.delete(new File(this.dir, eldest.getKey()));
+		}
+	}
+
+	private void store(String key, File tmp) {
+		try {
+			Files.move(tmp.toPath(), new File(this.dir, key).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			RepoFileCache.LOGGER.warn("Failed to store file in the repo cache", e);
+			RepoFileCache.delete(tmp);
+			return;
+		}
+		this.add(key, new File(this.dir, key).length());
+		this.evict();
+	}
+
+	private static void delete(File file) {
+		if (!file.delete() && file.exists()) {
+			RepoFileCache.LOGGER.debug("Failed to delete {} from the repo cache", file);
+		}
+	}
+
+	private static String key(RepoEntry entry) {
+		if ((entry == null) || entry.isDirectory() || (entry.getChecksum() == null) || entry.getChecksum().isEmpty()) {
+			return null;
+		}
+		byte[] hash = RepoFileCache.digest("SHA-256").digest((entry.getChecksum() + '/' + entry.getSize()).getBytes(StandardCharsets.UTF_8));
+		return String.format("%064x", new BigInteger(1, hash));
+	}
+
+	private static MessageDigest digest(String algorithm) {
+		try {
+			return MessageDigest.getInstance(algorithm);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(algorithm + " is not supported", e);
+		}
+	}
+
+	/**
+	 * @param checksum the checksum of the entry
+	 * @param md5      the MD5 hash of the content
+	 * @return false if the checksum is an MD5 hash not matching the content
+	 */
+	private static boolean matches(String checksum, byte[] md5) {
+		String value = checksum.replace("\"", "");
+		if (RepoFileCache.MD5_HEX.matcher(value).matches()) {
+			return new BigInteger(value, 16).equals(new BigInteger(1, md5));
+		}
+		if (RepoFileCache.MD5_BASE64.matcher(value).matches()) {
+			return value.equals(Base64.getEncoder().encodeToString(md5));
+		}
+		// e.g. the ETag of a multipart upload, only the size can be checked
+		return true;
+	}
+
+
+	private final class CachingInputStream extends FilterInputStream {
+
+		private final RepoEntry entry;
+		private final String key;
+		private final File tmp;
+		private final MessageDigest md5 = RepoFileCache.digest("MD5");
+		private OutputStream out;
+		private long written;
+		private boolean complete;
+
+
+		CachingInputStream(InputStream in, RepoEntry entry, String key, File tmp) throws IOException {
+			super(in);
+			this.entry = entry;
+			this.key = key;
+			this.tmp = tmp;
+			this.out = new FileOutputStream(tmp);
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			int read = this.read(b, 0, 1);
+			return (read <= 0) ? -1 : (b[0] & 0xff);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read < 0) {
+				this.complete = true;
+			} else if ((read > 0) && (this.out != null)) {
+				try {
+					this.out.write(b, off, read);
+					this.md5.update(b, off, read);
+					this.written += read;
+				} catch (IOException e) {
+					// the client is still served, only the cache is skipped
+					RepoFileCache.LOGGER.warn("Failed to write file to the repo cache", e);
+					this.discard();
+				}
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			// skipped bytes are missing in the cache
+			this.discard();
+			return super.skip(n);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				if (this.out != null) {
+					this.out.close();
+					this.out = null;
+					boolean sizeMatches = (this.entry.getSize() <= 0) || (this.written == this.entry.getSize());
+					if (this.complete && sizeMatches && RepoFileCache.matches(this.entry.getChecksum(), this.md5.digest())) {
+						RepoFileCache.this.store(this.key, this.tmp);
+					} else {
+						RepoFileCache.LOGGER.debug("Discarded incomplete or invalid file {} from the repo cache", this.entry.getName());
+						RepoFileCache.delete(this.tmp);
+					}
+				}
+			}
+		}
+
+		private void discard() {
+			if (this.out != null) {
+				try {
+					this.out.close();
+				} catch (IOException e) {
+					// ignore
+				}
+				this.out = null;
+				RepoFileCache.delete(this.tmp);
+			}
+		}
+	}
+}
@@ -4,13 +4,27 @@ import de.cinovo.cloudconductor.server.handler.RepoHandler;
 import de.cinovo.cloudconductor.server.repo.provider.IRepoProvider;
 import de.taimos.dvalin.jaxrs.JaxRsComponent;
 import de.taimos.restutils.RESTAssert;
+import org.apache.http.client.utils.DateUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.StreamUtils;
 
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.StreamingOutput;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Copyright 2014 Hoegernet<br>
@@ -22,31 +36,234 @@ import java.io.InputStream;
 @JaxRsComponent
 public class ReposProviderImpl implements IReposProvider {
 
+	private static final Pattern BYTE_RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+	private static final long[] UNSATISFIABLE = new long[0];
+
 	@Autowired
 	private RepoHandler repoHandler;
+	@Autowired
+	private RepoFileCache repoFileCache;
+
+	@Override
+	public Response get(String repo, String file, String range, String ifRange, Request request) {
+		IRepoProvider provider = this.findProvider(repo, file);
+		RepoEntry entry = provider.getEntry(file);
+		RESTAssert.assertNotNull(entry, Response.Status.NOT_FOUND);
+
+		EntityTag etag = ReposProviderImpl.etag(entry);
+		ResponseBuilder notModified = this.evaluatePreconditions(request, entry, etag);
+		if (notModified != null) {
+			return notModified.build();
+		}
+
+		long[] byteRange = ReposProviderImpl.ifRangeMatches(ifRange, entry, etag) ? ReposProviderImpl.parseRange(range, entry.getSize()) : null;
+		if (byteRange == ReposProviderImpl.UNSATISFIABLE) {
+			return Response.status(Status.REQUESTED_RANGE_NOT_SATISFIABLE).header("Content-Range", "bytes */" + entry.getSize()).build();
+		}
+
+		// local files are served directly, they are neither cached nor counted as misses
+		FileChannel channel = ReposProviderImpl.open(provider.getEntryFile(file));
+		if (channel == null) {
+			channel = this.repoFileCache.get(entry);
+		}
+		if (channel != null) {
+			return this.resultChannel(channel, entry, etag, byteRange);
+		}
+		if (byteRange != null) {
+			// a partial download can not be added to the cache
+			return this.resultStream(provider.getEntryStream(file, byteRange[0], byteRange[1]), entry, etag, byteRange);
+		}
+		return this.resultStream(this.repoFileCache.put(entry, provider.getEntryStream(file)), entry, etag, null);
+	}
 
 	@Override
-	public Response get(String repo, String file) {
+	public Response head(String repo, String file, Request request) {
+		IRepoProvider provider = this.findProvider(repo, file);
+		RepoEntry entry = provider.getEntry(file);
+		RESTAssert.assertNotNull(entry, Response.Status.NOT_FOUND);
+
+		EntityTag etag = ReposProviderImpl.etag(entry);
+		ResponseBuilder notModified = this.evaluatePreconditions(request, entry, etag);
+		if (notModified != null) {
+			return notModified.build();
+		}
+		return this.headers(Response.ok(), entry, etag, null).build();
+	}
+
+	private IRepoProvider findProvider(String repo, String file) {
 		RESTAssert.assertNotEmpty(repo, Response.Status.NOT_FOUND);
 		RESTAssert.assertNotEmpty(file, Response.Status.NOT_FOUND);
 		RESTAssert.assertFalse(file.endsWith("/"), Status.NOT_FOUND);
 
 		IRepoProvider provider = this.repoHandler.findRepoProvider(repo);
 		RESTAssert.assertNotNull(provider, Response.Status.NOT_FOUND);
-		
-		RepoEntry entry = provider.getEntry(file);
-		RESTAssert.assertNotNull(entry, Response.Status.NOT_FOUND);
+		return provider;
+	}
+
+	private ResponseBuilder evaluatePreconditions(Request request, RepoEntry entry, EntityTag etag) {
+		if (request == null) {
+			return null;
+		}
+		if ((etag != null) && (entry.getModified() != null)) {
+			return request.evaluatePreconditions(entry.getModified(), etag);
+		}
+		if (etag != null) {
+			return request.evaluatePreconditions(etag);
+		}
+		if (entry.getModified() != null) {
+			return request.evaluatePreconditions(entry.getModified());
+		}
+		return null;
+	}
 
-		return this.resultStream(provider.getEntryStream(file), entry);
+	private Response resultChannel(final FileChannel channel, RepoEntry entry, EntityTag etag, long[] byteRange) {
+		StreamingOutput out = output -> {
+			try (FileChannel in = channel) {
+				long position = (byteRange == null) ? 0 : byteRange[0];
+				long end = (byteRange == null) ? in.size() : (byteRange[1] + 1);
+				WritableByteChannel target = Channels.newChannel(output);
+				while (position < end) {
+					long written = in.transferTo(position, end - position, target);
+					if (written <= 0) {
+						break;
+					}
+					position += written;
+					this.repoFileCache.served(written);
+				}
+			}
+			output.flush();
+			output.close();
+		};
+		return this.headers(this.status(byteRange), entry, etag, byteRange).entity(out).build();
 	}
-	
-	private Response resultStream(final InputStream stream, RepoEntry entry) {
+
+	private Response resultStream(final InputStream stream, RepoEntry entry, EntityTag etag, long[] byteRange) {
 		StreamingOutput out = output -> {
-			StreamUtils.copy(stream, output);
+			try (InputStream in = stream) {
+				if (byteRange == null) {
+					this.copy(in, output);
+				} else {
+					// the stream starts at the first byte of the range
+					this.repoFileCache.served(StreamUtils.copyRange(in, output, 0, byteRange[1] - byteRange[0]));
+				}
+			}
 			output.flush();
 			output.close();
 		};
-		return Response.ok(out, entry.getContentType()).header("Content-Length", entry.getSize()).build();
+		return this.headers(this.status(byteRange), entry, etag, byteRange).entity(out).build();
+	}
+
+	private void copy(InputStream in, OutputStream output) throws IOException {
+		byte[] buffer = new byte[StreamUtils.BUFFER_SIZE];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			output.write(buffer, 0, read);
+			this.repoFileCache.served(read);
+		}
+	}
+
+	private ResponseBuilder status(long[] byteRange) {
+		return (byteRange == null) ? Response.ok() : Response.status(Status.PARTIAL_CONTENT);
+	}
+
+	private ResponseBuilder headers(ResponseBuilder builder, RepoEntry entry, EntityTag etag, long[] byteRange) {
+		builder.type(entry.getContentType());
+		if (etag != null) {
+			builder.tag(etag);
+		}
+		if (entry.getModified() != null) {
+			builder.lastModified(entry.getModified());
+		}
+		if (byteRange != null) {
+			builder.header("Content-Range", "bytes " + byteRange[0] + "-" + byteRange[1] + "/" + entry.getSize());
+			builder.header("Content-Length", (byteRange[1] - byteRange[0]) + 1);
+		} else if (entry.getSize() > 0) {
+			builder.header("Content-Length", entry.getSize());
+		}
+		if (entry.getSize() > 0) {
+			builder.header("Accept-Ranges", "bytes");
+		}
+		return builder;
+	}
+
+	private static FileChannel open(File file) {
+		if (file == null) {
+			return null;
+		}
+		try {
+			return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static EntityTag etag(RepoEntry entry) {
+		if ((entry.getChecksum() != null) && !entry.getChecksum().isEmpty()) {
+			return new EntityTag(entry.getChecksum().replace("\"", ""));
+		}
+		if (entry.getModified() != null) {
+			return new EntityTag(Long.toHexString(entry.getSize()) + "-" + Long.toHexString(entry.getModified().getTime()), true);
+		}
+		return null;
 	}
-	
+
+	/**
+	 * @param ifRange the If-Range header
+	 * @param entry   the requested entry
+	 * @param etag    the entity tag of the entry
+	 * @return true if there is no If-Range header or it matches the entry
+	 */
+	private static boolean ifRangeMatches(String ifRange, RepoEntry entry, EntityTag etag) {
+		if ((ifRange == null) || ifRange.isEmpty()) {
+			return true;
+		}
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+			// only strong entity tags match
+			return (etag != null) && !etag.isWeak() && ifRange.equals("\"" + etag.getValue() + "\"");
+		}
+		Date date = DateUtils.parseDate(ifRange);
+		return (date != null) && (entry.getModified() != null) && ((entry.getModified().getTime() / 1000) == (date.getTime() / 1000));
+	}
+
+	/**
+	 * @param range the Range header
+	 * @param size  the size of the entry
+	 * @return the first and last byte of the range, null to send the whole entry or {@link #UNSATISFIABLE}
+	 */
+	private static long[] parseRange(String range, long size) {
+		if ((range == null) || (size <= 0)) {
+			return null;
+		}
+		// multiple ranges are not supported, the whole entry is sent instead
+		Matcher matcher = ReposProviderImpl.BYTE_RANGE.matcher(range.trim());
+		if (!matcher.matches()) {
+			return null;
+		}
+		String first = matcher.group(1);
+		String last = matcher.group(2);
+		try {
+			if (first.isEmpty()) {
+				if (last.isEmpty()) {
+					return null;
+				}
+				long suffix = Long.parseLong(last);
+				if (suffix == 0) {
+					return ReposProviderImpl.UNSATISFIABLE;
+				}
+				return new long[] {Math.max(0, size - suffix), size - 1};
+			}
+			long start = Long.parseLong(first);
+			long end = last.isEmpty() ? (size - 1) : Math.min(Long.parseLong(last), size - 1);
+			if (start >= size) {
+				return ReposProviderImpl.UNSATISFIABLE;
+			}
+			if (end < start) {
+				return null;
+			}
+			return new long[] {start, end};
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
 }
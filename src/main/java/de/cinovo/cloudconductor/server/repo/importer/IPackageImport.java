@@ -1,10 +1,7 @@
 package de.cinovo.cloudconductor.server.repo.importer;
 
-import de.cinovo.cloudconductor.api.model.PackageVersion;
 import de.cinovo.cloudconductor.server.model.ERepo;
 
-import java.util.Set;
-
 /**
  * Copyright 2014 Hoegernet<br>
  * <br>
@@ -15,9 +12,9 @@ import java.util.Set;
 public interface IPackageImport {
 	
 	/**
-	 * @param repo
-	 * @param packageVersions the package versions
+	 * @param repo the repo
+	 * @return the import to hand the package versions of the current index to
 	 */
-	void importVersions(ERepo repo, Set<PackageVersion> packageVersions);
+	IRepoImport startImport(ERepo repo);
 
 }
\ No newline at end of file
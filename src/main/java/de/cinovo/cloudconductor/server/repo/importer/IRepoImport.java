@@ -0,0 +1,23 @@
+package de.cinovo.cloudconductor.server.repo.importer;
+
+import de.cinovo.cloudconductor.api.model.PackageVersion;
+
+import java.util.function.Consumer;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * The running import of a repo index. The package versions are handed over one by one while the index is read, new ones
+ * are written in batches.
+ *
+ * @author mweise
+ */
+public interface IRepoImport extends Consumer<PackageVersion> {
+	
+	/**
+	 * Writes the remaining package versions and removes the repo from the versions it does not provide anymore. Nothing is
+	 * removed if the import is not finished, e.g. because the index could not be read completely.
+	 */
+	void finish();
+	
+}
@@ -12,21 +12,28 @@ package de.cinovo.cloudconductor.server.repo.importer;
  */
 
 import de.cinovo.cloudconductor.api.model.PackageVersion;
-import de.cinovo.cloudconductor.server.dao.IPackageDAO;
+import de.cinovo.cloudconductor.server.dao.IHostDAO;
 import de.cinovo.cloudconductor.server.dao.IPackageVersionDAO;
 import de.cinovo.cloudconductor.server.handler.PackageHandler;
 import de.cinovo.cloudconductor.server.model.EPackage;
 import de.cinovo.cloudconductor.server.model.EPackageVersion;
 import de.cinovo.cloudconductor.server.model.ERepo;
+import de.cinovo.cloudconductor.server.util.DesiredStateCache;
+import de.cinovo.cloudconductor.server.util.PackageIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Copyright 2013 Cinovo AG<br>
@@ -39,59 +46,185 @@ public class PackageImport implements IPackageImport {
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger(PackageImport.class);
 	
+	// limits the number of parameters of the queries loading existing versions and the versions written at once
+	private static final int CHUNK_SIZE = 1000;
+	
+	/**
+	 * serializes the writes of the imports, as imports of different repos may create the same packages. Downloading and
+	 * parsing the indexes runs in parallel.
+	 */
+	private static final ReentrantLock WRITING = new ReentrantLock(true);
+	
 	@Autowired
-	private IPackageDAO packageDAO;
+	private PlatformTransactionManager transactionManager;
 	@Autowired
 	private IPackageVersionDAO packageVersionDAO;
 	@Autowired
+	private IHostDAO hostDAO;
+	@Autowired
 	private PackageHandler packageHandler;
+	@Autowired
+	private PackageIndex packageIndex;
+	@Autowired
+	private DesiredStateCache desiredStateCache;
 	
 	
 	/**
-	 * @param repo            the repo
-	 * @param packageVersions the package versions
+	 * Starts the import of the package versions provided by a repo. Only the difference to the versions the repo provided
+	 * at the last import touches the database, unchanged versions cost no queries. New versions are written in batches of
+	 * their own transaction while the index is read, so the index is never held in memory as a whole.
+	 *
+	 * @param repo the repo
+	 * @return the import to hand the package versions of the current index to
 	 */
 	@Override
-	@Transactional
-	public void importVersions(ERepo repo, Set<PackageVersion> packageVersions) {
-		if (packageVersions.isEmpty()) {
-			return;
+	public IRepoImport startImport(ERepo repo) {
+		return new RepoImport(repo);
+	}
+	
+	private void write(Runnable writer) {
+		try {
+			PackageImport.WRITING.lockInterruptibly();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for other imports", e);
+		}
+		try {
+			new TransactionTemplate(this.transactionManager).executeWithoutResult(status -> {
+				writer.run();
+				this.packageIndex.invalidate();
+				this.desiredStateCache.invalidateAll();
+			});
+		} finally {
+			PackageImport.WRITING.unlock();
 		}
-		if (repo == null) {
-			return;
+	}
+	
+	private Set<String> findProvided(ERepo repo) {
+		TransactionTemplate tx = new TransactionTemplate(this.transactionManager);
+		tx.setReadOnly(true);
+		return tx.execute(status -> {
+			Set<String> provided = new HashSet<>();
+			for (EPackageVersion provision : this.packageVersionDAO.findByRepo(repo.getId())) {
+				provided.add(PackageImport.key(provision.getPkgName(), provision.getVersion()));
+			}
+			return provided;
+		});
+	}
+	
+	private void removeRepoPackageVersions(ERepo repo, Set<String> removed) {
+		for (EPackageVersion oldProvision : this.packageVersionDAO.findByRepo(repo.getId())) {
+			if (removed.contains(PackageImport.key(oldProvision.getPkgName(), oldProvision.getVersion()))) {
+				oldProvision.getRepos().remove(repo.getId());
+				this.packageVersionDAO.save(oldProvision);
+			}
 		}
-		this.updateRepoPackageVersions(repo, packageVersions);
 	}
 	
-	private void updateRepoPackageVersions(ERepo repo, Set<PackageVersion> packageVersions) {
-		Set<Long> newRepoProvision = new HashSet<>();
-		List<EPackageVersion> oldRepoProvision = this.packageVersionDAO.findByRepo(repo.getId());
+	private boolean addRepoPackageVersions(ERepo repo, List<PackageVersion> added) {
+		Set<String> names = new HashSet<>();
+		Set<String> versions = new HashSet<>();
+		for (PackageVersion providedVersion : added) {
+			names.add(providedVersion.getName());
+			versions.add(providedVersion.getVersion());
+		}
+		Map<String, EPackageVersion> existing = new HashMap<>();
+		for (EPackageVersion pkgVersion : this.packageVersionDAO.find(names, versions)) {
+			existing.put(PackageImport.key(pkgVersion.getPkgName(), pkgVersion.getVersion()), pkgVersion);
+		}
 		
-		for (PackageVersion providedVersion : packageVersions) {
+		Map<String, EPackage> knownPackages = this.packageIndex.findByNames(names);
+		Map<String, EPackage> packages = new HashMap<>();
+		List<PackageVersion> toCreate = new ArrayList<>();
+		boolean createdPackages = false;
+		for (PackageVersion providedVersion : added) {
 			// Retrieve the package for the given providedVersion. Create it if it doesn't exist.
-			EPackage pkg = this.packageDAO.findByName(providedVersion.getName());
+			EPackage pkg = packages.get(providedVersion.getName());
+			if (pkg == null) {
+				pkg = knownPackages.get(providedVersion.getName());
+			}
 			if (pkg == null) { // there is no package for this providedVersion yet
 				pkg = this.packageHandler.createPackageFromVersion(providedVersion);
+				createdPackages = true;
 			}
-			EPackageVersion pkgVersion = this.packageVersionDAO.find(pkg.getName(), providedVersion.getVersion());
+			packages.put(pkg.getName(), pkg);
+			EPackageVersion pkgVersion = existing.get(PackageImport.key(pkg.getName(), providedVersion.getVersion()));
 			if (pkgVersion == null) {
 				PackageImport.LOGGER.debug("Create new package version '" + pkg.getName() + "':'" + providedVersion.getVersion() + "'");
-				pkgVersion = this.packageHandler.createEntity(providedVersion, pkg);
+				toCreate.add(providedVersion);
 			} else if (!pkgVersion.getRepos().contains(repo.getId())) {
 				PackageImport.LOGGER.debug("Update existing package version '" + pkg.getName() + "':'" + providedVersion.getVersion() + "'");
-				pkgVersion = this.packageHandler.updateEntity(pkgVersion, repo);
+				this.packageHandler.updateEntity(pkgVersion, repo);
 			}
-			newRepoProvision.add(pkgVersion.getId());
 		}
+		PackageImport.LOGGER.debug("Create {} new package versions", toCreate.size());
+		this.packageHandler.createEntities(toCreate, packages);
+		return createdPackages;
+	}
+	
+	private static String key(String pkgName, String version) {
+		return pkgName + '\u0000' + version;
+	}
+	
+	
+	private final class RepoImport implements IRepoImport {
 		
+		private final ERepo repo;
 		
-		for (EPackageVersion oldProvision : oldRepoProvision) {
-			if (!newRepoProvision.contains(oldProvision.getId())) {
-				oldProvision.getRepos().remove(repo.getId());
-				this.packageVersionDAO.save(oldProvision);
+		// the versions of the last import not provided so far, loaded with the first version of the index
+		private Set<String> removed;
+		private final Set<String> seen = new HashSet<>();
+		private final List<PackageVersion> added = new ArrayList<>();
+		private int addedCount;
+		private boolean createdPackages;
+		
+		
+		RepoImport(ERepo repo) {
+			this.repo = repo;
+		}
+		
+		@Override
+		public void accept(PackageVersion providedVersion) {
+			if (this.removed == null) {
+				this.removed = PackageImport.this.findProvided(this.repo);
+			}
+			String key = PackageImport.key(providedVersion.getName(), providedVersion.getVersion());
+			if (!this.seen.add(key) || this.removed.remove(key)) {
+				return;
+			}
+			this.added.add(providedVersion);
+			if (this.added.size() == PackageImport.CHUNK_SIZE) {
+				this.writeAdded();
+			}
+		}
+		
+		@Override
+		public void finish() {
+			// an empty index rather is a broken repo than a repo without packages
+			if (this.seen.isEmpty()) {
+				return;
+			}
+			this.writeAdded();
+			PackageImport.LOGGER.debug("Repo '{}' provides {} new and {} removed package versions", this.repo.getName(), this.addedCount, this.removed.size());
+			if (!this.removed.isEmpty() || this.createdPackages) {
+				PackageImport.this.write(() -> {
+					PackageImport.this.removeRepoPackageVersions(this.repo, this.removed);
+					if (this.createdPackages) {
+						// package states are only created for known packages, so full reports are required again
+						PackageImport.this.hostDAO.resetPackageDigests();
+					}
+				});
 			}
 		}
 		
+		private void writeAdded() {
+			if (this.added.isEmpty()) {
+				return;
+			}
+			PackageImport.this.write(() -> this.createdPackages |= PackageImport.this.addRepoPackageVersions(this.repo, this.added));
+			this.addedCount += this.added.size();
+			this.added.clear();
+		}
 	}
 	
 }
@@ -5,6 +5,7 @@ import de.cinovo.cloudconductor.server.repo.RepoEntry;
 import de.cinovo.cloudconductor.server.repo.provider.IRepoProvider;
 
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Copyright 2014 Hoegernet<br>
@@ -21,6 +22,23 @@ public interface IRepoIndexer {
 	 */
 	Set<PackageVersion> getRepoIndex(IRepoProvider provider);
 
+	/**
+	 * Hands every package version of the repo index to the consumer. Indexers able to parse the index incrementally hand
+	 * over the versions as soon as they were read.
+	 *
+	 * @param provider the {@link IRepoProvider} to get Index
+	 * @param consumer the consumer of the package versions
+	 * @return false if no new index is available
+	 */
+	default boolean streamRepoIndex(IRepoProvider provider, Consumer<PackageVersion> consumer) {
+		Set<PackageVersion> index = this.getRepoIndex(provider);
+		if (index == null) {
+			return false;
+		}
+		index.forEach(consumer);
+		return true;
+	}
+
 	/**
 	 * @param provider the {@link IRepoProvider} to get Index
 	 * @return the repo entry
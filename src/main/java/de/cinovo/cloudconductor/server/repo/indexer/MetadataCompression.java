@@ -0,0 +1,105 @@
+package de.cinovo.cloudconductor.server.repo.indexer;
+
+import com.github.luben.zstd.ZstdInputStream;
+import org.tukaani.xz.XZInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * The compressions of repo metadata files, ordered by the cost of reading them. Zstandard decodes several times faster
+ * than gzip, xz is the slowest to decode but still cheaper than downloading the uncompressed file.
+ *
+ * @author mweise
+ */
+public enum MetadataCompression {
+
+	/** Zstandard, default of recent createrepo_c versions */
+	ZSTD(".zst") {
+		@Override
+		InputStream decode(InputStream in) throws IOException {
+			return new ZstdInputStream(in);
+		}
+
+		@Override
+		boolean isAvailable() {
+			return MetadataCompression.ZSTD_AVAILABLE;
+		}
+	},
+	/** gzip */
+	GZIP(".gz") {
+		@Override
+		InputStream decode(InputStream in) throws IOException {
+			return new GZIPInputStream(in, MetadataCompression.BUFFER_SIZE);
+		}
+	},
+	/** xz */
+	XZ(".xz") {
+		@Override
+		InputStream decode(InputStream in) throws IOException {
+			return new XZInputStream(in);
+		}
+	},
+	/** not compressed */
+	NONE(".xml") {
+		@Override
+		InputStream decode(InputStream in) {
+			return in;
+		}
+	};
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	// zstd is decoded by a native library which might not be available for the platform
+	private static final boolean ZSTD_AVAILABLE = MetadataCompression.loadZstd();
+
+	private final String suffix;
+
+
+	MetadataCompression(String suffix) {
+		this.suffix = suffix;
+	}
+
+	/**
+	 * @param in the compressed stream
+	 * @return the decoded stream
+	 * @throws IOException on error reading the stream header
+	 */
+	public InputStream open(InputStream in) throws IOException {
+		return this.decode(new BufferedInputStream(in, MetadataCompression.BUFFER_SIZE));
+	}
+
+	abstract InputStream decode(InputStream in) throws IOException;
+
+	boolean isAvailable() {
+		return true;
+	}
+
+	/**
+	 * @param href the location of a metadata file
+	 * @return the compression of the file or null if it is not supported
+	 */
+	public static MetadataCompression of(String href) {
+		if (href == null) {
+			return null;
+		}
+		for (MetadataCompression compression : MetadataCompression.values()) {
+			if (href.endsWith(compression.suffix)) {
+				return compression.isAvailable() ? compression : null;
+			}
+		}
+		return null;
+	}
+
+	private static boolean loadZstd() {
+		try {
+			com.github.luben.zstd.util.Native.load();
+			return true;
+		} catch (UnsatisfiedLinkError | NoClassDefFoundError | RuntimeException e) {
+			return false;
+		}
+	}
+}
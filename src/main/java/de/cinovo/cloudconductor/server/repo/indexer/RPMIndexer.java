@@ -6,21 +6,27 @@ import de.cinovo.cloudconductor.api.model.PackageVersion;
 import de.cinovo.cloudconductor.server.repo.RepoEntry;
 import de.cinovo.cloudconductor.server.repo.provider.IRepoProvider;
 import org.w3c.dom.Document;
-import org.xml.sax.Attributes;
-import org.xml.sax.SAXException;
-import org.xml.sax.helpers.DefaultHandler;
+import org.w3c.dom.NodeList;
 
 import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.EnumSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.zip.GZIPInputStream;
+import java.util.function.Consumer;
 
 /**
  * Copyright 2014 Hoegernet<br>
@@ -30,35 +36,72 @@ import java.util.zip.GZIPInputStream;
  */
 public class RPMIndexer implements IRepoIndexer {
 	private static final String REPO_INDEX = "repodata/repomd.xml";
+	private static final String RPM_NAMESPACE = "http://linux.duke.edu/metadata/rpm";
+	
+	private static final XMLInputFactory XML_INPUT_FACTORY = RPMIndexer.createInputFactory();
+	
 	
 	@Override
 	public Set<PackageVersion> getRepoIndex(IRepoProvider provider) {
+		Set<PackageVersion> versions = new HashSet<>();
+		if (this.streamRepoIndex(provider, versions::add)) {
+			return versions;
+		}
+		return null;
+	}
+	
+	/**
+	 * Parses the primary index of the repo and hands every package version to the consumer as soon as it was read, so the
+	 * index is never held in memory as a whole. Dependency names and dependencies are shared between all package versions
+	 * of the repo. If the repo offers the primary index in several compressions, the one cheapest to decode is read.
+	 *
+	 * @param provider the {@link IRepoProvider} to get the index from
+	 * @param consumer the consumer of the package versions
+	 * @return false if the repo has no index
+	 */
+	@Override
+	public boolean streamRepoIndex(IRepoProvider provider, Consumer<PackageVersion> consumer) {
 		RepoEntry entry = provider.getEntry(RPMIndexer.REPO_INDEX);
-		if (entry != null) {
-			InputStream inputStream = provider.getEntryStream(RPMIndexer.REPO_INDEX);
+		if (entry == null) {
+			return false;
+		}
+		String primaryHREF = null;
+		MetadataCompression compression = null;
+		try (InputStream inputStream = provider.getEntryStream(RPMIndexer.REPO_INDEX)) {
 			Document repoXML = this.xmlDOM(inputStream);
 			XPath xpath = XPathFactory.newInstance().newXPath();
+			NodeList hrefs = (NodeList) xpath.evaluate("/repomd/data[@type='primary']/location/@href", repoXML, XPathConstants.NODESET);
+			// a repo may offer the primary index in several compressions, the cheapest one to read is used
+			for (int i = 0; i < hrefs.getLength(); i++) {
+				String href = hrefs.item(i).getNodeValue();
+				MetadataCompression hrefCompression = MetadataCompression.of(href);
+				if ((hrefCompression != null) && ((compression == null) || (hrefCompression.compareTo(compression) < 0))) {
+					primaryHREF = href;
+					compression = hrefCompression;
+				}
+			}
+		} catch (XPathExpressionException e) {
+			throw new RuntimeException("Failed to parse repomd.xml", e);
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to read repodata", e);
+		}
+		if (compression == null) {
+			throw new RuntimeException("Repo " + provider.getRepoName() + " has no primary index in a supported format");
+		}
+		
+		try (InputStream primaryInputStream = compression.open(provider.getEntryStream(primaryHREF))) {
+			XMLStreamReader reader = RPMIndexer.XML_INPUT_FACTORY.createXMLStreamReader(primaryInputStream);
 			try {
-				String primaryHREF = xpath.evaluate("/repomd/data[@type='primary']/location/@href", repoXML);
-				GZIPInputStream gzipInputStream = new GZIPInputStream(provider.getEntryStream(primaryHREF));
-				RPMPrimaryParser handler = new RPMPrimaryParser(provider.getRepoName());
-				this.xmlSAX(gzipInputStream, handler);
-				return handler.versions;
-			} catch (XPathExpressionException e) {
-				throw new RuntimeException("Failed to parse repomd.xml", e);
-			} catch (IOException e) {
-				throw new RuntimeException("Failed to read repodata", e);
+				new RPMPrimaryParser(provider.getRepoName(), consumer).parse(reader);
 			} finally {
-				try {
-					if (inputStream != null) {
-						inputStream.close();
-					}
-				} catch (IOException e) {
-					// don't care
-				}
+				reader.close();
 			}
+		} catch (XMLStreamException e) {
+			throw new RuntimeException("Failed to parse primary index", e);
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to read repodata", e);
 		}
-		return null;
+		return true;
 	}
 	
 	@Override
@@ -74,71 +117,106 @@ public class RPMIndexer implements IRepoIndexer {
 		}
 	}
 	
-	private void xmlSAX(InputStream xmlStream, DefaultHandler handler) {
-		try {
-			SAXParserFactory factory = SAXParserFactory.newInstance();
-			factory.newSAXParser().parse(xmlStream, handler);
-		} catch (Exception e) {
-			throw new RuntimeException(e);
-		}
-	}
-	
-	private enum RPMPrimaryState {
-		Repo, Package, Requires, Provides, Conflicts;
-		
-		public static EnumSet<RPMPrimaryState> depStates = EnumSet.of(RPMPrimaryState.Requires, RPMPrimaryState.Provides, RPMPrimaryState.Conflicts);
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return factory;
 	}
 	
-	private static class RPMPrimaryParser extends DefaultHandler {
-		
-		private final Set<PackageVersion> versions = new HashSet<>();
-		
-		private String name;
-		private String version;
-		private Set<Dependency> dependencies;
+	private static class RPMPrimaryParser {
 		
-		private String tmpValue;
+		private final Consumer<PackageVersion> consumer;
 		
-		private RPMPrimaryState state = RPMPrimaryState.Repo;
+		// dependencies and repos are never modified after indexing, so equal ones are shared between all package versions
+		private final Set<String> repos;
+		private final Map<String, String> strings = new HashMap<>();
+		private final Map<DependencyKey, Dependency> dependencies = new HashMap<>();
+		// reused for the lookups, only the dependencies not seen before get a key of their own
+		private final DependencyKey lookup = new DependencyKey();
+		private final List<Dependency> packageDependencies = new ArrayList<>();
 		
-		private final String repoName;
 		
+		RPMPrimaryParser(String repoName, Consumer<PackageVersion> consumer) {
+			this.repos = Collections.singleton(repoName);
+			this.consumer = consumer;
+		}
 		
-		RPMPrimaryParser(String repoName) {
-			this.repoName = repoName;
+		void parse(XMLStreamReader reader) throws XMLStreamException {
+			while (reader.hasNext()) {
+				if ((reader.next() == XMLStreamConstants.START_ELEMENT) && "package".equals(reader.getLocalName()) && "rpm".equals(reader.getAttributeValue(null, "type"))) {
+					this.consumer.accept(this.parsePackage(reader));
+				}
+			}
 		}
 		
-		@Override
-		public void startElement(String uri, String localName, String qName, Attributes attributes) {
-			if ((this.state == RPMPrimaryState.Repo) && qName.equals("package") && attributes.getValue("type").equals("rpm")) {
-				this.state = RPMPrimaryState.Package;
-				this.name = null;
-				this.version = null;
-				this.dependencies = new HashSet<>();
-			} else if ((this.state == RPMPrimaryState.Package) && qName.equals("version")) {
-				this.version = String.format("%s-%s", attributes.getValue("ver"), attributes.getValue("rel"));
-			} else if ((this.state == RPMPrimaryState.Package) && qName.equals("rpm:requires")) {
-				this.state = RPMPrimaryState.Requires;
-			} else if ((this.state == RPMPrimaryState.Package) && qName.equals("rpm:provides")) {
-				this.state = RPMPrimaryState.Provides;
-			} else if ((this.state == RPMPrimaryState.Package) && qName.equals("rpm:conflicts")) {
-				this.state = RPMPrimaryState.Conflicts;
-			} else if (RPMPrimaryState.depStates.contains(this.state) && qName.equals("rpm:entry")) {
-				// example: <rpm:entry name="jdk" flags="GE" epoch="0" ver="1.7"/>
-				String depVersion = attributes.getValue("ver");
-				if (depVersion == null) {
-					depVersion = "";
+		private PackageVersion parsePackage(XMLStreamReader reader) throws XMLStreamException {
+			String name = null;
+			String version = null;
+			this.packageDependencies.clear();
+			DependencyType depType = null;
+			int depth = 1;
+			while (depth > 0) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.END_ELEMENT) {
+					depth--;
+					if (RPMIndexer.RPM_NAMESPACE.equals(reader.getNamespaceURI()) && (RPMPrimaryParser.convertDepType(reader.getLocalName()) != null)) {
+						depType = null;
+					}
+					continue;
 				}
-				Dependency dep = new Dependency();
-				dep.setName(attributes.getValue("name"));
-				dep.setVersion(depVersion);
-				dep.setOperator(this.parseOperator(attributes.getValue("flags")));
-				dep.setType(this.convertDepType(this.state));
-				this.dependencies.add(dep);
+				if (event != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				depth++;
+				String localName = reader.getLocalName();
+				if (RPMIndexer.RPM_NAMESPACE.equals(reader.getNamespaceURI())) {
+					if ((depType != null) && "entry".equals(localName)) {
+						// example: <rpm:entry name="jdk" flags="GE" epoch="0" ver="1.7"/>
+						this.packageDependencies.add(this.dependency(reader.getAttributeValue(null, "name"), reader.getAttributeValue(null, "ver"), reader.getAttributeValue(null, "flags"), depType));
+					} else {
+						depType = RPMPrimaryParser.convertDepType(localName);
+					}
+				} else if ((depth == 2) && "name".equals(localName)) {
+					name = reader.getElementText();
+					depth--;
+				} else if ((depth == 2) && "version".equals(localName)) {
+					version = reader.getAttributeValue(null, "ver") + '-' + reader.getAttributeValue(null, "rel");
+				}
+			}
+			
+			PackageVersion pv = new PackageVersion();
+			pv.setName(name);
+			pv.setVersion(version);
+			// sized once, as the number of dependencies is known by now
+			pv.setDependencies(new HashSet<>(this.packageDependencies));
+			pv.setRepos(this.repos);
+			return pv;
+		}
+		
+		private Dependency dependency(String name, String version, String flags, DependencyType type) {
+			String depVersion = (version == null) ? "" : version;
+			String operator = RPMPrimaryParser.parseOperator(flags);
+			Dependency dep = this.dependencies.get(this.lookup.set(name, depVersion, operator, type));
+			if (dep != null) {
+				return dep;
 			}
+			dep = new Dependency();
+			dep.setName(this.string(name));
+			dep.setVersion(this.string(depVersion));
+			dep.setOperator(operator);
+			dep.setType(type);
+			this.dependencies.put(new DependencyKey().set(dep.getName(), dep.getVersion(), operator, type), dep);
+			return dep;
 		}
 		
-		private String parseOperator(String flag) {
+		private String string(String value) {
+			String known = this.strings.putIfAbsent(value, value);
+			return (known == null) ? value : known;
+		}
+		
+		private static String parseOperator(String flag) {
 			if (flag == null) {
 				return "";
 			}
@@ -154,53 +232,51 @@ public class RPMIndexer implements IRepoIndexer {
 			}
 		}
 		
-		private DependencyType convertDepType(RPMPrimaryState depState) {
-			switch (depState) {
-				case Conflicts:
+		private static DependencyType convertDepType(String localName) {
+			switch (localName) {
+				case "conflicts":
 					return DependencyType.CONFLICTS;
-				case Provides:
+				case "provides":
 					return DependencyType.PROVIDES;
-				case Requires:
+				case "requires":
 					return DependencyType.REQUIRES;
 				default:
 					return null;
 			}
 		}
 		
-		@Override
-		public void endElement(String uri, String localName, String qName) {
-			if ((this.state == RPMPrimaryState.Package) && qName.equals("name")) {
-				this.name = this.tmpValue;
-			} else if ((this.state == RPMPrimaryState.Package) && qName.equals("package")) {
-				
-				PackageVersion pv = new PackageVersion();
-				pv.setName(this.name);
-				pv.setVersion(this.version);
-				pv.setDependencies(this.dependencies);
-				pv.setRepos(new HashSet<>());
-				pv.getRepos().add(this.repoName);
-				this.versions.add(pv);
-				this.state = RPMPrimaryState.Repo;
-			} else if ((this.state == RPMPrimaryState.Requires) && qName.equals("rpm:requires")) {
-				this.state = RPMPrimaryState.Package;
-			} else if ((this.state == RPMPrimaryState.Provides) && qName.equals("rpm:provides")) {
-				this.state = RPMPrimaryState.Package;
-			} else if ((this.state == RPMPrimaryState.Conflicts) && qName.equals("rpm:conflicts")) {
-				this.state = RPMPrimaryState.Package;
-			}
+	}
+	
+	private static final class DependencyKey {
+		
+		private String name;
+		private String version;
+		private String operator;
+		private DependencyType type;
+		private int hash;
+		
+		
+		DependencyKey set(String name, String version, String operator, DependencyType type) {
+			this.name = name;
+			this.version = version;
+			this.operator = operator;
+			this.type = type;
+			this.hash = (((((name.hashCode() * 31) + version.hashCode()) * 31) + operator.hashCode()) * 31) + type.hashCode();
+			return this;
 		}
 		
 		@Override
-		public void endDocument() throws SAXException {
-			if (this.state != RPMPrimaryState.Repo) {
-				throw new SAXException("Invalid end state: " + this.state);
+		public boolean equals(Object obj) {
+			if (!(obj instanceof DependencyKey)) {
+				return false;
 			}
+			DependencyKey other = (DependencyKey) obj;
+			return this.name.equals(other.name) && this.version.equals(other.version) && this.operator.equals(other.operator) && (this.type == other.type);
 		}
 		
 		@Override
-		public void characters(char[] ch, int start, int length) {
-			this.tmpValue = new String(ch, start, length);
+		public int hashCode() {
+			return this.hash;
 		}
-		
 	}
 }
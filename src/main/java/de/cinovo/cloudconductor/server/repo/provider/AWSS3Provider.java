@@ -1,8 +1,9 @@
 package de.cinovo.cloudconductor.server.repo.provider;
 
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3Client;
-import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
@@ -15,9 +16,7 @@ import de.cinovo.cloudconductor.server.util.AWSClientFactory;
 
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 /**
  * Copyright 2014 Hoegernet<br>
@@ -39,7 +38,7 @@ public class AWSS3Provider implements IRepoProvider {
 		this.repo = repo;
 		if (mirror.getProviderType() == RepoProviderType.AWSS3) {
 			this.mirror = mirror;
-			this.s3Client = AWSClientFactory.createClient(AmazonS3Client.class, mirror);
+			this.s3Client = AWSClientFactory.getS3Client(mirror);
 		}
 	}
 	
@@ -54,22 +53,24 @@ public class AWSS3Provider implements IRepoProvider {
 		if ((this.mirror == null) || (this.s3Client == null)) {
 			return res;
 		}
-		Set<String> folderNames = new HashSet<>();
 		
-		ObjectListing objects = this.s3Client.listObjects(this.mirror.getBucketName(), folder);
-		List<S3ObjectSummary> summaries = objects.getObjectSummaries();
-		for (S3ObjectSummary objectSummary : summaries) {
-			String file = objectSummary.getKey().substring(folder.length());
-			if (file.contains("/")) {
-				file = file.substring(0, file.indexOf("/"));
-				if (!folderNames.contains(file)) {
-					folderNames.add(file);
-					RepoEntry dir = new RepoEntry();
-					dir.setName(file);
-					dir.setDirectory(true);
-					res.add(dir);
+		// the delimiter lets S3 return the sub folders instead of all keys below them
+		ListObjectsV2Request request = new ListObjectsV2Request().withBucketName(this.mirror.getBucketName()).withPrefix(folder).withDelimiter("/");
+		ListObjectsV2Result objects;
+		do {
+			objects = this.s3Client.listObjectsV2(request);
+			for (String prefix : objects.getCommonPrefixes()) {
+				RepoEntry dir = new RepoEntry();
+				dir.setName(prefix.substring(folder.length(), prefix.length() - 1));
+				dir.setDirectory(true);
+				res.add(dir);
+			}
+			for (S3ObjectSummary objectSummary : objects.getObjectSummaries()) {
+				String file = objectSummary.getKey().substring(folder.length());
+				if (file.isEmpty()) {
+					// the object marking the folder itself
+					continue;
 				}
-			} else {
 				RepoEntry fil = new RepoEntry();
 				fil.setName(file);
 				fil.setDirectory(false);
@@ -78,10 +79,8 @@ public class AWSS3Provider implements IRepoProvider {
 				fil.setChecksum(objectSummary.getETag());
 				res.add(fil);
 			}
-		}
-		if (objects.isTruncated()) {
-			// TODO handle this
-		}
+			request.setContinuationToken(objects.getNextContinuationToken());
+		} while (objects.isTruncated());
 		return res;
 	}
 	
@@ -110,6 +109,15 @@ public class AWSS3Provider implements IRepoProvider {
 		return s3Object.getObjectContent();
 	}
 	
+	@Override
+	public InputStream getEntryStream(String key, long start, long end) {
+		if ((this.mirror == null) || (this.s3Client == null)) {
+			return null;
+		}
+		S3Object s3Object = this.s3Client.getObject(new GetObjectRequest(this.mirror.getBucketName(), key).withRange(start, end));
+		return s3Object.getObjectContent();
+	}
+	
 	@Override
 	public String getRepoName() {
 		if ((this.repo == null)) {
@@ -6,22 +6,43 @@ import de.cinovo.cloudconductor.server.model.ERepoMirror;
 import de.cinovo.cloudconductor.server.repo.RepoEntry;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Copyright 2014 Hoegernet<br>
  * <br>
+ * Provides the files of a local directory. Only the repo metadata the indexers detect changes with gets an MD5 checksum,
+ * which is cached by its file key (inode) and only computed again if its size or modification time changed. Packages
+ * are validated by size and modification time.
  *
  * @author Thorsten Hoeger
  *
  */
 public class FileProvider implements IRepoProvider {
 	
+	private static final String METADATA_DIR = "repodata";
+	private static final String INDEX_FILE = "index.c2";
+	
+	// the checksums of the metadata seen before, shared by all providers as providers are created per request
+	private static final Map<Object, CachedChecksum> CHECKSUMS = new ConcurrentHashMap<>();
+	
 	private final ERepo repo;
 	private ERepoMirror mirror;
 	
@@ -44,50 +65,122 @@ public class FileProvider implements IRepoProvider {
 	
 	@Override
 	public List<RepoEntry> getEntries(String folder) {
-		File dir = new File(this.mirror.getBasePath() + folder);
-		if (!dir.isDirectory()) {
+		Path dir = this.getPath(folder);
+		if ((dir == null) || !Files.isDirectory(dir)) {
 			return null;
 		}
 		List<RepoEntry> list = new ArrayList<>();
-		for (File file : dir.listFiles()) {
-			list.add(this.createEntry(file));
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+			for (Path file : files) {
+				RepoEntry entry = this.createEntry(file);
+				if (entry != null) {
+					list.add(entry);
+				}
+			}
+		} catch (IOException e) {
+			return null;
 		}
 		return list;
 	}
 	
 	@Override
 	public RepoEntry getEntry(String key) {
-		File file = new File(this.mirror.getBasePath() + key);
-		if (file.exists()) {
-			return this.createEntry(file);
+		Path file = this.getPath(key);
+		if (file == null) {
+			return null;
+		}
+		return this.createEntry(file);
+	}
+	
+	private Path getPath(String key) {
+		if ((this.mirror == null) || (this.mirror.getBasePath() == null)) {
+			return null;
 		}
-		return null;
+		return Paths.get(this.mirror.getBasePath() + key);
 	}
 	
-	private RepoEntry createEntry(File file) {
+	private RepoEntry createEntry(Path file) {
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(file, BasicFileAttributes.class);
+		} catch (IOException e) {
+			return null;
+		}
 		RepoEntry e = new RepoEntry();
-		e.setDirectory(file.isDirectory());
-		e.setName(file.getName());
-		e.setSize(file.length());
-		e.setModified(new Date(file.lastModified()));
+		e.setDirectory(attributes.isDirectory());
+		e.setName(file.getFileName().toString());
+		e.setSize(attributes.size());
+		e.setModified(new Date(attributes.lastModifiedTime().toMillis()));
+		if (attributes.isRegularFile() && FileProvider.isMetadata(file)) {
+			e.setChecksum(FileProvider.getChecksum(file, attributes));
+		}
 		return e;
 	}
 	
+	private static boolean isMetadata(Path file) {
+		Path dir = file.getParent();
+		return file.getFileName().toString().equals(FileProvider.INDEX_FILE) || ((dir != null) && (dir.getFileName() != null) && dir.getFileName().toString().equals(FileProvider.METADATA_DIR));
+	}
+	
+	private static String getChecksum(Path file, BasicFileAttributes attributes) {
+		Object key = (attributes.fileKey() == null) ? file.toAbsolutePath() : attributes.fileKey();
+		long modified = attributes.lastModifiedTime().toMillis();
+		CachedChecksum cached = FileProvider.CHECKSUMS.get(key);
+		if ((cached != null) && (cached.modified == modified) && (cached.size == attributes.size())) {
+			return cached.checksum;
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MessageDigest md = MessageDigest.getInstance("MD5");
+			ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+			while (channel.read(buffer) > 0) {
+				buffer.flip();
+				md.update(buffer);
+				buffer.clear();
+			}
+			String checksum = String.format("%032x", new BigInteger(1, md.digest()));
+			FileProvider.CHECKSUMS.put(key, new CachedChecksum(modified, attributes.size(), checksum));
+			return checksum;
+		} catch (IOException | NoSuchAlgorithmException e) {
+			return null;
+		}
+	}
+	
 	@Override
 	public InputStream getEntryStream(String key) {
-		File file = new File(this.mirror.getBasePath() + key);
-		if (file.exists()) {
-			try {
-				return new FileInputStream(file);
-			} catch (FileNotFoundException e) {
-				// may not happen
-			}
+		Path file = this.getPath(key);
+		if ((file == null) || !Files.isRegularFile(file)) {
+			return null;
+		}
+		try {
+			return Files.newInputStream(file);
+		} catch (IOException e) {
+			return null;
 		}
-		return null;
+	}
+	
+	@Override
+	public File getEntryFile(String key) {
+		Path file = this.getPath(key);
+		return ((file != null) && Files.isRegularFile(file)) ? file.toFile() : null;
 	}
 	
 	@Override
 	public String getRepoName() {
 		return this.repo.getName();
 	}
+	
+	
+	private static final class CachedChecksum {
+		
+		private final long modified;
+		private final long size;
+		private final String checksum;
+		
+		
+		CachedChecksum(long modified, long size, String checksum) {
+			this.modified = modified;
+			this.size = size;
+			this.checksum = checksum;
+		}
+	}
 }
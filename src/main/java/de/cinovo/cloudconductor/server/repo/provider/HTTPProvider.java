@@ -4,21 +4,30 @@ import de.cinovo.cloudconductor.api.enums.RepoProviderType;
 import de.cinovo.cloudconductor.server.model.ERepo;
 import de.cinovo.cloudconductor.server.model.ERepoMirror;
 import de.cinovo.cloudconductor.server.repo.RepoEntry;
+import de.taimos.httputils.HTTPRequest;
 import de.taimos.httputils.HTTPResponse;
 import de.taimos.httputils.WS;
 import de.taimos.httputils.WSConstants;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.utils.DateUtils;
 
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.UriBuilder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
 import java.security.MessageDigest;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Copyright 2014 Hoegernet<br>
@@ -28,8 +37,27 @@ import java.util.List;
  */
 public class HTTPProvider implements IRepoProvider {
 	
+	private static final String HEADER_ETAG = "ETag";
+	private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+	private static final int MAX_VALIDATORS = 1000;
+	// bodies up to this size are kept after computing their checksum, so streaming them does not download them again
+	private static final int MAX_BUFFERED_BODY = 16 * 1024 * 1024;
+	
+	// the validators of the entries fetched before, shared by all providers as providers are created per request
+	private static final Map<String, CachedEntry> VALIDATORS = Collections.synchronizedMap(new LinkedHashMap<String, CachedEntry>(16, 0.75f, true) {
+		
+		private static final long serialVersionUID = 1L;
+		
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CachedEntry> eldest) {
+			return this.size() > HTTPProvider.MAX_VALIDATORS;
+		}
+	});
+	
 	private final ERepo repo;
 	private ERepoMirror mirror;
+	private final Map<String, byte[]> bodies = new ConcurrentHashMap<>();
 	
 	
 	/**
@@ -53,21 +81,55 @@ public class HTTPProvider implements IRepoProvider {
 		throw new UnsupportedOperationException("This provider does not support listing");
 	}
 	
+	/**
+	 * Fetches the entry with the validators of the last fetch of the same url. If the server answers with 304 the entry
+	 * is unchanged and the cached checksum is used without downloading the entry again.
+	 */
 	@Override
 	public RepoEntry getEntry(String key) {
 		if ((this.mirror == null) || (this.mirror.getBasePath() == null)) {
 			return null;
 		}
-
-		try (HTTPResponse response = WS.url(this.getUrl(key)).get()) {
+		
+		String url = this.getUrl(key);
+		String name = key.substring(Math.max(0, key.lastIndexOf("/") + 1));
+		CachedEntry cached = HTTPProvider.VALIDATORS.get(url);
+		HTTPRequest request = WS.url(url);
+		if (cached != null) {
+			if (cached.etag != null) {
+				request.header(WSConstants.HEADER_IF_NONE_MATCH, cached.etag);
+			}
+			if (cached.lastModified != null) {
+				request.header(WSConstants.HEADER_IF_MODIFIED_SINCE, cached.lastModified);
+			}
+		}
+		HTTPResponse response = request.get();
+		try {
+			if ((cached != null) && (response.getStatus() == HttpStatus.SC_NOT_MODIFIED)) {
+				return cached.toEntry(name);
+			}
+			String etag = this.getHeader(response, HTTPProvider.HEADER_ETAG);
+			String lastModified = this.getHeader(response, HTTPProvider.HEADER_LAST_MODIFIED);
+			Date modified = (lastModified == null) ? null : DateUtils.parseDate(lastModified);
+			
 			RepoEntry e = new RepoEntry();
 			e.setDirectory(false);
-			e.setName(key.substring(Math.max(0, key.lastIndexOf("/") + 1)));
+			e.setName(name);
 			e.setSize(this.getSize(response));
-			e.setModified(new Date());
-			e.setChecksum(this.getChecksum(response));
+			e.setModified((modified == null) ? new Date() : modified);
+			e.setChecksum(this.getChecksum(response, url));
 			e.setContentType(this.getType(response));
+			if (response.isStatusOK() && (e.getChecksum() != null) && ((etag != null) || (lastModified != null))) {
+				HTTPProvider.VALIDATORS.put(url, new CachedEntry(etag, lastModified, e));
+			} else {
+				HTTPProvider.VALIDATORS.remove(url);
+			}
 			return e;
+		} finally {
+			// closing a response without entity, e.g. a 304, fails
+			if (response.getResponse().getEntity() != null) {
+				response.close();
+			}
 		}
 	}
 	
@@ -84,7 +146,12 @@ public class HTTPProvider implements IRepoProvider {
 		return MediaType.APPLICATION_OCTET_STREAM;
 	}
 	
-	private String getChecksum(HTTPResponse response) {
+	private String getHeader(HTTPResponse response, String name) {
+		Header header = response.getResponse().getFirstHeader(name);
+		return (header == null) ? null : header.getValue();
+	}
+	
+	private String getChecksum(HTTPResponse response, String url) {
 		HttpResponse r = response.getResponse();
 		Header header = response.getResponse().getFirstHeader(WSConstants.HEADER_CONTENT_MD5);
 		if (header != null) {
@@ -92,16 +159,28 @@ public class HTTPProvider implements IRepoProvider {
 		}
 		if (r.getEntity() != null) {
 			String checksum = null;
-			try {
+			try (InputStream in = r.getEntity().getContent()) {
 				MessageDigest md = MessageDigest.getInstance("MD5");
+				// keep small bodies for the following stream request
+				long length = r.getEntity().getContentLength();
+				ByteArrayOutputStream body = (response.isStatusOK() && (length <= HTTPProvider.MAX_BUFFERED_BODY)) ? new ByteArrayOutputStream(Math.max(0, (int) length)) : null;
 				// Using MessageDigest update() method to provide input
 				byte[] buffer = new byte[8192];
 				int numOfBytesRead;
-				while ((numOfBytesRead = r.getEntity().getContent().read(buffer)) > 0) {
+				while ((numOfBytesRead = in.read(buffer)) > 0) {
 					md.update(buffer, 0, numOfBytesRead);
+					if (body != null) {
+						body.write(buffer, 0, numOfBytesRead);
+						if (body.size() > HTTPProvider.MAX_BUFFERED_BODY) {
+							body = null;
+						}
+					}
 				}
 				byte[] hash = md.digest();
 				checksum = new BigInteger(1, hash).toString(16); // don't use this, truncates leading zero
+				if (body != null) {
+					this.bodies.put(url, body.toByteArray());
+				}
 			} catch (Exception ex) {
 				// do nothing
 			}
@@ -124,6 +203,10 @@ public class HTTPProvider implements IRepoProvider {
 	@Override
 	public InputStream getEntryStream(String relativeFilePath) {
 		String url = this.getUrl(relativeFilePath);
+		byte[] body = this.bodies.remove(url);
+		if (body != null) {
+			return new ByteArrayInputStream(body);
+		}
 		HTTPResponse response = WS.url(url).get();
 		HttpEntity entity = response.getResponse().getEntity();
 		if (entity == null) {
@@ -141,4 +224,36 @@ public class HTTPProvider implements IRepoProvider {
 	public String getRepoName() {
 		return this.repo.getName();
 	}
+	
+	
+	private static final class CachedEntry {
+		
+		private final String etag;
+		private final String lastModified;
+		private final long size;
+		private final Date modified;
+		private final String checksum;
+		private final String contentType;
+		
+		
+		CachedEntry(String etag, String lastModified, RepoEntry entry) {
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.size = entry.getSize();
+			this.modified = entry.getModified();
+			this.checksum = entry.getChecksum();
+			this.contentType = entry.getContentType();
+		}
+		
+		RepoEntry toEntry(String name) {
+			RepoEntry e = new RepoEntry();
+			e.setDirectory(false);
+			e.setName(name);
+			e.setSize(this.size);
+			e.setModified(this.modified);
+			e.setChecksum(this.checksum);
+			e.setContentType(this.contentType);
+			return e;
+		}
+	}
 }
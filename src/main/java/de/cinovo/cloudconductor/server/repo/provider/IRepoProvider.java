@@ -2,6 +2,8 @@ package de.cinovo.cloudconductor.server.repo.provider;
 
 import de.cinovo.cloudconductor.server.repo.RepoEntry;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 
@@ -32,6 +34,44 @@ public interface IRepoProvider {
 	 */
 	InputStream getEntryStream(String key);
 	
+	/**
+	 * @param key   the name of the file
+	 * @param start the first byte of the range
+	 * @param end   the last byte of the range
+	 * @return the stream of the content of the given file, starting at the first byte of the range. The stream may
+	 * continue after the last byte of the range.
+	 */
+	default InputStream getEntryStream(String key, long start, long end) {
+		InputStream stream = this.getEntryStream(key);
+		if (stream == null) {
+			return null;
+		}
+		try {
+			long skipped = 0;
+			while (skipped < start) {
+				long n = stream.skip(start - skipped);
+				if (n <= 0) {
+					if (stream.read() == -1) {
+						break;
+					}
+					n = 1;
+				}
+				skipped += n;
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(String.format("Failed to skip to byte %d of '%s'", start, key), e);
+		}
+		return stream;
+	}
+	
+	/**
+	 * @param key the name of the file
+	 * @return the local file to serve without copying it through the heap or null if the file is not stored locally
+	 */
+	default File getEntryFile(String key) {
+		return null;
+	}
+	
 	/**
 	 * @return <code>true</code> if listings are possible; <code>false</code> otherwise
 	 */
@@ -0,0 +1,61 @@
+package de.cinovo.cloudconductor.server.rest.agent;
+
+import de.cinovo.cloudconductor.api.model.PackageStateChanges;
+import de.cinovo.cloudconductor.api.model.ServiceStates;
+import de.cinovo.cloudconductor.api.model.ServiceStatesChanges;
+import de.cinovo.cloudconductor.server.handler.AgentHandler;
+import de.cinovo.cloudconductor.server.handler.FileHandler;
+import de.cinovo.cloudconductor.server.util.AgentRequestGate;
+import de.taimos.dvalin.jaxrs.JaxRsComponent;
+import de.taimos.restutils.RESTAssert;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ *
+ * @author mweise
+ */
+@JaxRsComponent
+public class AgentDigestImpl implements IAgentDigest {
+	
+	@Autowired
+	private AgentHandler agentHandler;
+	@Autowired
+	private FileHandler fileHandler;
+	@Autowired
+	private AgentRequestGate agentRequestGate;
+	
+	
+	@Override
+	public PackageStateChanges notifyPackageDigest(String template, String host, String uuid, String digest) {
+		RESTAssert.assertNotEmpty(template);
+		RESTAssert.assertNotEmpty(host);
+		RESTAssert.assertNotEmpty(uuid);
+		RESTAssert.assertNotEmpty(digest);
+		
+		PackageStateChanges changes = this.agentRequestGate.execute(() -> this.agentHandler.handlePackageDigest(uuid, digest));
+		RESTAssert.assertNotNull(changes, Status.PRECONDITION_FAILED);
+		return changes;
+	}
+	
+	@Override
+	public String getFilesHash(String template) {
+		RESTAssert.assertNotEmpty(template);
+		return this.agentRequestGate.execute(() -> this.fileHandler.getFilesHashForTemplate(template));
+	}
+	
+	@Override
+	public ServiceStatesChanges notifyServiceState(String template, String host, String uuid, String filesHash, ServiceStates serviceState) {
+		RESTAssert.assertNotEmpty(template);
+		RESTAssert.assertNotEmpty(host);
+		RESTAssert.assertNotEmpty(uuid);
+		RESTAssert.assertNotEmpty(filesHash);
+		RESTAssert.assertNotNull(serviceState);
+		
+		return this.agentRequestGate.execute(() -> this.agentHandler.handleServiceState(template, serviceState, uuid, filesHash));
+	}
+	
+}
@@ -1,6 +1,7 @@
 package de.cinovo.cloudconductor.server.rest.agent;
 
 import de.cinovo.cloudconductor.server.handler.AgentHandler;
+import de.cinovo.cloudconductor.server.util.AgentRequestGate;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import de.cinovo.cloudconductor.api.interfaces.IAgent;
@@ -11,7 +12,6 @@ import de.cinovo.cloudconductor.api.model.ServiceStates;
 import de.cinovo.cloudconductor.api.model.ServiceStatesChanges;
 import de.taimos.dvalin.jaxrs.JaxRsComponent;
 import de.taimos.restutils.RESTAssert;
-import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Copyright 2017 Cinovo AG<br>
@@ -25,39 +25,38 @@ public class AgentImpl implements IAgent {
 	
 	@Autowired
 	private AgentHandler agentHandler;
+	@Autowired
+	private AgentRequestGate agentRequestGate;
 	
 	
 	@Override
-	@Transactional
 	public PackageStateChanges notifyPackageState(String template, String host, PackageState rpmState, String uuid) {
 		RESTAssert.assertNotEmpty(template);
 		RESTAssert.assertNotEmpty(host);
 		RESTAssert.assertNotEmpty(uuid);
 		RESTAssert.assertNotNull(rpmState);
 
-		return this.agentHandler.handlePackageState(host, template, rpmState, uuid);
+		return this.agentRequestGate.execute(() -> this.agentHandler.handlePackageState(host, template, rpmState, uuid));
 	}
 	
 	@Override
-	@Transactional
 	public ServiceStatesChanges notifyServiceState(String template, String host, ServiceStates serviceState, String uuid) {
 		RESTAssert.assertNotEmpty(host);
 		RESTAssert.assertNotEmpty(template);
 		RESTAssert.assertNotNull(serviceState);
 		RESTAssert.assertNotEmpty(uuid);
 
-		return this.agentHandler.handleServiceState(template, serviceState, uuid);
+		return this.agentRequestGate.execute(() -> this.agentHandler.handleServiceState(template, serviceState, uuid));
 	}
 	
 	@Override
-	@Transactional
 	public AgentOption heartBeat(String template, String host, String agent, String uuid) {
 		RESTAssert.assertNotEmpty(host);
 		RESTAssert.assertNotEmpty(template);
 		RESTAssert.assertNotEmpty(agent);
 		RESTAssert.assertNotEmpty(uuid);
 		
-		AgentOption option = this.agentHandler.handleHeartBeat(template, host, agent, uuid);
+		AgentOption option = this.agentRequestGate.execute(() -> this.agentHandler.handleHeartBeat(template, host, agent, uuid));
 		
 		RESTAssert.assertNotNull(option.getUuid());
 		return option;
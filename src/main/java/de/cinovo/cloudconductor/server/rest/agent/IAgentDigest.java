@@ -0,0 +1,71 @@
+package de.cinovo.cloudconductor.server.rest.agent;
+
+import de.cinovo.cloudconductor.api.MediaType;
+import de.cinovo.cloudconductor.api.model.PackageStateChanges;
+import de.cinovo.cloudconductor.api.model.ServiceStates;
+import de.cinovo.cloudconductor.api.model.ServiceStatesChanges;
+
+import javax.annotation.security.RolesAllowed;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Agent endpoints reporting only the digest of a state instead of the whole state. They have their own root, below the
+ * agent api they would collide with a template named digest.
+ *
+ * @author mweise
+ */
+@Path("/agentdigest")
+public interface IAgentDigest {
+	
+	/**
+	 * Reports an unchanged package state. Responds with status 412 if the digest does not match the last full package
+	 * state report of the host, the agent has to send its full package state then.
+	 *
+	 * @param template the template name
+	 * @param host     the host name
+	 * @param uuid     the uuid of the host
+	 * @param digest   the digest of the installed packages, see {@link de.cinovo.cloudconductor.server.util.PackageDigest}
+	 * @return the package state changes
+	 */
+	@PUT
+	@Path("/{template}/{host}/{uuid}/package/{digest}")
+	@Produces(MediaType.APPLICATION_JSON)
+	@RolesAllowed("USE_AGENT_API")
+	PackageStateChanges notifyPackageDigest(@PathParam("template") String template, @PathParam("host") String host, @PathParam("uuid") String uuid, @PathParam("digest") String digest);
+	
+	/**
+	 * @param template the template name
+	 * @return the hash of the configuration files used by the template
+	 */
+	@GET
+	@Path("/{template}/files")
+	@Produces(MediaType.APPLICATION_JSON)
+	@RolesAllowed("USE_AGENT_API")
+	String getFilesHash(@PathParam("template") String template);
+	
+	/**
+	 * Reports the service state like the agent api does, but leaves out the configuration files of the template if they
+	 * still match the given hash. The configuration files of the response are null in this case.
+	 *
+	 * @param template     the template name
+	 * @param host         the host name
+	 * @param uuid         the uuid of the host
+	 * @param filesHash    the hash of the configuration files known to the agent, see {@link #getFilesHash(String)}
+	 * @param serviceState the service state
+	 * @return the service state changes
+	 */
+	@PUT
+	@Path("/{template}/{host}/{uuid}/service/{files}")
+	@Consumes(MediaType.APPLICATION_JSON)
+	@Produces(MediaType.APPLICATION_JSON)
+	@RolesAllowed("USE_AGENT_API")
+	ServiceStatesChanges notifyServiceState(@PathParam("template") String template, @PathParam("host") String host, @PathParam("uuid") String uuid, @PathParam("files") String filesHash, ServiceStates serviceState);
+	
+}
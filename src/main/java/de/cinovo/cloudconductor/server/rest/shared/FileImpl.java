@@ -25,6 +25,7 @@ import de.cinovo.cloudconductor.server.dao.IPackageDAO;
 import de.cinovo.cloudconductor.server.handler.FileHandler;
 import de.cinovo.cloudconductor.server.model.EFile;
 import de.cinovo.cloudconductor.server.model.EFileData;
+import de.cinovo.cloudconductor.server.util.FileManifestCache;
 import de.taimos.dvalin.jaxrs.JaxRsComponent;
 import de.taimos.restutils.RESTAssert;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -50,6 +51,8 @@ public class FileImpl implements IFile {
 	private FileHandler fileHandler;
 	@Autowired
 	private IPackageDAO packageDAO;
+	@Autowired
+	private FileManifestCache fileManifestCache;
 	
 	@Override
 	@Transactional
@@ -86,6 +89,7 @@ public class FileImpl implements IFile {
 		RESTAssert.assertNotEmpty(name);
 		EFile model = this.fileDAO.findByName(name);
 		RESTAssert.assertNotNull(model, Status.NOT_FOUND);
+		this.fileManifestCache.invalidate(model.getTemplates());
 		this.fileDAO.delete(model);
 	}
 	
@@ -112,6 +116,7 @@ public class FileImpl implements IFile {
 		RESTAssert.assertNotNull(model);
 		
 		model.setChecksum(this.fileHandler.createChecksum(data));
+		this.fileManifestCache.invalidate(model.getTemplates());
 		model = this.fileDAO.save(model);
 		
 		EFileData edata = this.fileDataDAO.findDataByFile(model);
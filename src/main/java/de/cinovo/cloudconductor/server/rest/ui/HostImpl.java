@@ -10,11 +10,11 @@ import de.cinovo.cloudconductor.server.dao.IPackageStateDAO;
 import de.cinovo.cloudconductor.server.dao.IServiceStateDAO;
 import de.cinovo.cloudconductor.server.dao.ITemplateDAO;
 import de.cinovo.cloudconductor.server.handler.HostHandler;
-import de.cinovo.cloudconductor.server.model.EAgent;
+import de.cinovo.cloudconductor.server.handler.PackageStateChangeHandler;
 import de.cinovo.cloudconductor.server.model.EHost;
-import de.cinovo.cloudconductor.server.model.EPackageState;
-import de.cinovo.cloudconductor.server.model.EServiceState;
-import de.cinovo.cloudconductor.server.model.ETemplate;
+import de.cinovo.cloudconductor.server.model.PagedSimpleHost;
+import de.cinovo.cloudconductor.server.util.HeartbeatBuffer;
+import de.cinovo.cloudconductor.server.util.UpdateSlotTracker;
 import de.cinovo.cloudconductor.server.websockets.model.WSChangeEvent;
 import de.cinovo.cloudconductor.server.websockets.model.WSChangeEvent.ChangeType;
 import de.cinovo.cloudconductor.server.ws.host.HostDetailWSHandler;
@@ -25,8 +25,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.transaction.Transactional;
 import javax.ws.rs.core.Response;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Copyright 2017 Cinovo AG<br>
@@ -54,28 +53,25 @@ public class HostImpl implements IHost {
 	private IAgentDAO agentDAO;
 	@Autowired
 	private IPackageStateDAO packageStateDAO;
+	@Autowired
+	private HeartbeatBuffer heartbeatBuffer;
+	@Autowired
+	private PackageStateChangeHandler packageStateChangeHandler;
+	@Autowired
+	private UpdateSlotTracker updateSlotTracker;
 	
 	@Override
 	@Transactional
 	public Host[] getHosts() {
-		return this.hostDAO.findList().stream().map(h -> h.toApi(this.serviceStateDAO, this.agentDAO, this.packageStateDAO, this.templateDAO)).toArray(Host[]::new);
+		return this.hostDAO.findList().stream().map(this::toApi).toArray(Host[]::new);
 	}
 	
 	@Override
 	@Transactional
 	public SimpleHost[] getSimpleHosts() {
-		List<EHost> list = this.hostDAO.findList();
-		List<SimpleHost> h = new ArrayList<>();
-		for (EHost eHost : list) {
-			ETemplate template = this.templateDAO.findById(eHost.getTemplateId());
-			EAgent agent = this.agentDAO.findById(eHost.getAgentId());
-			//TODO: CREATE COUNTS ON DB
-			List<EServiceState> services = this.serviceStateDAO.findByHost(eHost.getId());
-			List<EPackageState> packages = this.packageStateDAO.findByHost(eHost.getId());
-			SimpleHost sh = new SimpleHost(eHost.getName(), agent.getName(), eHost.getUuid(), template.getName(), eHost.getLastSeen(), (long) services.size(), (long) packages.size());
-			h.add(sh);
+		try (Stream<PagedSimpleHost> hosts = this.hostDAO.streamSimpleHosts(null, 0)) {
+			return hosts.map(PagedSimpleHost::toSimpleHost).map(this::withBufferedLastSeen).toArray(SimpleHost[]::new);
 		}
-		return h.toArray(new SimpleHost[0]);
 	}
 	
 	@Override
@@ -84,7 +80,7 @@ public class HostImpl implements IHost {
 		RESTAssert.assertNotEmpty(hostUuid);
 		EHost eHost = this.hostDAO.findByUuid(hostUuid);
 		RESTAssert.assertNotNull(eHost, Response.Status.NOT_FOUND);
-		return eHost.toApi(this.serviceStateDAO, this.agentDAO, this.packageStateDAO, this.templateDAO);
+		return this.toApi(eHost);
 	}
 	
 	@Override
@@ -95,6 +91,8 @@ public class HostImpl implements IHost {
 		RESTAssert.assertNotNull(eHost);
 		this.hostsWsHandler.broadcastEvent(eHost, ChangeType.DELETED);
 		this.hostDAO.delete(eHost);
+		this.packageStateChangeHandler.evict(eHost.getId());
+		this.updateSlotTracker.hostsChanged(eHost.getTemplateId());
 	}
 	
 	@Override
@@ -106,7 +104,7 @@ public class HostImpl implements IHost {
 		EHost eHost = this.hostDAO.findByUuid(changeServiceState.getHostUuid());
 		this.hostHandler.changeServiceState(eHost, changeServiceState.getService(), changeServiceState.getTargetState());
 		eHost = this.hostDAO.save(eHost);
-		this.hostDetailWsHandler.broadcastChange(changeServiceState.getHostUuid(), new WSChangeEvent<>(ChangeType.UPDATED, eHost.toApi(this.serviceStateDAO, this.agentDAO, this.packageStateDAO, this.templateDAO)));
+		this.hostDetailWsHandler.broadcastChange(changeServiceState.getHostUuid(), new WSChangeEvent<>(ChangeType.UPDATED, this.toApi(eHost)));
 	}
 	
 	@Override
@@ -117,6 +115,17 @@ public class HostImpl implements IHost {
 		EHost eHost = this.hostDAO.findByUuid(hostUuid);
 		RESTAssert.assertNotNull(eHost);
 		eHost = this.hostHandler.moveHostToNewTemplate(eHost, newTemplate);
-		this.hostDetailWsHandler.broadcastChange(eHost.getUuid(), new WSChangeEvent<>(ChangeType.UPDATED, eHost.toApi(this.serviceStateDAO, this.agentDAO, this.packageStateDAO, this.templateDAO)));
+		this.hostDetailWsHandler.broadcastChange(eHost.getUuid(), new WSChangeEvent<>(ChangeType.UPDATED, this.toApi(eHost)));
+	}
+	
+	private SimpleHost withBufferedLastSeen(SimpleHost host) {
+		host.setLastSeen(this.heartbeatBuffer.getLastSeen(host.getUuid(), host.getLastSeen()));
+		return host;
+	}
+	
+	private Host toApi(EHost eHost) {
+		Host host = eHost.toApi(this.serviceStateDAO, this.agentDAO, this.packageStateDAO, this.templateDAO);
+		host.setLastSeen(this.heartbeatBuffer.getLastSeen(eHost));
+		return host;
 	}
 }
@@ -0,0 +1,105 @@
+package de.cinovo.cloudconductor.server.rest.ui;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import de.cinovo.cloudconductor.server.dao.IHostDAO;
+import de.cinovo.cloudconductor.server.model.PagedSimpleHost;
+import de.cinovo.cloudconductor.server.util.HeartbeatBuffer;
+import de.taimos.dvalin.jaxrs.JaxRsComponent;
+import de.taimos.dvalin.jaxrs.MapperFactory;
+import de.taimos.restutils.RESTAssert;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.stream.Stream;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ *
+ * @author mweise
+ */
+@JaxRsComponent
+public class HostListingImpl implements IHostListing {
+
+	private static final int MAX_LIMIT = 10000;
+	private static final ObjectMapper MAPPER = MapperFactory.createDefault();
+
+	@Autowired
+	private IHostDAO hostDAO;
+	@Autowired
+	private HeartbeatBuffer heartbeatBuffer;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+
+	@Override
+	public StreamingOutput getSimpleHosts(Long afterId, int limit) {
+		RESTAssert.assertTrue((limit > 0) && (limit <= HostListingImpl.MAX_LIMIT));
+		return new SimpleHostsOutput(afterId, limit);
+	}
+
+
+	/**
+	 * Writes the hosts while they are read from the database. The JSON provider handles every entity produced as JSON,
+	 * it writes the hosts using {@link JsonSerializable}, other providers use {@link StreamingOutput}.
+	 */
+	private final class SimpleHostsOutput implements StreamingOutput, JsonSerializable {
+
+		private final Long after;
+		private final int limit;
+
+
+		SimpleHostsOutput(Long after, int limit) {
+			this.after = after;
+			this.limit = limit;
+		}
+
+		@Override
+		public void write(OutputStream output) throws IOException {
+			try (JsonGenerator json = HostListingImpl.MAPPER.getFactory().createGenerator(output)) {
+				HostListingImpl.MAPPER.writeValue(json, this);
+			}
+		}
+
+		@Override
+		public void serialize(JsonGenerator json, SerializerProvider serializers) throws IOException {
+			// the hosts are written after the resource method returned, so they need their own transaction
+			TransactionTemplate tx = new TransactionTemplate(HostListingImpl.this.transactionManager);
+			tx.setReadOnly(true);
+			json.writeStartArray();
+			try {
+				tx.executeWithoutResult(status -> {
+					try (Stream<PagedSimpleHost> hosts = HostListingImpl.this.hostDAO.streamSimpleHosts(this.after, this.limit)) {
+						hosts.forEach(host -> this.write(json, serializers, host));
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			json.writeEndArray();
+		}
+
+		@Override
+		public void serializeWithType(JsonGenerator json, SerializerProvider serializers, TypeSerializer typeSer) throws IOException {
+			this.serialize(json, serializers);
+		}
+
+		private void write(JsonGenerator json, SerializerProvider serializers, PagedSimpleHost host) {
+			host.setLastSeen(HostListingImpl.this.heartbeatBuffer.getLastSeen(host.getUuid(), host.getLastSeen()));
+			try {
+				serializers.defaultSerializeValue(host, json);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package de.cinovo.cloudconductor.server.rest.ui;
+
+import de.cinovo.cloudconductor.api.MediaType;
+
+import javax.annotation.security.RolesAllowed;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Lists the hosts page by page, for installations with too many hosts to list them at once.
+ *
+ * @author mweise
+ */
+@Path("/host/simple/page")
+public interface IHostListing {
+
+	/**
+	 * Streams a page of hosts as JSON array of {@link de.cinovo.cloudconductor.server.model.PagedSimpleHost}, ordered
+	 * by id. The next page starts after the id of the last host of the page, a page with less hosts than the limit is
+	 * the last one.
+	 *
+	 * @param afterId the id of the last host of the previous page, none for the first page
+	 * @param limit   the maximum number of hosts of the page
+	 * @return the hosts
+	 */
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	@RolesAllowed("VIEW_HOST")
+	StreamingOutput getSimpleHosts(@QueryParam("after") Long afterId, @QueryParam("limit") @DefaultValue("1000") int limit);
+
+}
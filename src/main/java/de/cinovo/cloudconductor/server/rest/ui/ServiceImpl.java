@@ -87,7 +87,7 @@ public class ServiceImpl implements IService {
 	public void delete(String name) {
 		RESTAssert.assertNotEmpty(name);
 		RESTAssert.assertTrue(this.serviceDAO.exists(name), Status.NOT_FOUND);
-		this.serviceDAO.deleteByName(name);
+		this.serviceHandler.deleteEntity(name);
 	}
 	
 }
@@ -10,6 +10,7 @@ import de.cinovo.cloudconductor.server.dao.IServerOptionsDAO;
 import de.cinovo.cloudconductor.server.handler.TemplateHandler;
 import de.cinovo.cloudconductor.server.model.EServerOptions;
 import de.cinovo.cloudconductor.server.tasks.ServerTaskHelper;
+import de.cinovo.cloudconductor.server.util.DesiredStateCache;
 import de.cinovo.cloudconductor.server.util.GenericModelApiConverter;
 import de.taimos.dvalin.jaxrs.JaxRsComponent;
 import de.taimos.restutils.RESTAssert;
@@ -30,6 +31,8 @@ public class SettingsImpl implements ISettings {
 	private TemplateHandler templateHandler;
 	@Autowired
 	private ServerTaskHelper taskHelper;
+	@Autowired
+	private DesiredStateCache desiredStateCache;
 	
 	
 	@Override
@@ -54,6 +57,7 @@ public class SettingsImpl implements ISettings {
 		
 		EServerOptions newOptions = GenericModelApiConverter.convert(settings, EServerOptions.class);
 		newOptions = this.serverOptionsDAO.save(newOptions);
+		this.desiredStateCache.invalidateAll();
 		
 		if (!newOptions.isAllowautoupdate()) {
 			this.templateHandler.disableAutoUpdate();
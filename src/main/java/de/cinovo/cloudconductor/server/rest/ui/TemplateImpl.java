@@ -31,6 +31,8 @@ import de.cinovo.cloudconductor.server.handler.ServiceDefaultStateHandler;
 import de.cinovo.cloudconductor.server.handler.ServiceHandler;
 import de.cinovo.cloudconductor.server.handler.TemplateHandler;
 import de.cinovo.cloudconductor.server.model.*;
+import de.cinovo.cloudconductor.server.util.DesiredStateCache;
+import de.cinovo.cloudconductor.server.util.FileManifestCache;
 import de.cinovo.cloudconductor.server.util.comparators.TemplatePackageDiffer;
 import de.cinovo.cloudconductor.server.util.comparators.VersionStringComparator;
 import de.cinovo.cloudconductor.server.websockets.model.WSChangeEvent;
@@ -77,6 +79,10 @@ public class TemplateImpl implements ITemplate {
 	@Autowired
 	private HostHandler hostHandler;
 	@Autowired
+	private DesiredStateCache desiredStateCache;
+	@Autowired
+	private FileManifestCache fileManifestCache;
+	@Autowired
 	private ServiceDefaultStateHandler serviceDefaultStateHandler;
 	@Autowired
 	private SSHHandler sshKeyHandler;
@@ -148,6 +154,8 @@ public class TemplateImpl implements ITemplate {
 		ETemplate eTemplate = this.templateDAO.findByName(templateName);
 		RESTAssert.assertNotNull(eTemplate, Status.NOT_FOUND);
 		this.templateDAO.delete(eTemplate);
+		this.desiredStateCache.invalidate(eTemplate.getId());
+		this.fileManifestCache.invalidate(Collections.singletonList(templateName));
 		this.templatesWSHandler.broadcastEvent(new WSChangeEvent<>(ChangeType.DELETED, eTemplate.toApi(this.hostDAO, this.repoDAO, this.packageVersionDAO)));
 	}
 	
@@ -16,8 +16,14 @@ import de.cinovo.cloudconductor.server.handler.RepoHandler;
 import de.cinovo.cloudconductor.server.model.ERepo;
 import de.cinovo.cloudconductor.server.model.EServerOptions;
 import de.cinovo.cloudconductor.server.repo.importer.IPackageImport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -30,13 +36,17 @@ import java.util.concurrent.locks.ReentrantLock;
 public class AllIndexTask implements IServerTasks {
 
 	/**
-	 * prefix for id of repository index tasks
+	 * prevents overlapping submissions of index cycles
 	 */
 	public static final ReentrantLock WORKING = new ReentrantLock();
+	private static final Logger LOGGER = LoggerFactory.getLogger(AllIndexTask.class);
+	// the repos submitted and not finished yet, so a blocked repo is not queued again by every cycle
+	private static final Set<Long> QUEUED = ConcurrentHashMap.newKeySet();
 
 	private final IRepoDAO repoDAO;
 	private final RepoHandler repoHandler;
 	private final IPackageImport packageImport;
+	private final ExecutorService executor;
 	private final Integer timer;
 	private final TimeUnit timerUnit;
 	private final Integer delay;
@@ -46,14 +56,16 @@ public class AllIndexTask implements IServerTasks {
 	 * @param repoDAO       the repo dao
 	 * @param repoHandler   the repo handler
 	 * @param packageImport the package import
+	 * @param executor      the executor indexing the repos in parallel
 	 * @param timer         the timer
 	 * @param timerUnit     the timer unit
 	 * @param delay         the delay in timerUnit
 	 */
-	public AllIndexTask(IRepoDAO repoDAO, RepoHandler repoHandler, IPackageImport packageImport, Integer timer, TimeUnit timerUnit, Integer delay) {
+	public AllIndexTask(IRepoDAO repoDAO, RepoHandler repoHandler, IPackageImport packageImport, ExecutorService executor, Integer timer, TimeUnit timerUnit, Integer delay) {
 		this.repoDAO = repoDAO;
 		this.repoHandler = repoHandler;
 		this.packageImport = packageImport;
+		this.executor = executor;
 		this.timer = timer;
 		this.timerUnit = timerUnit;
 		this.delay = delay;
@@ -92,9 +104,15 @@ public class AllIndexTask implements IServerTasks {
 				if((list == null) || list.isEmpty()) {
 					return;
 				}
+				// the repos indexed longest ago come first
+				list.sort(Comparator.comparing(ERepo::getLastIndex, Comparator.nullsFirst(Comparator.naturalOrder())));
+				// the cycle does not wait for the repos, a repo still being indexed is skipped by its own lock
 				for(ERepo repo : list) {
-					SingleIndexTask singleIndexTask = new SingleIndexTask(this.repoDAO, this.repoHandler, this.packageImport, repo.getId(), this.timer, this.timerUnit, this.delay);
-					singleIndexTask.run();
+					Long repoId = repo.getId();
+					if(AllIndexTask.QUEUED.add(repoId)) {
+						SingleIndexTask singleIndexTask = new SingleIndexTask(this.repoDAO, this.repoHandler, this.packageImport, repoId, this.timer, this.timerUnit, this.delay);
+						this.executor.execute(() -> AllIndexTask.index(singleIndexTask, repoId));
+					}
 				}
 			} finally {
 				AllIndexTask.WORKING.unlock();
@@ -102,4 +120,14 @@ public class AllIndexTask implements IServerTasks {
 		}
 	}
 
+	private static void index(SingleIndexTask singleIndexTask, Long repoId) {
+		try {
+			singleIndexTask.run();
+		} catch(RuntimeException e) {
+			AllIndexTask.LOGGER.error("Failed to index repo " + repoId, e);
+		} finally {
+			AllIndexTask.QUEUED.remove(repoId);
+		}
+	}
+
 }
@@ -18,8 +18,11 @@ package de.cinovo.cloudconductor.server.tasks;
  */
 
 import de.cinovo.cloudconductor.server.dao.IHostDAO;
+import de.cinovo.cloudconductor.server.handler.PackageStateChangeHandler;
 import de.cinovo.cloudconductor.server.model.EHost;
 import de.cinovo.cloudconductor.server.model.EServerOptions;
+import de.cinovo.cloudconductor.server.util.HeartbeatBuffer;
+import de.cinovo.cloudconductor.server.util.UpdateSlotTracker;
 import org.joda.time.DateTime;
 import org.joda.time.Minutes;
 import org.slf4j.Logger;
@@ -45,6 +48,12 @@ public class CleanUpTask implements IServerTasks {
 
 	@Autowired
 	private IHostDAO hostDAO;
+	@Autowired
+	private HeartbeatBuffer heartbeatBuffer;
+	@Autowired
+	private PackageStateChangeHandler packageStateChangeHandler;
+	@Autowired
+	private UpdateSlotTracker updateSlotTracker;
 	private TimeUnit hostCleanUpTimerUnit = null;
 	private Integer hostCleanUpTimer = null;
 
@@ -54,10 +63,12 @@ public class CleanUpTask implements IServerTasks {
 		List<EHost> hosts = this.hostDAO.findList();
 		for(EHost host : hosts) {
 			DateTime now = new DateTime();
-			DateTime dt = new DateTime(host.getLastSeen());
+			DateTime dt = new DateTime(this.heartbeatBuffer.getLastSeen(host));
 			int diff = Minutes.minutesBetween(dt, now).getMinutes();
 			if(diff > CleanUpTask.MAX_AGE) {
 				this.hostDAO.delete(host);
+				this.packageStateChangeHandler.evict(host.getId());
+				this.updateSlotTracker.hostsChanged(host.getTemplateId());
 				CleanUpTask.LOGGER.info("Deleted host '" + host.getName() + "' during clean up.");
 			}
 		}
@@ -0,0 +1,183 @@
+package de.cinovo.cloudconductor.server.tasks;
+
+import de.cinovo.cloudconductor.api.enums.RepoProviderType;
+import de.cinovo.cloudconductor.server.dao.IRepoDAO;
+import de.cinovo.cloudconductor.server.dao.IRepoMirrorDAO;
+import de.cinovo.cloudconductor.server.model.ERepo;
+import de.cinovo.cloudconductor.server.model.ERepoMirror;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Watches the directories of the file mirrors and indexes a repo as soon as its files changed, instead of waiting for
+ * the next run of the index task. The repo is indexed once no further changes happened for two seconds, so a repo
+ * being rewritten is only indexed once. The watched directories are synchronized with the mirrors every minute.<br>
+ * <br>
+ * The watcher can be disabled by setting <code>indexer.watchFiles</code> to false.
+ *
+ * @author mweise
+ */
+@Component
+public class FileMirrorWatcher {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(FileMirrorWatcher.class);
+
+	private static final long QUIET_PERIOD = TimeUnit.SECONDS.toMillis(2);
+	private static final long SYNC_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+	@Value("${indexer.watchFiles:true}")
+	private boolean enabled;
+
+	@Autowired
+	private IRepoDAO repoDAO;
+	@Autowired
+	private IRepoMirrorDAO repoMirrorDAO;
+	@Autowired
+	private IServerRepoTaskHandler repoTaskHandler;
+
+	private WatchService watchService;
+	private final Map<Path, WatchKey> watched = new HashMap<>();
+	private final Map<WatchKey, Long> repoIds = new HashMap<>();
+
+
+	/**
+	 * starts watching the file mirrors
+	 */
+	@PostConstruct
+	public void init() {
+		if (!this.enabled) {
+			return;
+		}
+		try {
+			this.watchService = FileSystems.getDefault().newWatchService();
+		} catch (IOException | UnsupportedOperationException e) {
+			FileMirrorWatcher.LOGGER.warn("Failed to watch the file mirrors, changes are indexed by the index task only", e);
+			return;
+		}
+		Thread thread = new Thread(this::watch, "file-mirror-watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * stops watching the file mirrors
+	 */
+	@PreDestroy
+	public void shutdown() {
+		if (this.watchService != null) {
+			try {
+				this.watchService.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+	private void watch() {
+		Map<Long, Long> changed = new HashMap<>();
+		long nextSync = 0;
+		try {
+			while (true) {
+				long now = System.currentTimeMillis();
+				if (now >= nextSync) {
+					this.sync();
+					nextSync = now + FileMirrorWatcher.SYNC_INTERVAL;
+				}
+				WatchKey key = this.watchService.poll(1, TimeUnit.SECONDS);
+				while (key != null) {
+					key.pollEvents();
+					Long repoId = this.repoIds.get(key);
+					if (repoId != null) {
+						changed.put(repoId, System.currentTimeMillis());
+					}
+					if (!key.reset()) {
+						// the directory was replaced, register the new one
+						nextSync = 0;
+					}
+					key = this.watchService.poll();
+				}
+
+				now = System.currentTimeMillis();
+				Iterator<Map.Entry<Long, Long>> it = changed.entrySet().iterator();
+				while (it.hasNext()) {
+					Map.Entry<Long, Long> entry = it.next();
+					if ((now - entry.getValue()) >= FileMirrorWatcher.QUIET_PERIOD) {
+						it.remove();
+						FileMirrorWatcher.LOGGER.debug("Files of repo {} changed", entry.getKey());
+						this.repoTaskHandler.indexRepo(entry.getKey());
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException e) {
+			// shutdown
+		}
+	}
+
+	private void sync() {
+		Map<Path, Long> wanted = new HashMap<>();
+		try {
+			for (ERepo repo : this.repoDAO.findList()) {
+				if (repo.getPrimaryMirrorId() == null) {
+					continue;
+				}
+				ERepoMirror mirror = this.repoMirrorDAO.findById(repo.getPrimaryMirrorId());
+				if ((mirror == null) || (mirror.getProviderType() != RepoProviderType.FILE) || (mirror.getBasePath() == null)) {
+					continue;
+				}
+				Path base = Paths.get(mirror.getBasePath());
+				wanted.put(base, repo.getId());
+				wanted.put(base.resolve("repodata"), repo.getId());
+			}
+		} catch (RuntimeException e) {
+			FileMirrorWatcher.LOGGER.warn("Failed to load the file mirrors to watch", e);
+			return;
+		}
+
+		Iterator<Map.Entry<Path, WatchKey>> it = this.watched.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Path, WatchKey> entry = it.next();
+			WatchKey key = entry.getValue();
+			if (!key.isValid() || !entry.getKey().equals(key.watchable()) || !wanted.containsKey(entry.getKey()) || !wanted.get(entry.getKey()).equals(this.repoIds.get(key))) {
+				key.cancel();
+				this.repoIds.remove(key);
+				it.remove();
+			}
+		}
+		for (Map.Entry<Path, Long> entry : wanted.entrySet()) {
+			Path dir = entry.getKey();
+			if (this.watched.containsKey(dir) || !Files.isDirectory(dir)) {
+				continue;
+			}
+			try {
+				WatchKey key = dir.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+				this.watched.put(dir, key);
+				this.repoIds.put(key, entry.getValue());
+			} catch (IOException e) {
+				FileMirrorWatcher.LOGGER.warn("Failed to watch {}", dir, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package de.cinovo.cloudconductor.server.tasks;
+
+import de.cinovo.cloudconductor.server.dao.IHostDAO;
+import de.cinovo.cloudconductor.server.model.EServerOptions;
+import de.cinovo.cloudconductor.server.util.HeartbeatBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Writes the buffered last seen timestamps of hosts to the database, a last time when the server shuts down.
+ *
+ * @author mweise
+ */
+@Service
+public class HeartbeatFlushTask implements IServerTasks {
+	
+	private final Logger logger = LoggerFactory.getLogger(HeartbeatFlushTask.class);
+	
+	@Value("${heartbeat.flushInterval:10}")
+	private int flushInterval;
+	
+	private final TimeUnit flushIntervalUnit = TimeUnit.SECONDS;
+	
+	@Autowired
+	private HeartbeatBuffer heartbeatBuffer;
+	@Autowired
+	private IHostDAO hostDAO;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	
+	@Override
+	public String getTaskIdentifier() {
+		return "HEARTBEAT_FLUSH_TASK";
+	}
+	
+	@Override
+	public Integer getTimer() {
+		return this.flushInterval;
+	}
+	
+	@Override
+	public TimeUnit getTimerUnit() {
+		return this.flushIntervalUnit;
+	}
+	
+	@Override
+	public Integer getDelay() {
+		return 0;
+	}
+	
+	@Override
+	public TaskStateChange checkStateChange(EServerOptions oldSettings, EServerOptions newSettings) {
+		return TaskStateChange.START;
+	}
+	
+	@Override
+	@Transactional
+	public void run() {
+		this.flush();
+	}
+	
+	/**
+	 * on destroy, flush the buffered timestamps
+	 */
+	@PreDestroy
+	public void shutdown() {
+		// called on the bean itself, so run() would not be transactional
+		try {
+			new TransactionTemplate(this.transactionManager).executeWithoutResult(status -> this.flush());
+		} catch (RuntimeException e) {
+			this.logger.warn("Failed to flush last seen timestamps on shutdown", e);
+		}
+	}
+	
+	private void flush() {
+		Map<String, Long> pending = this.heartbeatBuffer.getPending();
+		if (pending.isEmpty()) {
+			return;
+		}
+		this.hostDAO.updateLastSeen(pending);
+		this.heartbeatBuffer.markFlushed(pending);
+		this.logger.debug("Flushed last seen timestamps of {} hosts", pending.size());
+	}
+}
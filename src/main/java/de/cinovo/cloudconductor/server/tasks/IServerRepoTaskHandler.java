@@ -24,4 +24,11 @@ public interface IServerRepoTaskHandler {
 	 * @param repoId the repoId
 	 */
 	void forceRepoUpdate(long repoId);
+
+	/**
+	 * indexes the repo in the background if its index changed
+	 *
+	 * @param repoId the repoId
+	 */
+	void indexRepo(long repoId);
 }
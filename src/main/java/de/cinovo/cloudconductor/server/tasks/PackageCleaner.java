@@ -7,6 +7,8 @@ import de.cinovo.cloudconductor.server.dao.ITemplateDAO;
 import de.cinovo.cloudconductor.server.model.EPackage;
 import de.cinovo.cloudconductor.server.model.EPackageVersion;
 import de.cinovo.cloudconductor.server.model.EServerOptions;
+import de.cinovo.cloudconductor.server.util.FileManifestCache;
+import de.cinovo.cloudconductor.server.util.PackageIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,6 +42,10 @@ public class PackageCleaner implements IServerTasks {
 	private ITemplateDAO templateDAO;
 	@Autowired
 	private IFileDAO fileDAO;
+	@Autowired
+	private PackageIndex packageIndex;
+	@Autowired
+	private FileManifestCache fileManifestCache;
 	
 	@Override
 	@Transactional
@@ -74,6 +80,8 @@ public class PackageCleaner implements IServerTasks {
 				this.packageDAO.deleteById(emptyPackage.getId());
 			}
 		}
+		this.packageIndex.invalidate();
+		this.fileManifestCache.invalidateAll();
 	}
 	
 	@Override
@@ -25,8 +25,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
@@ -42,13 +46,12 @@ public class ServerTaskHelper implements SchedulingConfigurer, IServerRepoTaskHa
 	
 	private final Logger logger = LoggerFactory.getLogger(this.getClass());
 	
-	/**
-	 * prefix for id of repository index tasks
-	 */
-	static final ReentrantLock TASK_WORKING = new ReentrantLock();
+	private static final Map<Long, ReentrantLock> REPO_WORKING = new ConcurrentHashMap<>();
 	
 	@Value("${indexTaskType:all}")
 	private String indexTaskType;
+	@Value("${indexer.threads:4}")
+	private int indexThreads;
 	
 	@Autowired
 	private IServerOptionsDAO optionsDAO;
@@ -67,13 +70,28 @@ public class ServerTaskHelper implements SchedulingConfigurer, IServerRepoTaskHa
 	private RepoHandler repoHandler;
 	
 	private final Map<String, AbstractTrigger> running = new HashMap<>();
+	private ExecutorService indexExecutor;
 	
 	
+	/**
+	 * @param repoId the repo id
+	 * @return the lock held while indexing the repo
+	 */
+	static ReentrantLock getRepoLock(Long repoId) {
+		return ServerTaskHelper.REPO_WORKING.computeIfAbsent(repoId, id -> new ReentrantLock());
+	}
+	
 	/**
 	 * on class init
 	 */
 	@PostConstruct
 	public void init() {
+		AtomicInteger threadCount = new AtomicInteger();
+		this.indexExecutor = Executors.newFixedThreadPool(Math.max(1, this.indexThreads), r -> {
+			Thread thread = new Thread(r, "repo-indexer-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
 		EServerOptions settings = this.optionsDAO.get();
 		this.initRepoIndexerTasks(settings);
 	}
@@ -84,6 +102,7 @@ public class ServerTaskHelper implements SchedulingConfigurer, IServerRepoTaskHa
 	@PreDestroy
 	public void shutdown() {
 		this.tasks.forEach(this::stopTask);
+		this.indexExecutor.shutdownNow();
 	}
 	
 	/**
@@ -166,7 +185,7 @@ public class ServerTaskHelper implements SchedulingConfigurer, IServerRepoTaskHa
 			}
 			
 		} else {
-			this.tasks.add(new AllIndexTask(this.repoDAO, this.repoHandler, this.packageImport, settings.getIndexScanTimer(), settings.getIndexScanTimerUnit(), 0));
+			this.tasks.add(new AllIndexTask(this.repoDAO, this.repoHandler, this.packageImport, this.indexExecutor, settings.getIndexScanTimer(), settings.getIndexScanTimerUnit(), 0));
 		}
 	}
 	
@@ -204,6 +223,16 @@ public class ServerTaskHelper implements SchedulingConfigurer, IServerRepoTaskHa
 		Set<IServerTasks> tasksToDelete = this.tasks.stream().filter((t) -> t.getTaskIdentifier().equals(SingleIndexTask.TASK_ID_PREFIX + repoId)).collect(Collectors.toSet());
 		tasksToDelete.forEach(this::stopTask);
 		tasksToDelete.forEach(this.tasks::remove);
+		ReentrantLock lock = ServerTaskHelper.REPO_WORKING.get(repoId);
+		if (lock != null) {
+			// a running index of the repo finishes first, so no later task gets a new lock while the old one is held
+			lock.lock();
+			try {
+				ServerTaskHelper.REPO_WORKING.remove(repoId, lock);
+			} finally {
+				lock.unlock();
+			}
+		}
 	}
 	
 	@Override
@@ -221,4 +250,12 @@ public class ServerTaskHelper implements SchedulingConfigurer, IServerRepoTaskHa
 		}
 	}
 	
+	@Override
+	public void indexRepo(long repoId) {
+		if (this.indexTaskType.equals("none")) {
+			return;
+		}
+		this.indexExecutor.submit(new SingleIndexTask(this.repoDAO, this.repoHandler, this.packageImport, repoId, 0, TimeUnit.MINUTES, 0));
+	}
+	
 }
@@ -12,7 +12,6 @@ package de.cinovo.cloudconductor.server.tasks;
  */
 
 import de.cinovo.cloudconductor.api.lib.exceptions.CloudConductorException;
-import de.cinovo.cloudconductor.api.model.PackageVersion;
 import de.cinovo.cloudconductor.server.dao.IRepoDAO;
 import de.cinovo.cloudconductor.server.handler.RepoHandler;
 import de.cinovo.cloudconductor.server.model.ERepo;
@@ -20,14 +19,15 @@ import de.cinovo.cloudconductor.server.model.ERepoMirror;
 import de.cinovo.cloudconductor.server.model.EServerOptions;
 import de.cinovo.cloudconductor.server.repo.RepoEntry;
 import de.cinovo.cloudconductor.server.repo.importer.IPackageImport;
+import de.cinovo.cloudconductor.server.repo.importer.IRepoImport;
 import de.cinovo.cloudconductor.server.repo.indexer.IRepoIndexer;
 import de.cinovo.cloudconductor.server.repo.provider.IRepoProvider;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Copyright 2014 Hoegernet<br>
@@ -102,38 +102,41 @@ public class SingleIndexTask implements IServerTasks {
 	 * forces a re index, ignoring checksum
 	 */
 	public void forceRun() {
+		if (this.repoId == null) {
+			return;
+		}
+		ReentrantLock lock = ServerTaskHelper.getRepoLock(this.repoId);
 		try {
-			if (ServerTaskHelper.TASK_WORKING.tryLock(5, TimeUnit.MINUTES)) {
+			if (lock.tryLock(5, TimeUnit.MINUTES)) {
 				try {
 					this.execute(true);
 				} finally {
-					ServerTaskHelper.TASK_WORKING.unlock();
+					lock.unlock();
 				}
 			}
 		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 			this.logger.error("Failed to acquire lock for indexing task: {}", this.repoId);
 		}
 	}
 	
 	@Override
 	public void run() {
-		try {
-			if (ServerTaskHelper.TASK_WORKING.tryLock(5, TimeUnit.MINUTES)) {
-				try {
-					this.execute(false);
-				} finally {
-					ServerTaskHelper.TASK_WORKING.unlock();
-				}
+		if (this.repoId == null) {
+			return;
+		}
+		// the repo is already being indexed, nothing to do
+		ReentrantLock lock = ServerTaskHelper.getRepoLock(this.repoId);
+		if (lock.tryLock()) {
+			try {
+				this.execute(false);
+			} finally {
+				lock.unlock();
 			}
-		} catch (InterruptedException e) {
-			this.logger.error("Failed to acquire lock for indexing task: {}", this.repoId);
 		}
 	}
 	
 	private void execute(boolean force) {
-		if (this.repoId == null) {
-			return;
-		}
 		ERepo repo = this.repoDAO.findById(this.repoId);
 		if (repo == null) {
 			this.logger.error("Failed to find the repo with id {}", this.repoId);
@@ -173,10 +176,10 @@ public class SingleIndexTask implements IServerTasks {
 				this.logger.debug("Skipped repo indexing, no new files for mirror '{}'", mirror.getPath());
 				return entry.getChecksum();
 			}
-			Set<PackageVersion> latestIndex = indexer.getRepoIndex(repoProvider);
-			if (latestIndex != null) {
-				this.logger.debug("Latest index includes " + latestIndex.size() + " package versions!");
-				this.packageImport.importVersions(repo, latestIndex);
+			// the versions are imported while the index is read
+			IRepoImport repoImport = this.packageImport.startImport(repo);
+			if (indexer.streamRepoIndex(repoProvider, repoImport)) {
+				repoImport.finish();
 				return entry.getChecksum();
 			}
 		} catch (Exception e) {
@@ -1,12 +1,19 @@
 package de.cinovo.cloudconductor.server.util;
 
 import com.amazonaws.AmazonWebServiceClient;
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
 import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 
 import de.cinovo.cloudconductor.server.model.ERepoMirror;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Copyright 2014 Hoegernet<br>
  * <br>
@@ -27,6 +34,9 @@ import de.cinovo.cloudconductor.server.model.ERepoMirror;
  */
 public final class AWSClientFactory {
 	
+	private static final Map<String, AmazonS3> S3_CLIENTS = new ConcurrentHashMap<>();
+	
+	
 	private AWSClientFactory() {
 		// private utility class constructor
 	}
@@ -52,14 +62,42 @@ public final class AWSClientFactory {
 	 * @return the created client
 	 */
 	public static <T extends AmazonWebServiceClient> T createClient(Class<T> clientClass, ERepoMirror mirror) {
-		String regionName = "eu-west-1";
-		if ((mirror.getAwsRegion() != null) && !mirror.getAwsRegion().isEmpty()) {
-			regionName = mirror.getAwsRegion();
-		}
-		Region region = Region.getRegion(Regions.fromName(regionName));
+		Region region = Region.getRegion(Regions.fromName(AWSClientFactory.getRegionName(mirror)));
 		
 		AWSCredentialsProvider credentialProvider = new PackageCredentialProvider(mirror);
 		return region.createClient(clientClass, credentialProvider, null);
 	}
 	
+	/**
+	 * Returns the S3 client shared by all mirrors with the same region and credentials. Each client keeps a pool of up to
+	 * "aws.s3.maxConnections" connections, default is 50. Another endpoint, e.g. a local S3 compatible store, can be used by
+	 * setting the SystemProperty "aws.s3.endpoint".
+	 *
+	 * @param mirror the mirror information to use
+	 * @return the shared client
+	 */
+	public static AmazonS3 getS3Client(ERepoMirror mirror) {
+		String regionName = AWSClientFactory.getRegionName(mirror);
+		String key = regionName + '\n' + mirror.getAccessKeyId() + '\n' + mirror.getSecretKey();
+		return AWSClientFactory.S3_CLIENTS.computeIfAbsent(key, k -> {
+			AmazonS3ClientBuilder builder = AmazonS3ClientBuilder.standard();
+			builder.withCredentials(new PackageCredentialProvider(mirror));
+			builder.withClientConfiguration(new ClientConfiguration().withMaxConnections(Integer.getInteger("aws.s3.maxConnections", 50)));
+			String endpoint = System.getProperty("aws.s3.endpoint");
+			if ((endpoint != null) && !endpoint.isEmpty()) {
+				builder.withEndpointConfiguration(new EndpointConfiguration(endpoint, regionName)).withPathStyleAccessEnabled(true);
+			} else {
+				builder.withRegion(regionName);
+			}
+			return builder.build();
+		});
+	}
+	
+	private static String getRegionName(ERepoMirror mirror) {
+		if ((mirror.getAwsRegion() != null) && !mirror.getAwsRegion().isEmpty()) {
+			return mirror.getAwsRegion();
+		}
+		return "eu-west-1";
+	}
+	
 }
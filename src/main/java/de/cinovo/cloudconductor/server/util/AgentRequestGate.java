@@ -0,0 +1,96 @@
+package de.cinovo.cloudconductor.server.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Limits the number of agent requests working on the database at the same time. If many agents connect at once, only
+ * the configured number of requests open a transaction, all others wait for a permit instead of blocking each other on
+ * the connection pool. Requests not getting a permit in time are answered with status 503 and the agent retries
+ * later.<br>
+ * <br>
+ * The gate is disabled unless <code>agent.dbPermits</code> is set to a positive number.
+ *
+ * @author mweise
+ */
+@Component
+public class AgentRequestGate {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AgentRequestGate.class);
+
+	@Value("${agent.dbPermits:0}")
+	private int permits;
+	@Value("${agent.permitTimeout:5000}")
+	private long permitTimeout;
+	@Value("${agent.retryAfter:5}")
+	private int retryAfter;
+
+	private Semaphore semaphore;
+
+
+	/**
+	 * Creates the semaphore if the gate is enabled.
+	 */
+	@PostConstruct
+	public void init() {
+		if (this.permits > 0) {
+			this.semaphore = new Semaphore(this.permits, true);
+			AgentRequestGate.LOGGER.info("Agent requests are limited to {} concurrent database users", this.permits);
+		}
+	}
+
+	/**
+	 * Runs the given call once a permit is available. The call has to open its transaction itself, so the database
+	 * connection is only taken while holding the permit.
+	 *
+	 * @param call the call to run
+	 * @param <T>  the result type
+	 * @return the result of the call
+	 * @throws WebApplicationException with status 503 if no permit was available in time
+	 */
+	public <T> T execute(Supplier<T> call) {
+		if (this.semaphore == null) {
+			return call.get();
+		}
+		try {
+			if (!this.semaphore.tryAcquire(this.permitTimeout, TimeUnit.MILLISECONDS)) {
+				AgentRequestGate.LOGGER.debug("No database permit available for agent request");
+				throw new WebApplicationException(Response.status(Status.SERVICE_UNAVAILABLE).header("Retry-After", this.retryAfter).build());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new WebApplicationException(Status.SERVICE_UNAVAILABLE);
+		}
+		try {
+			return call.get();
+		} finally {
+			this.semaphore.release();
+		}
+	}
+
+	/**
+	 * @return the number of free permits or -1 if the gate is disabled
+	 */
+	public int getAvailablePermits() {
+		return (this.semaphore == null) ? -1 : this.semaphore.availablePermits();
+	}
+
+	/**
+	 * @return the number of requests waiting for a permit
+	 */
+	public int getQueueLength() {
+		return (this.semaphore == null) ? 0 : this.semaphore.getQueueLength();
+	}
+}
@@ -0,0 +1,169 @@
+package de.cinovo.cloudconductor.server.util;
+
+import de.cinovo.cloudconductor.api.model.PackageVersion;
+import de.cinovo.cloudconductor.server.dao.IDependencyDAO;
+import de.cinovo.cloudconductor.server.dao.IPackageVersionDAO;
+import de.cinovo.cloudconductor.server.dao.IRepoDAO;
+import de.cinovo.cloudconductor.server.dao.IServerOptionsDAO;
+import de.cinovo.cloudconductor.server.dao.ITemplateDAO;
+import de.cinovo.cloudconductor.server.model.EPackageVersion;
+import de.cinovo.cloudconductor.server.model.ETemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Cache of the desired package state of each template, used to compute the package changes of hosts without loading the
+ * template, its package versions and the server options again for every host. A template's state has to be invalidated
+ * whenever the template changes, all states whenever package versions, repositories or the server options change.
+ *
+ * @author mweise
+ */
+@Component
+public class DesiredStateCache {
+
+	@Autowired
+	private ITemplateDAO templateDAO;
+	@Autowired
+	private IPackageVersionDAO packageVersionDAO;
+	@Autowired
+	private IRepoDAO repoDAO;
+	@Autowired
+	private IDependencyDAO dependencyDAO;
+	@Autowired
+	private IServerOptionsDAO serverOptionsDAO;
+
+	@Value("${cache.ttl:30}")
+	private long ttl;
+
+	private InvalidatingCache<Long, DesiredState> states;
+
+
+	/**
+	 * Creates the cache.
+	 */
+	@PostConstruct
+	public void init() {
+		this.states = new InvalidatingCache<>(this.ttl, this::build);
+	}
+
+	/**
+	 * @param templateId the id of the template
+	 * @return the desired state of the template or null if there is no such template
+	 */
+	public DesiredState get(Long templateId) {
+		return this.states.get(templateId);
+	}
+
+	/**
+	 * Drops the state of the given template, again after completion if called within a transaction.
+	 *
+	 * @param templateId the id of the template
+	 */
+	public void invalidate(Long templateId) {
+		if (templateId == null) {
+			return;
+		}
+		this.states.invalidate(templateId);
+	}
+
+	/**
+	 * Drops the states of all templates, again after completion if called within a transaction.
+	 */
+	public void invalidateAll() {
+		this.states.invalidateAll();
+	}
+
+	private DesiredState build(Long templateId) {
+		ETemplate template = this.templateDAO.findById(templateId);
+		if (template == null) {
+			return null;
+		}
+		List<EPackageVersion> nominal = this.packageVersionDAO.findByIds(template.getPackageVersions());
+		Map<Long, PackageVersion> apiVersions = new HashMap<>();
+		for (EPackageVersion pv : nominal) {
+			apiVersions.put(pv.getId(), pv.toApi(this.repoDAO, this.dependencyDAO));
+		}
+		Set<String> disallowUninstall = new HashSet<>();
+		for (String pkg : this.serverOptionsDAO.get().getDisallowUninstall()) {
+			disallowUninstall.add(DesiredState.normalize(pkg));
+		}
+		boolean noUninstalls = (template.getNoUninstalls() != null) && template.getNoUninstalls();
+		return new DesiredState(nominal, apiVersions, new HashSet<>(template.getRepos()), disallowUninstall, noUninstalls);
+	}
+
+
+	/**
+	 * Immutable snapshot of the package versions a template wants its hosts to run.
+	 */
+	public static final class DesiredState {
+
+		private final List<EPackageVersion> nominal;
+		private final Map<Long, PackageVersion> apiVersions;
+		private final Set<Long> repos;
+		private final Set<String> disallowUninstall;
+		private final boolean noUninstalls;
+
+
+		DesiredState(List<EPackageVersion> nominal, Map<Long, PackageVersion> apiVersions, Set<Long> repos, Set<String> disallowUninstall, boolean noUninstalls) {
+			this.nominal = Collections.unmodifiableList(nominal);
+			this.apiVersions = Collections.unmodifiableMap(apiVersions);
+			this.repos = Collections.unmodifiableSet(repos);
+			this.disallowUninstall = Collections.unmodifiableSet(disallowUninstall);
+			this.noUninstalls = noUninstalls;
+		}
+
+		/**
+		 * @return the package versions of the template
+		 */
+		public List<EPackageVersion> getNominal() {
+			return this.nominal;
+		}
+
+		/**
+		 * @param versionId the id of a package version of the template
+		 * @return the api object of the package version or null if it is not part of the template
+		 */
+		public PackageVersion getApiVersion(Long versionId) {
+			return this.apiVersions.get(versionId);
+		}
+
+		/**
+		 * @param repoId the id of the repository
+		 * @return true if the template uses the repository
+		 */
+		public boolean usesRepo(Long repoId) {
+			return this.repos.contains(repoId);
+		}
+
+		/**
+		 * @param pkgName the name of the package
+		 * @return true if the package must never be uninstalled
+		 */
+		public boolean isUninstallDisallowed(String pkgName) {
+			return this.disallowUninstall.contains(DesiredState.normalize(pkgName));
+		}
+
+		/**
+		 * @return true if packages must not be uninstalled on hosts of the template
+		 */
+		public boolean isNoUninstalls() {
+			return this.noUninstalls;
+		}
+
+		private static String normalize(String pkgName) {
+			return pkgName.trim().toLowerCase(Locale.ROOT);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package de.cinovo.cloudconductor.server.util;
+
+import de.cinovo.cloudconductor.api.model.ConfigFile;
+import de.cinovo.cloudconductor.server.dao.IFileDAO;
+import de.cinovo.cloudconductor.server.dao.IPackageDAO;
+import de.cinovo.cloudconductor.server.model.EFile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Cache of the configuration files of each template, used to answer the service state reports of agents without loading
+ * the files of the template again for every host. The manifest of a template has to be invalidated whenever one of its
+ * files is saved or deleted or the template is renamed or deleted, all manifests whenever services or packages are
+ * renamed or deleted.
+ *
+ * @author mweise
+ */
+@Component
+public class FileManifestCache {
+
+	@Autowired
+	private IFileDAO fileDAO;
+	@Autowired
+	private IPackageDAO packageDAO;
+
+	@Value("${cache.ttl:30}")
+	private long ttl;
+
+	private InvalidatingCache<String, Manifest> manifests;
+
+
+	/**
+	 * Creates the cache.
+	 */
+	@PostConstruct
+	public void init() {
+		this.manifests = new InvalidatingCache<>(this.ttl, this::build);
+	}
+
+	/**
+	 * @param templateName the name of the template
+	 * @return copies of the configuration files used by the template
+	 */
+	public ConfigFile[] getFiles(String templateName) {
+		return this.manifests.get(templateName).getFiles();
+	}
+
+	/**
+	 * @param templateName the name of the template
+	 * @return the hash of the configuration files used by the template
+	 */
+	public String getHash(String templateName) {
+		return this.manifests.get(templateName).getHash();
+	}
+
+	/**
+	 * Drops the manifests of the given templates, again after completion if called within a transaction.
+	 *
+	 * @param templateNames the names of the templates
+	 */
+	public void invalidate(Collection<String> templateNames) {
+		if ((templateNames == null) || templateNames.isEmpty()) {
+			return;
+		}
+		this.manifests.invalidate(templateNames);
+	}
+
+	/**
+	 * Drops all manifests, again after completion if called within a transaction.
+	 */
+	public void invalidateAll() {
+		this.manifests.invalidateAll();
+	}
+
+	private Manifest build(String templateName) {
+		List<EFile> files = this.fileDAO.findByTemplate(templateName);
+		return new Manifest(files.stream().map(f -> f.toApi(this.packageDAO)).toArray(ConfigFile[]::new));
+	}
+
+
+	private static final class Manifest {
+
+		private final ConfigFile[] files;
+		private final String hash;
+
+
+		Manifest(ConfigFile[] files) {
+			this.files = files;
+			List<String> lines = new ArrayList<>();
+			for (ConfigFile cf : files) {
+				lines.add(String.join(" ", cf.getName(), cf.getChecksum(), cf.getTargetPath(), cf.getOwner(), cf.getGroup(), cf.getFileMode(), //
+						cf.getPkg(), String.valueOf(cf.isReloadable()), String.valueOf(cf.isTemplate()), String.valueOf(cf.isDirectory()), //
+						String.valueOf(new TreeSet<>(cf.getDependentServices()))) + '\n');
+			}
+			this.hash = PackageDigest.digest(lines);
+		}
+
+		ConfigFile[] getFiles() {
+			ConfigFile[] result = new ConfigFile[this.files.length];
+			for (int i = 0; i < this.files.length; i++) {
+				result[i] = Manifest.copy(this.files[i]);
+			}
+			return result;
+		}
+
+		private static ConfigFile copy(ConfigFile cf) {
+			ConfigFile copy = new ConfigFile();
+			copy.setName(cf.getName());
+			copy.setPkg(cf.getPkg());
+			copy.setTargetPath(cf.getTargetPath());
+			copy.setOwner(cf.getOwner());
+			copy.setGroup(cf.getGroup());
+			copy.setFileMode(cf.getFileMode());
+			copy.setTemplate(cf.isTemplate());
+			copy.setReloadable(cf.isReloadable());
+			copy.setDirectory(cf.isDirectory());
+			copy.setChecksum(cf.getChecksum());
+			copy.setDependentServices(cf.getDependentServices() == null ? null : new HashSet<>(cf.getDependentServices()));
+			copy.setTemplates(cf.getTemplates() == null ? null : new ArrayList<>(cf.getTemplates()));
+			return copy;
+		}
+
+		String getHash() {
+			return this.hash;
+		}
+	}
+}
@@ -5,23 +5,39 @@ import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
 import java.util.*;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Copyright 2017 Cinovo AG<br>
  * <br>
+ * Copies the fields of an object to the fields with the same name of a new instance of another class. The fields to copy
+ * and their accessors are resolved once per pair of classes and cached as method handles.
  *
  * @author psigloch
  */
 public class GenericModelApiConverter {
 	private static final Logger logger = LoggerFactory.getLogger(GenericModelApiConverter.class);
 
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+	private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+	private static final ClassValue<Map<Class<?>, Mapping>> MAPPINGS = new ClassValue<Map<Class<?>, Mapping>>() {
+		@Override
+		protected Map<Class<?>, Mapping> computeValue(Class<?> originClass) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+
 	private GenericModelApiConverter() {
 		//pervent initialization
 	}
@@ -34,152 +50,196 @@ public class GenericModelApiConverter {
 	 * @return the instanciated destination
 	 */
 	public static <Destination, Origin> Destination convert(Origin origin, Class<Destination> destinationClass) {
-		Destination result = GenericModelApiConverter.createNewInstance(destinationClass);
-		return GenericModelApiConverter.copy(origin, result);
+		Mapping mapping = GenericModelApiConverter.MAPPINGS.get(origin.getClass()).computeIfAbsent(destinationClass, d -> new Mapping(origin.getClass(), d));
+		return destinationClass.cast(mapping.convert(origin));
 	}
 
-	private static <Destination, Origin> Destination copy(Origin origin, Destination result) {
-		HashMap<Field, Field> map = GenericModelApiConverter.resolveFieldMapFromOrigin(origin, result);
-		for(Entry<Field, Field> entry : map.entrySet()) {
-			entry.getKey().setAccessible(true);
-			if(entry.getValue() != null) {
-				GenericModelApiConverter.copyValue(origin, result, entry.getKey(), entry.getValue());
+	private static Object getCorrectValue(Object originalValue, Class<?> originFieldClass, Class<?> destinationFieldClass) {
+		if(originalValue == null) {
+			return null;
+		}
+
+		if(originalValue instanceof Collection && Collection.class.isAssignableFrom(destinationFieldClass)) {
+			Collection<Object> newValue;
+			if(List.class.isAssignableFrom(destinationFieldClass)) {
+				newValue = new ArrayList<>();
+			} else {
+				newValue = new HashSet<>();
+			}
+			for(Object element : (Collection) originalValue) {
+				newValue.add(GenericModelApiConverter.getCorrectValue(element, originFieldClass, destinationFieldClass));
 			}
+			return newValue;
 		}
-		return result;
-	}
 
-	private static <Destination, Origin> void copyValue(Origin origin, Destination result, Field originField, Field destinationField) {
-		try {
-			Object value = GenericModelApiConverter.extractValue(origin, originField);
-			Object correctValue = GenericModelApiConverter.getCorrectValue(value, originField, destinationField);
-			destinationField.set(result, correctValue);
-		} catch(IllegalAccessException | IllegalArgumentException e) {
-			GenericModelApiConverter.logger.error("Failed to copy value", e);
+		if(originalValue instanceof Map && Map.class.isAssignableFrom(destinationFieldClass)) {
+			HashMap<Object, Object> newValue = new HashMap<>();
+			for(Map.Entry<Object, Object> entry : ((Map<Object, Object>) originalValue).entrySet()) {
+				newValue.put(entry.getKey(), GenericModelApiConverter.getCorrectValue(entry.getValue(), originFieldClass, destinationFieldClass));
+			}
+			return newValue;
 		}
 
-	}
+		if(originalValue instanceof BigDecimal && String.class.isAssignableFrom(destinationFieldClass)) {
+			return String.valueOf(originalValue);
+		}
+		if(originalValue instanceof String && BigDecimal.class.isAssignableFrom(destinationFieldClass)) {
+			return new BigDecimal((String) originalValue);
+		}
 
-	private static Object getCorrectValue(Object originalValue, Field originField, Field destinationField) {
-		try {
-			if(originalValue == null) {
-				return null;
-			}
+		if(originalValue instanceof Date && DateTime.class.isAssignableFrom(destinationFieldClass)) {
+			return new DateTime(originalValue);
+		}
+		if(originalValue instanceof DateTime && Date.class.isAssignableFrom(destinationFieldClass)) {
+			return ((DateTime) originalValue).toDate();
+		}
 
-			Class<?> destinationFieldClass = destinationField.getType();
+		if(String.class.isAssignableFrom(destinationFieldClass) && originalValue instanceof INamed) {
+			return ((INamed) originalValue).getName();
+		}
 
-			if(originalValue instanceof Collection && Collection.class.isAssignableFrom(destinationFieldClass)) {
-				Collection<Object> newValue;
-				if(List.class.isAssignableFrom(destinationFieldClass)) {
-					newValue = new ArrayList<>();
-				} else {
-					newValue = new HashSet<>();
-				}
-				for(Object element : (Collection) originalValue) {
-					newValue.add(getCorrectValue(element, originField, destinationField));
-				}
-				return newValue;
-			}
+		if(destinationFieldClass.isAssignableFrom(originFieldClass)) {
+			return originalValue;
+		}
+		return null;
+	}
 
-			if(originalValue instanceof Map && Map.class.isAssignableFrom(destinationFieldClass)) {
-				HashMap<Object, Object> newValue = new HashMap<>();
-				for(Map.Entry<Object, Object> entry : ((Map<Object, Object>) originalValue).entrySet()) {
-					newValue.put(entry.getKey(), getCorrectValue(entry.getValue(), originField, destinationField));
-				}
-				return newValue;
-			}
+	private static String capitalize(String name) {
+		return name != null && !name.isEmpty() ? name.substring(0, 1).toUpperCase(Locale.ENGLISH) + name.substring(1) : name;
+	}
 
-			if(originalValue instanceof BigDecimal && String.class.isAssignableFrom(destinationFieldClass)) {
-				return String.valueOf(originalValue);
-			}
-			if(originalValue instanceof String && BigDecimal.class.isAssignableFrom(destinationFieldClass)) {
-				return new BigDecimal((String) originalValue);
+	private static HashMap<String, Field> createFieldMap(Class<?> clazz) {
+		HashMap<String, Field> result = new HashMap<>();
+		for(Class<?> obj = clazz; !obj.equals(Object.class); obj = obj.getSuperclass()) {
+			Field[] fields = obj.getDeclaredFields();
+			for(Field field : fields) {
+				if(!Modifier.isStatic(field.getModifiers())) {
+					field.setAccessible(true);
+					result.put(field.getName(), field);
+				}
 			}
+		}
+		return result;
+	}
 
-			if(originalValue instanceof Date && DateTime.class.isAssignableFrom(destinationFieldClass)) {
-				return new DateTime(originalValue);
-			}
-			if(originalValue instanceof DateTime && Date.class.isAssignableFrom(destinationFieldClass)) {
-				return ((DateTime) originalValue).toDate();
-			}
 
-			if(String.class.isAssignableFrom(destinationFieldClass) && originalValue instanceof INamed) {
-				return ((INamed) originalValue).getName();
+	/**
+	 * The constructor of the destination class and the accessors of the fields with the same name in both classes.
+	 */
+	private static final class Mapping {
+
+		private final MethodHandle constructor;
+		private final FieldMapping[] fields;
+
+
+		Mapping(Class<?> originClass, Class<?> destinationClass) {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			this.constructor = Mapping.findConstructor(lookup, destinationClass);
+			HashMap<String, Field> originFields = GenericModelApiConverter.createFieldMap(originClass);
+			HashMap<String, Field> destinationFields = GenericModelApiConverter.createFieldMap(destinationClass);
+			List<FieldMapping> result = new ArrayList<>();
+			for(Field field : originFields.values()) {
+				Field destinationField = destinationFields.get(field.getName());
+				if(destinationField != null) {
+					try {
+						result.add(new FieldMapping(lookup, originClass, field, destinationField));
+					} catch(IllegalAccessException e) {
+						GenericModelApiConverter.logger.error("Failed to access field " + field.getName(), e);
+					}
+				}
 			}
+			this.fields = result.toArray(new FieldMapping[0]);
+		}
 
-			if(destinationFieldClass.isAssignableFrom(originField.getType())) {
-				return originalValue;
+		private static MethodHandle findConstructor(MethodHandles.Lookup lookup, Class<?> destinationClass) {
+			try {
+				Constructor<?> constructor = destinationClass.getDeclaredConstructor();
+				constructor.setAccessible(true);
+				return lookup.unreflectConstructor(constructor).asType(GenericModelApiConverter.CONSTRUCTOR_TYPE);
+			} catch(NoSuchMethodException | IllegalAccessException | SecurityException e) {
+				GenericModelApiConverter.logger.error("Failed to find constructor", e);
+				return null;
 			}
-		} catch(SecurityException e) {
-			GenericModelApiConverter.logger.error("Failed to copy value", e);
 		}
-		return null;
-	}
 
-	private static Object extractValue(Object object, Field field) throws IllegalAccessException {
-		try {
-			Method e = GenericModelApiConverter.getGetter(object.getClass(), field.getName());
-			if(e != null) {
-				e.setAccessible(true);
-				return e.invoke(object);
+		Object convert(Object origin) {
+			Object result;
+			try {
+				result = this.constructor == null ? null : (Object) this.constructor.invokeExact();
+			} catch(Throwable e) {
+				GenericModelApiConverter.logger.error("Failed to create new instance", e);
+				return null;
 			}
-		} catch(InvocationTargetException | NoSuchMethodException e) {
-			field.setAccessible(true);
-			return field.get(object);
+			if(result == null) {
+				return null;
+			}
+			try {
+				for(FieldMapping field : this.fields) {
+					field.copy(origin, result);
+				}
+			} catch(RuntimeException | Error e) {
+				throw e;
+			} catch(Throwable e) {
+				throw new IllegalStateException("Failed to convert " + origin.getClass().getName(), e);
+			}
+			return result;
 		}
-		return null;
 	}
 
+	/**
+	 * Reads a field of the origin using its getter if there is one and writes the converted value to the field of the
+	 * destination.
+	 */
+	private static final class FieldMapping {
 
-	private static Method getGetter(Class<?> clazz, String fieldname) throws NoSuchMethodException {
-		try {
-			return clazz.getMethod("get" + GenericModelApiConverter.capitalize(fieldname));
-		} catch(SecurityException e) {
-			GenericModelApiConverter.logger.error("Failed to create getter", e);
-			return null;
-		}
-	}
-
-	private static String capitalize(String name) {
-		return name != null && !name.isEmpty() ? name.substring(0, 1).toUpperCase(Locale.ENGLISH) + name.substring(1) : name;
-	}
+		private final MethodHandle getter;
+		private final MethodHandle fieldGetter;
+		private final MethodHandle setter;
+		private final Class<?> originFieldClass;
+		private final Class<?> destinationFieldClass;
 
-	private static <Destination, Origin> HashMap<Field, Field> resolveFieldMapFromOrigin(Origin origin, Destination destination) {
-		HashMap<String, Field> originFields = GenericModelApiConverter.createFieldMap(origin);
-		HashMap<String, Field> destinationFields = GenericModelApiConverter.createFieldMap(destination);
 
-		HashMap<Field, Field> result = new HashMap<>();
+		FieldMapping(MethodHandles.Lookup lookup, Class<?> originClass, Field originField, Field destinationField) throws IllegalAccessException {
+			this.getter = FieldMapping.findGetter(lookup, originClass, originField.getName());
+			this.fieldGetter = lookup.unreflectGetter(originField).asType(GenericModelApiConverter.GETTER_TYPE);
+			this.setter = lookup.unreflectSetter(destinationField).asType(GenericModelApiConverter.SETTER_TYPE);
+			this.originFieldClass = originField.getType();
+			this.destinationFieldClass = destinationField.getType();
+		}
 
-		for(Field field : originFields.values()) {
-			if(destinationFields.containsKey(field.getName())) {
-				result.put(field, destinationFields.get(field.getName()));
+		private static MethodHandle findGetter(MethodHandles.Lookup lookup, Class<?> clazz, String fieldname) {
+			try {
+				Method method = clazz.getMethod("get" + GenericModelApiConverter.capitalize(fieldname));
+				method.setAccessible(true);
+				return lookup.unreflect(method).asType(GenericModelApiConverter.GETTER_TYPE);
+			} catch(NoSuchMethodException e) {
+				return null;
+			} catch(SecurityException | IllegalAccessException e) {
+				GenericModelApiConverter.logger.error("Failed to create getter", e);
+				return null;
 			}
 		}
 
-		return result;
-	}
-
-	private static <Destination> Destination createNewInstance(Class<Destination> destinationClass) {
-		Destination result = null;
-		try {
-			result = destinationClass.newInstance();
-		} catch(IllegalAccessException | InstantiationException e) {
-			GenericModelApiConverter.logger.error("Failed to create new instance", e);
+		void copy(Object origin, Object result) throws Throwable {
+			Object value = this.extractValue(origin);
+			Object correctValue = GenericModelApiConverter.getCorrectValue(value, this.originFieldClass, this.destinationFieldClass);
+			try {
+				this.setter.invokeExact(result, correctValue);
+			} catch(ClassCastException | NullPointerException e) {
+				// the value does not fit the destination field, e.g. null for a primitive
+				GenericModelApiConverter.logger.error("Failed to copy value", e);
+			}
 		}
-		return result;
-	}
 
-	private static HashMap<String, Field> createFieldMap(Object element) {
-		HashMap<String, Field> result = new HashMap<>();
-		for(Class obj = element.getClass(); !obj.equals(Object.class); obj = obj.getSuperclass()) {
-			Field[] fields = obj.getDeclaredFields();
-			for(Field field : fields) {
-				if(!Modifier.isStatic(field.getModifiers())) {
-					field.setAccessible(true);
-					result.put(field.getName(), field);
+		private Object extractValue(Object origin) throws Throwable {
+			if(this.getter != null) {
+				try {
+					return (Object) this.getter.invokeExact(origin);
+				} catch(Throwable e) {
+					// the getter failed, read the field instead
 				}
 			}
+			return (Object) this.fieldGetter.invokeExact(origin);
 		}
-		return result;
 	}
 }
@@ -0,0 +1,92 @@
+package de.cinovo.cloudconductor.server.util;
+
+import de.cinovo.cloudconductor.server.model.EHost;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Write-behind buffer for the last seen timestamps of hosts. Agent requests only record their heartbeat here, the
+ * timestamps are written to the database periodically by the HeartbeatFlushTask. Everyone reading the last seen
+ * timestamp of a host has to use {@link #getLastSeen(EHost)} to get the current value.
+ *
+ * @author mweise
+ */
+@Component
+public class HeartbeatBuffer {
+
+	private final Map<String, Long> pending = new ConcurrentHashMap<>();
+
+
+	/**
+	 * @param uuid      the uuid of the host
+	 * @param timestamp the time the host was seen
+	 */
+	public void heartbeat(String uuid, long timestamp) {
+		if (uuid == null) {
+			return;
+		}
+		this.pending.merge(uuid, timestamp, Math::max);
+	}
+
+	/**
+	 * @param host the host
+	 * @return the latest last seen timestamp of the host, either buffered or from the host entity
+	 */
+	public Long getLastSeen(EHost host) {
+		return this.getLastSeen(host.getUuid(), host.getLastSeen());
+	}
+
+	/**
+	 * @param uuid     the uuid of the host
+	 * @param lastSeen the last seen timestamp stored in the database
+	 * @return the latest last seen timestamp of the host, either buffered or the stored one
+	 */
+	public Long getLastSeen(String uuid, Long lastSeen) {
+		Long buffered = (uuid == null) ? null : this.pending.get(uuid);
+		if (buffered == null) {
+			return lastSeen;
+		}
+		if (lastSeen == null) {
+			return buffered;
+		}
+		return Math.max(buffered, lastSeen);
+	}
+
+	/**
+	 * @return copy of all timestamps not yet written to the database
+	 */
+	public Map<String, Long> getPending() {
+		return new HashMap<>(this.pending);
+	}
+
+	/**
+	 * Removes the given timestamps from the buffer unless they were updated in the meantime. If called within a
+	 * transaction, they are removed after the transaction was committed.
+	 *
+	 * @param flushed the timestamps written to the database
+	 */
+	public void markFlushed(Map<String, Long> flushed) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCommit() {
+					HeartbeatBuffer.this.remove(flushed);
+				}
+			});
+			return;
+		}
+		this.remove(flushed);
+	}
+
+	private void remove(Map<String, Long> flushed) {
+		flushed.forEach(this.pending::remove);
+	}
+}
@@ -0,0 +1,177 @@
+package de.cinovo.cloudconductor.server.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Cache of values built from the database, used by the caches of the agent path. Values are built on first access and
+ * have to be invalidated whenever the data they are built from changes. Invalidations within a transaction drop the
+ * values again after completion, so no concurrent reader can keep a value built from the uncommitted state, and values
+ * built while an invalidation happened are returned but not kept.<br>
+ * <br>
+ * Each value is built by one caller at a time. Concurrent callers wait for it if there is no value, or keep using the
+ * expired value until the new one is built.<br>
+ * <br>
+ * The invalidation only reaches the cache of this server, so values expire after <code>cache.ttl</code> seconds to pick
+ * up changes made on other servers sharing the database.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @author mweise
+ */
+public final class InvalidatingCache<K, V> {
+
+	private final long ttl;
+	private final Function<K, V> loader;
+
+	private final AtomicLong generation = new AtomicLong();
+	private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+	private final Map<K, Load<V>> loads = new ConcurrentHashMap<>();
+
+
+	/**
+	 * @param ttl    the time in seconds values are kept
+	 * @param loader builds the value of a key, null values are not kept
+	 */
+	public InvalidatingCache(long ttl, Function<K, V> loader) {
+		this.ttl = TimeUnit.SECONDS.toNanos(ttl);
+		this.loader = loader;
+	}
+
+	/**
+	 * @param key the key
+	 * @return the cached value, built if missing or expired
+	 */
+	public V get(K key) {
+		Entry<V> current = this.entries.get(key);
+		if ((current != null) && !current.isExpired(this.ttl)) {
+			return current.value;
+		}
+		long gen = this.generation.get();
+		Load<V> own = new Load<>(gen);
+		// loads started before an invalidation are not joined, they may return the state before the change
+		Load<V> load = this.loads.compute(key, (k, running) -> ((running != null) && (running.generation == gen)) ? running : own);
+		if (load != own) {
+			return (current != null) ? current.value : load.await();
+		}
+		try {
+			V built = this.loader.apply(key);
+			synchronized (this) {
+				// only keep the value if nobody invalidated it while it was built
+				if ((built != null) && (this.generation.get() == gen)) {
+					this.entries.put(key, new Entry<>(built));
+				}
+			}
+			own.future.complete(built);
+			return built;
+		} catch (RuntimeException | Error e) {
+			own.future.completeExceptionally(e);
+			throw e;
+		} finally {
+			this.loads.remove(key, own);
+		}
+	}
+
+	/**
+	 * Drops the value of the given key, again after completion if called within a transaction.
+	 *
+	 * @param key the key
+	 */
+	public void invalidate(K key) {
+		this.invalidate(Collections.singletonList(key));
+	}
+
+	/**
+	 * Drops the values of the given keys, again after completion if called within a transaction.
+	 *
+	 * @param keys the keys
+	 */
+	public void invalidate(Collection<K> keys) {
+		List<K> copy = new ArrayList<>(keys);
+		this.runNowAndAfterCompletion(() -> this.drop(copy));
+	}
+
+	/**
+	 * Drops all values, again after completion if called within a transaction.
+	 */
+	public void invalidateAll() {
+		this.runNowAndAfterCompletion(() -> this.drop(null));
+	}
+
+	private void runNowAndAfterCompletion(Runnable drop) {
+		drop.run();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCompletion(int status) {
+					drop.run();
+				}
+			});
+		}
+	}
+
+	private synchronized void drop(Collection<K> keys) {
+		this.generation.incrementAndGet();
+		if (keys == null) {
+			this.entries.clear();
+		} else {
+			keys.forEach(this.entries::remove);
+		}
+	}
+
+
+	private static final class Entry<V> {
+
+		private final V value;
+		private final long created = System.nanoTime();
+
+
+		Entry(V value) {
+			this.value = value;
+		}
+
+		boolean isExpired(long ttl) {
+			return (System.nanoTime() - this.created) >= ttl;
+		}
+	}
+
+	private static final class Load<V> {
+
+		private final long generation;
+		private final CompletableFuture<V> future = new CompletableFuture<>();
+
+
+		Load(long generation) {
+			this.generation = generation;
+		}
+
+		V await() {
+			try {
+				return this.future.join();
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				if (e.getCause() instanceof Error) {
+					throw (Error) e.getCause();
+				}
+				throw e;
+			}
+		}
+	}
+}
@@ -4,6 +4,7 @@ import de.cinovo.cloudconductor.server.dao.IHostDAO;
 import de.cinovo.cloudconductor.server.dao.IServiceStateDAO;
 import de.cinovo.cloudconductor.server.model.EHost;
 import de.cinovo.cloudconductor.server.model.EServiceState;
+import de.cinovo.cloudconductor.server.repo.RepoFileCache;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,6 +34,8 @@ public class JMXResourceProvider implements DynamicMBean {
 	
 	private static final String INTEGER_TYPE = "Integer";
 	
+	private static final String LONG_TYPE = "Long";
+	
 	private static final String SERVICES_STOPPED = "services-stopped";
 	
 	private static final String SERVICES_RUNNING = "services-running";
@@ -41,6 +44,18 @@ public class JMXResourceProvider implements DynamicMBean {
 	
 	private static final String HOSTS_LIVE = "hosts-live";
 	
+	private static final String AGENT_PERMITS_FREE = "agent-permits-free";
+	
+	private static final String AGENT_REQUESTS_WAITING = "agent-requests-waiting";
+	
+	private static final String REPO_CACHE_HITS = "repo-cache-hits";
+	
+	private static final String REPO_CACHE_MISSES = "repo-cache-misses";
+	
+	private static final String REPO_CACHE_SIZE = "repo-cache-size";
+	
+	private static final String REPO_BYTES_SERVED = "repo-bytes-served";
+	
 	private static final Logger LOGGER = LoggerFactory.getLogger(JMXResourceProvider.class);
 	
 	@Autowired
@@ -49,6 +64,15 @@ public class JMXResourceProvider implements DynamicMBean {
 	@Autowired
 	private IHostDAO dHost;
 	
+	@Autowired
+	private HeartbeatBuffer heartbeatBuffer;
+	
+	@Autowired
+	private AgentRequestGate agentRequestGate;
+	
+	@Autowired
+	private RepoFileCache repoFileCache;
+	
 	private MBeanAttributeInfo[] attributeInfos;
 	private MBeanInfo beanInfo;
 	
@@ -58,11 +82,17 @@ public class JMXResourceProvider implements DynamicMBean {
 	 */
 	@PostConstruct
 	public void init() {
-		this.attributeInfos = new MBeanAttributeInfo[4];
+		this.attributeInfos = new MBeanAttributeInfo[10];
 		this.attributeInfos[0] = new MBeanAttributeInfo(JMXResourceProvider.HOSTS_LIVE, JMXResourceProvider.INTEGER_TYPE, "living hosts", true, false, false);
 		this.attributeInfos[1] = new MBeanAttributeInfo(JMXResourceProvider.HOSTS_DOWN, JMXResourceProvider.INTEGER_TYPE, "dead hosts", true, false, false);
 		this.attributeInfos[2] = new MBeanAttributeInfo(JMXResourceProvider.SERVICES_RUNNING, JMXResourceProvider.INTEGER_TYPE, "running services", true, false, false);
 		this.attributeInfos[3] = new MBeanAttributeInfo(JMXResourceProvider.SERVICES_STOPPED, JMXResourceProvider.INTEGER_TYPE, "stopped services", true, false, false);
+		this.attributeInfos[4] = new MBeanAttributeInfo(JMXResourceProvider.AGENT_PERMITS_FREE, JMXResourceProvider.INTEGER_TYPE, "free database permits for agent requests", true, false, false);
+		this.attributeInfos[5] = new MBeanAttributeInfo(JMXResourceProvider.AGENT_REQUESTS_WAITING, JMXResourceProvider.INTEGER_TYPE, "agent requests waiting for a database permit", true, false, false);
+		this.attributeInfos[6] = new MBeanAttributeInfo(JMXResourceProvider.REPO_CACHE_HITS, JMXResourceProvider.LONG_TYPE, "repo files served from the cache", true, false, false);
+		this.attributeInfos[7] = new MBeanAttributeInfo(JMXResourceProvider.REPO_CACHE_MISSES, JMXResourceProvider.LONG_TYPE, "repo files not found in the cache", true, false, false);
+		this.attributeInfos[8] = new MBeanAttributeInfo(JMXResourceProvider.REPO_CACHE_SIZE, JMXResourceProvider.LONG_TYPE, "bytes of cached repo files", true, false, false);
+		this.attributeInfos[9] = new MBeanAttributeInfo(JMXResourceProvider.REPO_BYTES_SERVED, JMXResourceProvider.LONG_TYPE, "bytes served by the repo proxy", true, false, false);
 		this.beanInfo = new MBeanInfo(this.getClass().getName(), "", this.attributeInfos, null, null, null);
 	}
 	
@@ -77,6 +107,18 @@ public class JMXResourceProvider implements DynamicMBean {
 			return this.getDeadHosts();
 		case JMXResourceProvider.HOSTS_LIVE:
 			return this.getLiveHosts();
+		case JMXResourceProvider.AGENT_PERMITS_FREE:
+			return this.agentRequestGate.getAvailablePermits();
+		case JMXResourceProvider.AGENT_REQUESTS_WAITING:
+			return this.agentRequestGate.getQueueLength();
+		case JMXResourceProvider.REPO_CACHE_HITS:
+			return this.repoFileCache.getHits();
+		case JMXResourceProvider.REPO_CACHE_MISSES:
+			return this.repoFileCache.getMisses();
+		case JMXResourceProvider.REPO_CACHE_SIZE:
+			return this.repoFileCache.getSize();
+		case JMXResourceProvider.REPO_BYTES_SERVED:
+			return this.repoFileCache.getBytesServed();
 		}
 		
 		return null;
@@ -86,7 +128,7 @@ public class JMXResourceProvider implements DynamicMBean {
 		int count = 0;
 		DateTime now = new DateTime();
 		for (EHost h : this.dHost.findList()) {
-			if (now.minusMinutes(15).getMillis() <= h.getLastSeen()) {
+			if (now.minusMinutes(15).getMillis() <= this.heartbeatBuffer.getLastSeen(h)) {
 				count++;
 			}
 		}
@@ -97,7 +139,7 @@ public class JMXResourceProvider implements DynamicMBean {
 		int count = 0;
 		DateTime now = new DateTime();
 		for (EHost h : this.dHost.findList()) {
-			if (now.minusMinutes(15).getMillis() > h.getLastSeen()) {
+			if (now.minusMinutes(15).getMillis() > this.heartbeatBuffer.getLastSeen(h)) {
 				count++;
 			}
 		}
@@ -0,0 +1,64 @@
+package de.cinovo.cloudconductor.server.util;
+
+import de.cinovo.cloudconductor.api.model.PackageVersion;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Digest of the packages installed on a host. The digest is the lower case hex encoded SHA-256 hash of the lines
+ * <code>name + ' ' + version + '\n'</code> of all installed packages, sorted in ascending order. Agents compute the same
+ * digest to report an unchanged package state without sending the whole list.
+ *
+ * @author mweise
+ */
+public class PackageDigest {
+
+	private PackageDigest() {
+		// prevent initialization
+	}
+
+	/**
+	 * @param installed the installed package versions
+	 * @return the digest of the package versions
+	 */
+	public static String compute(Collection<PackageVersion> installed) {
+		List<String> lines = new ArrayList<>();
+		if (installed != null) {
+			for (PackageVersion pv : installed) {
+				lines.add(pv.getName() + ' ' + pv.getVersion() + '\n');
+			}
+		}
+		return PackageDigest.digest(lines);
+	}
+
+	/**
+	 * @param lines the lines to hash, sorted in place
+	 * @return the lower case hex encoded SHA-256 hash of the sorted lines
+	 */
+	static String digest(List<String> lines) {
+		Collections.sort(lines);
+
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported", e);
+		}
+		for (String line : lines) {
+			digest.update(line.getBytes(StandardCharsets.UTF_8));
+		}
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+}
@@ -0,0 +1,104 @@
+package de.cinovo.cloudconductor.server.util;
+
+import de.cinovo.cloudconductor.server.dao.IPackageDAO;
+import de.cinovo.cloudconductor.server.model.EPackage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Name keyed index of all known packages. The index is built lazily on first access and has to be invalidated whenever
+ * packages are created or deleted. Names missing in the index are looked up in the database once. Packages found are
+ * added to the index, so packages created on other servers sharing the database are found before the index expires.
+ * Names without package are remembered as unknown until the index is invalidated or expires, as most packages installed
+ * on hosts are not provided by any repository.
+ *
+ * @author mweise
+ */
+@Component
+public class PackageIndex {
+
+	private static final int CHUNK_SIZE = 1000;
+	private static final String ALL = "all";
+
+	@Autowired
+	private IPackageDAO packageDAO;
+
+	@Value("${cache.ttl:30}")
+	private long ttl;
+
+	private InvalidatingCache<String, Index> index;
+
+
+	/**
+	 * Creates the cache.
+	 */
+	@PostConstruct
+	public void init() {
+		this.index = new InvalidatingCache<>(this.ttl, key -> this.build());
+	}
+
+	/**
+	 * @param names the names of the packages
+	 * @return the known packages by name, names without package are missing
+	 */
+	public Map<String, EPackage> findByNames(Collection<String> names) {
+		Index current = this.index.get(PackageIndex.ALL);
+		Map<String, EPackage> result = new HashMap<>();
+		List<String> missing = new ArrayList<>();
+		for (String name : names) {
+			EPackage pkg = current.packages.get(name);
+			if (pkg != null) {
+				result.put(name, pkg);
+			} else if ((name != null) && !current.unknown.contains(name)) {
+				missing.add(name);
+			}
+		}
+		for (int i = 0; i < missing.size(); i += PackageIndex.CHUNK_SIZE) {
+			List<String> chunk = missing.subList(i, Math.min(i + PackageIndex.CHUNK_SIZE, missing.size()));
+			for (EPackage pkg : this.packageDAO.findByName(chunk)) {
+				current.packages.put(pkg.getName(), pkg);
+				result.put(pkg.getName(), pkg);
+			}
+			for (String name : chunk) {
+				if (!result.containsKey(name)) {
+					current.unknown.add(name);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Drops the current index, again after completion if called within a transaction.
+	 */
+	public void invalidate() {
+		this.index.invalidateAll();
+	}
+
+	private Index build() {
+		Index built = new Index();
+		for (EPackage pkg : this.packageDAO.findList()) {
+			built.packages.put(pkg.getName(), pkg);
+		}
+		return built;
+	}
+
+
+	private static final class Index {
+
+		private final Map<String, EPackage> packages = new ConcurrentHashMap<>();
+		private final Set<String> unknown = ConcurrentHashMap.newKeySet();
+	}
+}
@@ -0,0 +1,186 @@
+package de.cinovo.cloudconductor.server.util;
+
+import de.cinovo.cloudconductor.server.dao.IHostDAO;
+import de.cinovo.cloudconductor.server.dao.ITemplateDAO;
+import de.cinovo.cloudconductor.server.model.EHost;
+import de.cinovo.cloudconductor.server.model.ETemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Keeps track of the hosts of each template running an update, used to limit the number of hosts updating at the same
+ * time for templates with smooth update. A template has a slot for every second host and an update blocks its slot until
+ * the host finished it or for {@link #LEASE_DURATION} minutes at most. The host counts are cached and have to be
+ * invalidated whenever hosts are created, moved or deleted.<br>
+ * <br>
+ * The local state is only used to reject hosts without touching the database while all slots of a template are known
+ * to be taken. Granting a slot always happens on the database while holding a lock on the template row, so several
+ * servers sharing the database never exceed the limit.
+ *
+ * @author mweise
+ */
+@Component
+public class UpdateSlotTracker {
+
+	/**
+	 * the time in minutes after which an unfinished update does not block its slot anymore
+	 */
+	public static final int LEASE_DURATION = 15;
+
+	private static final long LEASE_MILLIS = TimeUnit.MINUTES.toMillis(UpdateSlotTracker.LEASE_DURATION);
+	private static final long SYNC_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+
+	@Autowired
+	private IHostDAO hostDAO;
+	@Autowired
+	private ITemplateDAO templateDAO;
+
+	@Value("${cache.ttl:30}")
+	private long ttl;
+
+	private final Map<Long, TemplateSlots> templates = new ConcurrentHashMap<>();
+	private InvalidatingCache<Long, Long> hostCounts;
+
+
+	/**
+	 * Loads all running updates with a single query.
+	 */
+	@PostConstruct
+	public void init() {
+		this.hostCounts = new InvalidatingCache<>(this.ttl, this.hostDAO::countForTemplate);
+		long now = System.currentTimeMillis();
+		Map<Long, Map<Long, Long>> leases = new HashMap<>();
+		for (EHost host : this.hostDAO.findUpdating(now - UpdateSlotTracker.LEASE_MILLIS)) {
+			leases.computeIfAbsent(host.getTemplateId(), k -> new HashMap<>()).put(host.getId(), host.getStartedUpdate());
+		}
+		leases.forEach((templateId, templateLeases) -> this.getSlots(templateId).sync(templateLeases, now));
+	}
+
+	/**
+	 * @param templateId the id of the template
+	 * @return the maximum number of hosts of the template allowed to update at the same time
+	 */
+	public long getMaxSlots(Long templateId) {
+		return this.hostCounts.get(templateId) / 2;
+	}
+
+	/**
+	 * Drops the cached host count of the given template, again after completion if called within a transaction.
+	 *
+	 * @param templateId the id of the template whose hosts were created, moved or deleted
+	 */
+	public void hostsChanged(Long templateId) {
+		if (templateId != null) {
+			this.hostCounts.invalidate(templateId);
+		}
+	}
+
+	/**
+	 * Checks the local state only, so other servers may have freed slots in the meantime. The local state is trusted for
+	 * 30 seconds after it was last synchronized with the database.
+	 *
+	 * @param templateId the id of the template
+	 * @param maxSlots   the maximum number of hosts allowed to update at the same time
+	 * @return true if all slots of the template are known to be taken
+	 */
+	public boolean isExhausted(Long templateId, long maxSlots) {
+		TemplateSlots slots = this.templates.get(templateId);
+		return (slots != null) && slots.isExhausted(maxSlots, System.currentTimeMillis());
+	}
+
+	/**
+	 * Tries to acquire an update slot for the given host. Has to be called within a transaction, the template stays locked
+	 * until the transaction is finished.
+	 *
+	 * @param host      the host about to start an update
+	 * @param template  the template of the host
+	 * @param maxSlots  the maximum number of hosts allowed to update at the same time
+	 * @param startedAt the time the host starts its update
+	 * @return true if the host may start its update
+	 */
+	public boolean tryAcquire(EHost host, ETemplate template, long maxSlots, long startedAt) {
+		this.templateDAO.lockForUpdate(template);
+		long now = System.currentTimeMillis();
+		Map<Long, Long> leases = new HashMap<>();
+		for (EHost updating : this.hostDAO.findUpdating(template.getId(), now - UpdateSlotTracker.LEASE_MILLIS)) {
+			leases.put(updating.getId(), updating.getStartedUpdate());
+		}
+		TemplateSlots slots = this.getSlots(template.getId());
+		slots.sync(leases, now);
+		leases.remove(host.getId());
+		if (leases.size() >= maxSlots) {
+			return false;
+		}
+		UpdateSlotTracker.afterCommit(() -> slots.acquire(host.getId(), startedAt));
+		return true;
+	}
+
+	/**
+	 * @param host the host which finished its update
+	 */
+	public void release(EHost host) {
+		TemplateSlots slots = this.templates.get(host.getTemplateId());
+		if (slots != null) {
+			UpdateSlotTracker.afterCommit(() -> slots.release(host.getId()));
+		}
+	}
+
+	private TemplateSlots getSlots(Long templateId) {
+		return this.templates.computeIfAbsent(templateId, k -> new TemplateSlots());
+	}
+
+	private static void afterCommit(Runnable runnable) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			runnable.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+			@Override
+			public void afterCommit() {
+				runnable.run();
+			}
+		});
+	}
+
+
+	private static final class TemplateSlots {
+
+		private final Map<Long, Long> leases = new HashMap<>();
+		private long syncedAt;
+
+
+		synchronized boolean isExhausted(long maxSlots, long now) {
+			if ((now - this.syncedAt) > UpdateSlotTracker.SYNC_INTERVAL) {
+				return false;
+			}
+			this.leases.values().removeIf(startedAt -> (now - startedAt) > UpdateSlotTracker.LEASE_MILLIS);
+			return this.leases.size() >= maxSlots;
+		}
+
+		synchronized void sync(Map<Long, Long> current, long now) {
+			this.leases.clear();
+			this.leases.putAll(current);
+			this.syncedAt = now;
+		}
+
+		synchronized void acquire(Long hostId, long startedAt) {
+			this.leases.put(hostId, startedAt);
+		}
+
+		synchronized void release(Long hostId) {
+			this.leases.remove(hostId);
+		}
+	}
+}
@@ -0,0 +1,343 @@
+package de.cinovo.cloudconductor.server.util.comparators;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * A version string split into tokens once, so it can be compared to other versions without parsing or allocating. The
+ * ordering is the one of {@link VersionStringComparator}: the dot separated parts of the version are compared pairwise,
+ * missing parts count as 0, then the release after the first dash is compared, a missing release counts as 1. Each
+ * part is split into numeric and non-numeric tokens which are compared pairwise, a number being greater than a
+ * non-number and a missing token being less than any token.<br>
+ * <br>
+ * Keys are cached by their version string, use {@link #of(String)} to get one. {@link #getSortKey()} encodes the key as
+ * bytes with the same ordering, so versions can be sorted by the database.
+ *
+ * @author mweise
+ */
+public final class VersionKey implements Comparable<VersionKey> {
+
+	private static final int MAX_CACHED = 100000;
+	// numbers with up to 18 digits fit into a long
+	private static final int MAX_LONG_DIGITS = 18;
+	private static final Map<String, VersionKey> CACHE = new ConcurrentHashMap<>();
+
+	/** the number of version parts the sort key is exact for, missing parts are filled up with 0 */
+	public static final int SORT_KEY_PARTS = 8;
+	private static final byte END = 0x00;
+	private static final byte ALPHA = 0x01;
+	private static final byte NUMERIC = 0x02;
+
+	private static final String[] NO_TEXT = new String[0];
+	private static final long[] NO_NUMBER = new long[0];
+	private static final int[] NO_LENGTH = new int[0];
+
+	private final String version;
+	// the tokens of all parts, the release being the last part
+	private final String[] text;
+	private final long[] number;
+	// the length of a numeric token including leading zeros or -1 for non-numeric tokens
+	private final int[] length;
+	// the index of the first token of every part and the number of tokens at the end
+	private final int[] partStart;
+
+
+	private VersionKey(String version) {
+		this.version = version;
+		if (version.isEmpty()) {
+			this.text = VersionKey.NO_TEXT;
+			this.number = VersionKey.NO_NUMBER;
+			this.length = VersionKey.NO_LENGTH;
+			this.partStart = new int[] {0};
+			return;
+		}
+
+		int dash = version.indexOf('-');
+		String versionPart = (dash < 0) ? version : version.substring(0, dash);
+		String release = ((dash < 0) || (dash == (version.length() - 1))) ? "1" : version.substring(dash + 1);
+		String[] parts = VersionKey.splitParts(versionPart);
+
+		int tokens = VersionKey.countTokens(release);
+		for (String part : parts) {
+			tokens += VersionKey.countTokens(part);
+		}
+		this.text = new String[tokens];
+		this.number = new long[tokens];
+		this.length = new int[tokens];
+		this.partStart = new int[parts.length + 2];
+		int token = 0;
+		for (int i = 0; i < parts.length; i++) {
+			this.partStart[i] = token;
+			token = this.tokenize(parts[i], token);
+		}
+		this.partStart[parts.length] = token;
+		token = this.tokenize(release, token);
+		this.partStart[parts.length + 1] = token;
+	}
+
+	/**
+	 * @param version the version string
+	 * @return the key of the version
+	 */
+	public static VersionKey of(String version) {
+		VersionKey key = VersionKey.CACHE.get(version);
+		if (key == null) {
+			if (VersionKey.CACHE.size() >= VersionKey.MAX_CACHED) {
+				// cheaper than tracking the usage of the keys, the versions in use are cached again quickly
+				VersionKey.CACHE.clear();
+			}
+			key = new VersionKey(version);
+			VersionKey.CACHE.put(version, key);
+		}
+		return key;
+	}
+
+	/**
+	 * @return the version string
+	 */
+	public String getVersion() {
+		return this.version;
+	}
+
+	@Override
+	public int compareTo(VersionKey other) {
+		if (this.version.isEmpty() || other.version.isEmpty()) {
+			return Boolean.compare(!this.version.isEmpty(), !other.version.isEmpty());
+		}
+		int partsA = this.partStart.length - 2;
+		int partsB = other.partStart.length - 2;
+		for (int i = 0; i < Math.max(partsA, partsB); i++) {
+			int c = VersionKey.compareParts(this, (i < partsA) ? i : -1, other, (i < partsB) ? i : -1);
+			if (c != 0) {
+				return c;
+			}
+		}
+		return VersionKey.compareParts(this, partsA, other, partsB);
+	}
+
+	/**
+	 * The sort key compares like the version key if the bytes are compared unsigned and versions have up to
+	 * {@link #SORT_KEY_PARTS} parts. Numeric tokens are stored as their length without leading zeros, the digits and
+	 * their length with leading zeros, non-numeric tokens as their characters terminated by 0, so a shorter token is
+	 * less than a longer one. Every part ends with 0, so missing tokens are less than any token.
+	 *
+	 * @return the sort key of the version
+	 */
+	public byte[] getSortKey() {
+		if (this.version.isEmpty()) {
+			return new byte[0];
+		}
+		ByteArrayOutputStream key = new ByteArrayOutputStream(this.version.length() + (VersionKey.SORT_KEY_PARTS * 4));
+		int parts = this.partStart.length - 2;
+		for (int part = 0; part < Math.max(parts, VersionKey.SORT_KEY_PARTS); part++) {
+			if (part < parts) {
+				this.writePart(key, part);
+			} else {
+				// a missing part is "0"
+				key.write(VersionKey.NUMERIC);
+				key.write(0);
+				key.write(1);
+				key.write(VersionKey.END);
+			}
+		}
+		this.writePart(key, parts);
+		return key.toByteArray();
+	}
+
+	/**
+	 * An update range is matched by the leading parts of a version separated by dots, the last part being followed by a
+	 * dot or a dash. E.g. the minor part of 1.2.3 and 1.2-3 is 2, 1-2.3 has no minor part.
+	 *
+	 * @param index the index of the part, 0 for the major, 1 for the minor and 2 for the patch part
+	 * @return the part or null if the version has no such part
+	 */
+	public String getRangePart(int index) {
+		int start = 0;
+		for (int i = 0; i <= index; i++) {
+			int end = start;
+			while ((end < this.version.length()) && (this.version.charAt(end) != '.') && (this.version.charAt(end) != '-')) {
+				end++;
+			}
+			if (end >= this.version.length()) {
+				return null;
+			}
+			if (i == index) {
+				return this.version.substring(start, end);
+			}
+			if (this.version.charAt(end) != '.') {
+				return null;
+			}
+			start = end + 1;
+		}
+		return null;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return (obj instanceof VersionKey) && this.version.equals(((VersionKey) obj).version);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.version.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return this.version;
+	}
+
+	/**
+	 * @param a     the first key
+	 * @param partA the part of the first key or -1 for a missing part
+	 * @param b     the second key
+	 * @param partB the part of the second key or -1 for a missing part
+	 * @return the comparison of the parts
+	 */
+	private static int compareParts(VersionKey a, int partA, VersionKey b, int partB) {
+		// a missing part is "0", a single numeric token
+		int startA = (partA < 0) ? 0 : a.partStart[partA];
+		int countA = (partA < 0) ? 1 : (a.partStart[partA + 1] - startA);
+		int startB = (partB < 0) ? 0 : b.partStart[partB];
+		int countB = (partB < 0) ? 1 : (b.partStart[partB + 1] - startB);
+		for (int i = 0; i < Math.max(countA, countB); i++) {
+			if ((i >= countA) || (i >= countB)) {
+				return (i < countA) ? 1 : -1;
+			}
+			int tokenA = startA + i;
+			int tokenB = startB + i;
+			int lengthA = (partA < 0) ? 1 : a.length[tokenA];
+			int lengthB = (partB < 0) ? 1 : b.length[tokenB];
+			if ((lengthA < 0) != (lengthB < 0)) {
+				// a number is greater than a non-number
+				return (lengthA < 0) ? -1 : 1;
+			}
+			String textA = (partA < 0) ? "" : a.text[tokenA];
+			String textB = (partB < 0) ? "" : b.text[tokenB];
+			int c;
+			if (lengthA < 0) {
+				c = textA.compareTo(textB);
+			} else {
+				c = Integer.compare(textA.length(), textB.length());
+				if (c == 0) {
+					c = (textA.length() <= VersionKey.MAX_LONG_DIGITS) ? Long.compare((partA < 0) ? 0 : a.number[tokenA], (partB < 0) ? 0 : b.number[tokenB]) : textA.compareTo(textB);
+				}
+				if (c == 0) {
+					// equal numbers, the one with more leading zeros is greater
+					c = Integer.compare(lengthA, lengthB);
+				}
+			}
+			if (c != 0) {
+				return c;
+			}
+		}
+		return 0;
+	}
+
+	private void writePart(ByteArrayOutputStream key, int part) {
+		for (int token = this.partStart[part]; token < this.partStart[part + 1]; token++) {
+			String tokenText = this.text[token];
+			if (this.length[token] < 0) {
+				key.write(VersionKey.ALPHA);
+				for (int i = 0; i < tokenText.length(); i++) {
+					char c = tokenText.charAt(i);
+					if (c < 0x80) {
+						key.write(Math.max(c, 1));
+					} else {
+						// keeps the order of the characters, the first byte is greater than any single byte character
+						key.write(0x80 | (c >> 14));
+						key.write((c >> 7) & 0x7F);
+						key.write(c & 0x7F);
+					}
+				}
+				key.write(VersionKey.END);
+			} else {
+				key.write(VersionKey.NUMERIC);
+				key.write(Math.min(tokenText.length(), 0xFF));
+				for (int i = 0; i < tokenText.length(); i++) {
+					key.write(tokenText.charAt(i));
+				}
+				key.write(Math.min(this.length[token], 0xFF));
+			}
+		}
+		key.write(VersionKey.END);
+	}
+
+	/**
+	 * @param part  the part to tokenize
+	 * @param token the index of the first token
+	 * @return the index after the last token
+	 */
+	private int tokenize(String part, int token) {
+		int pos = 0;
+		while (pos < part.length()) {
+			boolean digits = VersionKey.isDigit(part.charAt(pos));
+			int end = pos + 1;
+			while ((end < part.length()) && (VersionKey.isDigit(part.charAt(end)) == digits)) {
+				end++;
+			}
+			if (digits) {
+				int start = pos;
+				while ((start < (end - 1)) && (part.charAt(start) == '0')) {
+					start++;
+				}
+				// the digits without leading zeros, a number of zeros only is empty
+				String stripped = (part.charAt(start) == '0') ? "" : part.substring(start, end);
+				this.text[token] = stripped;
+				this.number[token] = ((stripped.length() <= VersionKey.MAX_LONG_DIGITS) && !stripped.isEmpty()) ? Long.parseLong(stripped) : 0;
+				this.length[token] = end - pos;
+			} else {
+				this.text[token] = part.substring(pos, end);
+				this.length[token] = -1;
+			}
+			token++;
+			pos = end;
+		}
+		return token;
+	}
+
+	private static String[] splitParts(String version) {
+		// the same as String.split("\\."), trailing empty parts are dropped
+		int end = version.length();
+		while ((end > 0) && (version.charAt(end - 1) == '.')) {
+			end--;
+		}
+		if (end == 0) {
+			return version.isEmpty() ? new String[] {""} : VersionKey.NO_TEXT;
+		}
+		int count = 1;
+		for (int i = 0; i < end; i++) {
+			if (version.charAt(i) == '.') {
+				count++;
+			}
+		}
+		String[] parts = new String[count];
+		int start = 0;
+		int part = 0;
+		for (int i = 0; i < end; i++) {
+			if (version.charAt(i) == '.') {
+				parts[part++] = version.substring(start, i);
+				start = i + 1;
+			}
+		}
+		parts[part] = version.substring(start, end);
+		return parts;
+	}
+
+	private static int countTokens(String part) {
+		int tokens = 0;
+		for (int i = 0; i < part.length(); i++) {
+			if ((i == 0) || (VersionKey.isDigit(part.charAt(i)) != VersionKey.isDigit(part.charAt(i - 1)))) {
+				tokens++;
+			}
+		}
+		return tokens;
+	}
+
+	private static boolean isDigit(char c) {
+		return (c >= '0') && (c <= '9');
+	}
+}
@@ -49,6 +49,15 @@ public abstract class AParamWSHandler<A extends AParamWSAdapter<T>, T> {
 		return false;
 	}
 	
+	/**
+	 * @param name the name to check
+	 * @return true if at least one WS adapter is registered for the given name
+	 */
+	public boolean hasSocketAdapter(String name) {
+		List<A> adapters = this.connectedWS.get(name);
+		return (adapters != null) && !adapters.isEmpty();
+	}
+	
 	/**
 	 * @param name  the name for which the event should be broadcasted
 	 * @param event the event to be broadcasted
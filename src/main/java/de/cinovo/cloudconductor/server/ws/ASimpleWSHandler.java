@@ -34,6 +34,13 @@ public abstract class ASimpleWSHandler<A extends ASimpleWSAdapter<?, T>, T> {
 		this.connectedWS.remove(wsAdapter);
 	}
 	
+	/**
+	 * @return true if at least one WS adapter is connected
+	 */
+	public boolean hasSocketAdapters() {
+		return !this.connectedWS.isEmpty();
+	}
+	
 	/**
 	 * @param changeEvent the event to be sent via all WS connections
 	 */
@@ -0,0 +1,152 @@
+package de.cinovo.cloudconductor.server.ws.host;
+
+import de.cinovo.cloudconductor.server.dao.IHostDAO;
+import de.cinovo.cloudconductor.server.model.EHost;
+import de.cinovo.cloudconductor.server.websockets.model.WSChangeEvent.ChangeType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Broadcasts host updates to the host web sockets asynchronously. All changes within the configured window are merged
+ * into a single broadcast, which loads the current state of the changed hosts after the changing transactions were
+ * committed. Broadcasts run one after the other on a thread of their own, so they never hold more than one database
+ * connection and never delay the scheduled tasks. Nothing is done for a host if no web socket is listening.
+ *
+ * @author mweise
+ */
+@Service
+public class HostChangeBroadcaster {
+	
+	private final Logger logger = LoggerFactory.getLogger(HostChangeBroadcaster.class);
+	
+	@Value("${ws.broadcastDelay:500}")
+	private long broadcastDelay;
+	
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	@Autowired
+	private IHostDAO hostDAO;
+	@Autowired
+	private HostDetailWSHandler hostDetailWSHandler;
+	@Autowired
+	private HostsWSHandler hostsWSHandler;
+	
+	private final Set<String> pending = ConcurrentHashMap.newKeySet();
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private ScheduledExecutorService executor;
+	
+	
+	/**
+	 * Creates the broadcast thread.
+	 */
+	@PostConstruct
+	public void init() {
+		this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "host-change-broadcaster");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * on destroy, drop the pending broadcasts
+	 */
+	@PreDestroy
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+	
+	/**
+	 * Schedules an update broadcast for the given host.
+	 *
+	 * @param host the changed host
+	 */
+	public void hostChanged(EHost host) {
+		if ((host == null) || (host.getUuid() == null)) {
+			return;
+		}
+		String uuid = host.getUuid();
+		if (!this.isListening(uuid)) {
+			return;
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCommit() {
+					HostChangeBroadcaster.this.schedule(uuid);
+				}
+			});
+			return;
+		}
+		this.schedule(uuid);
+	}
+	
+	private boolean isListening(String uuid) {
+		return this.hostDetailWSHandler.hasSocketAdapter(uuid) || this.hostsWSHandler.hasSocketAdapters();
+	}
+	
+	private void schedule(String uuid) {
+		// at most one broadcast is queued, it takes all hosts changed until it runs
+		if (this.pending.add(uuid) && this.scheduled.compareAndSet(false, true)) {
+			this.executor.schedule(this::broadcastPending, this.broadcastDelay, TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	private void broadcastPending() {
+		// changes arriving from now on need another broadcast
+		this.scheduled.set(false);
+		TransactionTemplate tx = new TransactionTemplate(this.transactionManager);
+		tx.setReadOnly(true);
+		try {
+			tx.executeWithoutResult(status -> {
+				Iterator<String> it = this.pending.iterator();
+				while (it.hasNext()) {
+					String uuid = it.next();
+					it.remove();
+					this.broadcast(uuid);
+				}
+			});
+		} catch (RuntimeException e) {
+			this.logger.warn("Failed to broadcast host changes", e);
+		}
+	}
+	
+	private void broadcast(String uuid) {
+		// the web sockets may have been closed in the meantime
+		boolean detail = this.hostDetailWSHandler.hasSocketAdapter(uuid);
+		boolean list = this.hostsWSHandler.hasSocketAdapters();
+		if (!detail && !list) {
+			return;
+		}
+		EHost host = this.hostDAO.findByUuid(uuid);
+		if (host == null) {
+			return;
+		}
+		if (detail) {
+			this.hostDetailWSHandler.broadcastChange(host, ChangeType.UPDATED);
+		}
+		if (list) {
+			this.hostsWSHandler.broadcastEvent(host, ChangeType.UPDATED);
+		}
+	}
+}
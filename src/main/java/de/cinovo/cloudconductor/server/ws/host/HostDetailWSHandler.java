@@ -6,6 +6,7 @@ import de.cinovo.cloudconductor.server.dao.IPackageStateDAO;
 import de.cinovo.cloudconductor.server.dao.IServiceStateDAO;
 import de.cinovo.cloudconductor.server.dao.ITemplateDAO;
 import de.cinovo.cloudconductor.server.model.EHost;
+import de.cinovo.cloudconductor.server.util.HeartbeatBuffer;
 import de.cinovo.cloudconductor.server.websockets.model.WSChangeEvent;
 import de.cinovo.cloudconductor.server.websockets.model.WSChangeEvent.ChangeType;
 import de.cinovo.cloudconductor.server.ws.AParamWSAdapter;
@@ -34,6 +35,8 @@ public class HostDetailWSHandler extends AParamWSHandler<AParamWSAdapter<Host>,
 	private IPackageStateDAO packageStateDAO;
 	@Autowired
 	private ITemplateDAO templateDAO;
+	@Autowired
+	private HeartbeatBuffer heartbeatBuffer;
 	
 	@Override
 	public void addSocketAdapter(String hostName, AParamWSAdapter<Host> a) {
@@ -53,7 +56,12 @@ public class HostDetailWSHandler extends AParamWSHandler<AParamWSAdapter<Host>,
 	 * @param type the type
 	 */
 	public void broadcastChange(EHost host, ChangeType type) {
-		WSChangeEvent<Host> twsChangeEvent = new WSChangeEvent<>(type, host.toApi(this.serviceStateDAO, this.agentDAO, this.packageStateDAO, this.templateDAO));
+		if (!this.hasSocketAdapter(host.getUuid())) {
+			return;
+		}
+		Host api = host.toApi(this.serviceStateDAO, this.agentDAO, this.packageStateDAO, this.templateDAO);
+		api.setLastSeen(this.heartbeatBuffer.getLastSeen(host));
+		WSChangeEvent<Host> twsChangeEvent = new WSChangeEvent<>(type, api);
 		super.broadcastChange(host.getUuid(), twsChangeEvent);
 		HostDetailWSHandler.LOGGER.debug("Broadcasted change for host '{}'", host.getUuid());
 	}
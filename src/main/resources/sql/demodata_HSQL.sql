@@ -78,14 +78,14 @@ INSERT INTO cloudconductor.agent VALUES (6, 'testAgent06', 1);
 INSERT INTO cloudconductor.agent VALUES (7, 'testAgent07', 1);
 INSERT INTO cloudconductor.agent VALUES (8, 'testAgent08', 1);
 
-INSERT INTO cloudconductor.host VALUES (1, 'host1', NULL, 1, 1981489459832, NULL, false, false, false, 1, '123123-123123-123123');
-
-INSERT INTO cloudconductor.packageversion VALUES (1, 1, '9.2.4-1PGDG.rhel6', 'postgresql92');
-INSERT INTO cloudconductor.packageversion VALUES (2, 2, '9.2.4-1PGDG.rhel6', 'postgresql92-libs');
-INSERT INTO cloudconductor.packageversion VALUES (3, 5, '9.2.4-1PGDG.rhel6', 'postgresql92-server');
-INSERT INTO cloudconductor.packageversion VALUES (4, 3, '1.5.3-1', 'nginx');
-INSERT INTO cloudconductor.packageversion VALUES (5, 4, '1.7.0_45-fcs', 'jdk');
-INSERT INTO cloudconductor.packageversion VALUES (6, 6, '0.10.12-1', 'nodejs');
+INSERT INTO cloudconductor.host VALUES (1, 'host1', NULL, 1, 1981489459832, NULL, false, false, false, 1, '123123-123123-123123', NULL);
+
+INSERT INTO cloudconductor.packageversion VALUES (1, 1, '9.2.4-1PGDG.rhel6', 'postgresql92', '9', '2', '4', X'02013901000201320100020134010002000100020001000200010002000100020001000201310101504744472E7268656C000201360100');
+INSERT INTO cloudconductor.packageversion VALUES (2, 2, '9.2.4-1PGDG.rhel6', 'postgresql92-libs', '9', '2', '4', X'02013901000201320100020134010002000100020001000200010002000100020001000201310101504744472E7268656C000201360100');
+INSERT INTO cloudconductor.packageversion VALUES (3, 5, '9.2.4-1PGDG.rhel6', 'postgresql92-server', '9', '2', '4', X'02013901000201320100020134010002000100020001000200010002000100020001000201310101504744472E7268656C000201360100');
+INSERT INTO cloudconductor.packageversion VALUES (4, 3, '1.5.3-1', 'nginx', '1', '5', '3', X'02013101000201350100020133010002000100020001000200010002000100020001000201310100');
+INSERT INTO cloudconductor.packageversion VALUES (5, 4, '1.7.0_45-fcs', 'jdk', '1', '7', '0_45', X'02013101000201370100020001015F000202343502000200010002000100020001000200010002000100016663730000');
+INSERT INTO cloudconductor.packageversion VALUES (6, 6, '0.10.12-1', 'nodejs', '0', '10', '12', X'0200010002023130020002023132020002000100020001000200010002000100020001000201310100');
 
 INSERT INTO cloudconductor.map_version_repo VALUES (1,1);
 INSERT INTO cloudconductor.map_version_repo VALUES (2,1);
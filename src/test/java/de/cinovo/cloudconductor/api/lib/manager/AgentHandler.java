@@ -60,6 +60,19 @@ public class AgentHandler extends AbstractApiHandler {
 		return this._put(path, state, PackageStateChanges.class);
 	}
 	
+	/**
+	 * @param template the template name
+	 * @param host the host name
+	 * @param digest the digest of the package state
+	 * @param uuid the UUID
+	 * @return changes to the package state
+	 * @throws CloudConductorException Error indicating connection or data problems
+	 */
+	public PackageStateChanges notifyPackageDigest(String template, String host, String digest, String uuid) throws CloudConductorException {
+		String path = this.pathGenerator("/agentdigest/{template}/{host}/{uuid}/package/{digest}", template, host, uuid, digest);
+		return this.objectFromResponse(this._put(path), PackageStateChanges.class);
+	}
+	
 	/**
 	 * @param template the template name
 	 * @param host the host name
@@ -73,6 +86,30 @@ public class AgentHandler extends AbstractApiHandler {
 		return this._put(path, state, ServiceStatesChanges.class);
 	}
 	
+	/**
+	 * @param template the template name
+	 * @return the hash of the config files of the template
+	 * @throws CloudConductorException Error indicating connection or data problems
+	 */
+	public String getFilesHash(String template) throws CloudConductorException {
+		String path = this.pathGenerator("/agentdigest/{template}/files", template);
+		return this._get(path, String.class);
+	}
+	
+	/**
+	 * @param template the template name
+	 * @param host the host name
+	 * @param state the service state
+	 * @param filesHash the hash of the config files known to the agent
+	 * @param uuid the UUID
+	 * @return changes to the service state
+	 * @throws CloudConductorException Error indicating connection or data problems
+	 */
+	public ServiceStatesChanges notifyServiceState(String template, String host, ServiceStates state, String filesHash, String uuid) throws CloudConductorException {
+		String path = this.pathGenerator("/agentdigest/{template}/{host}/{uuid}/service/{files}", template, host, uuid, filesHash);
+		return this._put(path, state, ServiceStatesChanges.class);
+	}
+	
 	/**
 	 * @param configFilename the name of the config file
 	 * @return the data of the config file
@@ -19,6 +19,7 @@ package de.cinovo.cloudconductor.api.lib.manager;
 
 import java.util.Set;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import de.cinovo.cloudconductor.api.lib.exceptions.ClientErrorException;
 import de.cinovo.cloudconductor.api.lib.exceptions.CloudConductorException;
 import de.cinovo.cloudconductor.api.lib.helper.DefaultRestHandler;
@@ -52,6 +53,25 @@ public class HostHandler extends DefaultRestHandler<Host> {
 		return Host.class;
 	}
 	
+	/**
+	 * @return the simple hosts as JSON array
+	 * @throws CloudConductorException Error indicating connection or data problems
+	 */
+	public JsonNode getSimple() throws CloudConductorException {
+		return this._get(this.pathGenerator("/simple"), JsonNode.class);
+	}
+	
+	/**
+	 * @param after the id of the last host of the previous page or null
+	 * @param limit the maximum number of hosts
+	 * @return a page of the simple hosts as JSON array
+	 * @throws CloudConductorException Error indicating connection or data problems
+	 */
+	public JsonNode getSimplePage(Long after, int limit) throws CloudConductorException {
+		String path = this.pathGenerator("/simple/page") + "?limit=" + limit + ((after == null) ? "" : "&after=" + after);
+		return this._get(path, JsonNode.class);
+	}
+	
 	/**
 	 * @param name the host name
 	 * @return services of the host
@@ -0,0 +1,94 @@
+package de.cinovo.cloudconductor.server.test;
+
+import de.cinovo.cloudconductor.api.lib.manager.AgentHandler;
+import de.cinovo.cloudconductor.api.model.AgentOption;
+import de.cinovo.cloudconductor.api.model.ServiceStates;
+import de.cinovo.cloudconductor.server.APITest;
+import de.taimos.daemon.spring.SpringDaemonExtension;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Simulates many agents reconnecting at the same time and reports the latency of the agent endpoints. Only runs if the
+ * number of agents is given, e.g. <code>mvn test -Dtest=AgentLoadTest -Dloadtest.agents=500</code>. Add
+ * <code>-Dagent.dbPermits=10</code> to compare with limited database access.
+ *
+ * @author mweise
+ */
+@ExtendWith(SpringDaemonExtension.class)
+@EnabledIfSystemProperty(named = "loadtest.agents", matches = "\\d+")
+class AgentLoadTest extends APITest {
+
+	private static final String TEMPLATE = "otherTemplate";
+
+
+	@Test
+	void testConcurrentAgents() throws Exception {
+		int agents = Integer.parseInt(System.getProperty("loadtest.agents"));
+		ExecutorService executor = Executors.newFixedThreadPool(agents);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<long[]>> futures = new ArrayList<>();
+		for (int i = 0; i < agents; i++) {
+			String host = "LOAD_" + i;
+			futures.add(executor.submit(() -> {
+				AgentHandler agent = new AgentHandler(this.getCSApi(), this.getToken());
+				start.await();
+				long[] latencies = new long[2];
+				long begin = System.nanoTime();
+				AgentOption options = agent.heartBeat(AgentLoadTest.TEMPLATE, host, null, host);
+				latencies[0] = System.nanoTime() - begin;
+				begin = System.nanoTime();
+				agent.notifyServiceState(AgentLoadTest.TEMPLATE, host, new ServiceStates(new ArrayList<>()), options.getUuid());
+				latencies[1] = System.nanoTime() - begin;
+				return latencies;
+			}));
+		}
+		start.countDown();
+
+		List<Long> heartbeats = new ArrayList<>();
+		List<Long> serviceStates = new ArrayList<>();
+		int failed = 0;
+		for (Future<long[]> future : futures) {
+			try {
+				long[] latencies = future.get(5, TimeUnit.MINUTES);
+				heartbeats.add(latencies[0]);
+				serviceStates.add(latencies[1]);
+			} catch (Exception e) {
+				failed++;
+			}
+		}
+		executor.shutdownNow();
+
+		String mode = System.getProperty("agent.dbPermits", "0").equals("0") ? "unlimited" : System.getProperty("agent.dbPermits") + " db permits";
+		System.out.println(String.format("%d agents (%s), %d failed", agents, mode, failed));
+		System.out.println("heart beat:    " + AgentLoadTest.percentiles(heartbeats));
+		System.out.println("service state: " + AgentLoadTest.percentiles(serviceStates));
+		Assertions.assertFalse(heartbeats.isEmpty());
+	}
+
+	private static String percentiles(List<Long> latencies) {
+		if (latencies.isEmpty()) {
+			return "-";
+		}
+		Collections.sort(latencies);
+		return String.format("p50 %d ms, p99 %d ms, max %d ms", AgentLoadTest.percentile(latencies, 50), AgentLoadTest.percentile(latencies, 99), AgentLoadTest.percentile(latencies, 100));
+	}
+
+	private static long percentile(List<Long> sorted, int percent) {
+		int index = (int) Math.ceil((percent / 100.0) * sorted.size()) - 1;
+		return TimeUnit.NANOSECONDS.toMillis(sorted.get(Math.max(0, index)));
+	}
+}
@@ -1,5 +1,6 @@
 package de.cinovo.cloudconductor.server.test;
 
+import de.cinovo.cloudconductor.api.lib.exceptions.ClientErrorException;
 import de.cinovo.cloudconductor.api.lib.exceptions.CloudConductorException;
 import de.cinovo.cloudconductor.api.lib.manager.AgentHandler;
 import de.cinovo.cloudconductor.api.model.AgentOption;
@@ -8,7 +9,9 @@ import de.cinovo.cloudconductor.api.model.PackageState;
 import de.cinovo.cloudconductor.api.model.PackageStateChanges;
 import de.cinovo.cloudconductor.api.model.PackageVersion;
 import de.cinovo.cloudconductor.api.model.ServiceStates;
+import de.cinovo.cloudconductor.api.model.ServiceStatesChanges;
 import de.cinovo.cloudconductor.server.APITest;
+import de.cinovo.cloudconductor.server.util.PackageDigest;
 import de.taimos.daemon.spring.SpringDaemonExtension;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -23,10 +26,12 @@ import java.util.Set;
 class AgentTest extends APITest {
 	
 	private static final String TEMPLATE = "dev";
+	private static final String OTHER_TEMPLATE = "otherTemplate";
 	
 	private static final String HOST_A = "HOST_A";
 	private static final String HOST_B = "HOST_B";
 	private static final String HOST_C = "HOST_C";
+	private static final String HOST_D = "HOST_D";
 	
 	
 	@Test
@@ -41,6 +46,40 @@ class AgentTest extends APITest {
 		}
 	}
 	
+	@Test
+	void testPackageDigest() throws CloudConductorException {
+		AgentHandler agent = new AgentHandler(this.getCSApi(), this.getToken());
+		AgentOption optionsD = agent.heartBeat(AgentTest.OTHER_TEMPLATE, AgentTest.HOST_D, null, "asd3");
+		PackageState installed = this.getAllInstalled();
+		PackageStateChanges full = agent.notifyPackageState(AgentTest.OTHER_TEMPLATE, AgentTest.HOST_D, installed, optionsD.getUuid());
+		{
+			String digest = PackageDigest.compute(installed.getInstalledRpms());
+			PackageStateChanges result = agent.notifyPackageDigest(AgentTest.OTHER_TEMPLATE, AgentTest.HOST_D, digest, optionsD.getUuid());
+			Assertions.assertEquals(full.getToInstall().size(), result.getToInstall().size());
+			Assertions.assertEquals(full.getToUpdate().size(), result.getToUpdate().size());
+			Assertions.assertEquals(full.getToErase().size(), result.getToErase().size());
+		}
+		{
+			String digest = PackageDigest.compute(this.getPartiallyInstalled().getInstalledRpms());
+			Assertions.assertThrows(ClientErrorException.class, () -> agent.notifyPackageDigest(AgentTest.OTHER_TEMPLATE, AgentTest.HOST_D, digest, optionsD.getUuid()));
+		}
+	}
+	
+	@Test
+	void testFilesHash() throws CloudConductorException {
+		AgentHandler agent = new AgentHandler(this.getCSApi(), this.getToken());
+		AgentOption optionsD = agent.heartBeat(AgentTest.OTHER_TEMPLATE, AgentTest.HOST_D, null, "asd3");
+		String hash = agent.getFilesHash(AgentTest.OTHER_TEMPLATE);
+		{
+			ServiceStatesChanges result = agent.notifyServiceState(AgentTest.OTHER_TEMPLATE, AgentTest.HOST_D, new ServiceStates(new ArrayList<>()), hash, optionsD.getUuid());
+			Assertions.assertNull(result.getConfigFiles());
+		}
+		{
+			ServiceStatesChanges result = agent.notifyServiceState(AgentTest.OTHER_TEMPLATE, AgentTest.HOST_D, new ServiceStates(new ArrayList<>()), "outdated", optionsD.getUuid());
+			Assertions.assertNotNull(result.getConfigFiles());
+		}
+	}
+	
 	@Test
 	void testPackageMultiHost() throws CloudConductorException {
 		AgentHandler agent = new AgentHandler(this.getCSApi(), this.getToken());
@@ -17,6 +17,8 @@ package de.cinovo.cloudconductor.server.test;
  * #L%
  */
 
+import com.fasterxml.jackson.databind.JsonNode;
+import de.cinovo.cloudconductor.api.lib.exceptions.ClientErrorException;
 import de.cinovo.cloudconductor.api.lib.exceptions.CloudConductorException;
 import de.cinovo.cloudconductor.api.lib.manager.HostHandler;
 import de.cinovo.cloudconductor.api.model.Host;
@@ -38,6 +40,7 @@ import java.util.Set;
 class HostTest extends APITest {
 	
 	private static final String HOST1 = "host1";
+	private static final String UUID1 = "123123-123123-123123";
 	
 	
 	@Test
@@ -55,4 +58,32 @@ class HostTest extends APITest {
 			Assertions.assertEquals(HostTest.HOST1, host.getName());
 		}
 	}
+	
+	@Test
+	void testSimpleHosts() throws CloudConductorException {
+		HostHandler h = new HostHandler(this.getCSApi(), this.getToken());
+		{
+			JsonNode hosts = h.getSimple();
+			Assertions.assertEquals(1, hosts.size());
+			JsonNode host = hosts.get(0);
+			Assertions.assertEquals(HostTest.HOST1, host.get("name").asText());
+			Assertions.assertEquals(HostTest.UUID1, host.get("uuid").asText());
+			Assertions.assertEquals("dev", host.get("template").asText());
+			Assertions.assertEquals("testAgent01", host.get("agent").asText());
+			Assertions.assertEquals(0, host.get("numberOfServices").asLong());
+			Assertions.assertEquals(0, host.get("numberOfPackages").asLong());
+		}
+		{
+			JsonNode page = h.getSimplePage(null, 10);
+			Assertions.assertEquals(1, page.size());
+			JsonNode host = page.get(0);
+			Assertions.assertEquals(HostTest.UUID1, host.get("uuid").asText());
+			Assertions.assertEquals(HostTest.HOST1, host.get("name").asText());
+			Assertions.assertEquals(0, h.getSimplePage(host.get("id").asLong(), 10).size());
+			Assertions.assertEquals(page, h.getSimplePage(host.get("id").asLong() - 1, 10));
+			// the listing without pages does not contain the ids
+			Assertions.assertFalse(h.getSimple().get(0).has("id"));
+			Assertions.assertThrows(ClientErrorException.class, () -> h.getSimplePage(null, 0));
+		}
+	}
 }
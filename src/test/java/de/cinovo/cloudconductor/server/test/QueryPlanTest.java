@@ -0,0 +1,209 @@
+package de.cinovo.cloudconductor.server.test;
+
+import de.cinovo.cloudconductor.server.dao.hibernate.AuthTokenDAOHib;
+import de.cinovo.cloudconductor.server.dao.hibernate.ConfigValueDAOHib;
+import de.cinovo.cloudconductor.server.dao.hibernate.HostDAOHib;
+import de.cinovo.cloudconductor.server.dao.hibernate.JWTTokenDAOHib;
+import de.cinovo.cloudconductor.server.dao.hibernate.PackageStateDAOHib;
+import de.cinovo.cloudconductor.server.dao.hibernate.PackageVersionDAOHib;
+import de.cinovo.cloudconductor.server.dao.hibernate.ServiceStateDAOHib;
+import de.taimos.dvalin.jpa.EntityDAOHibernate;
+import liquibase.integration.spring.SpringLiquibase;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Checks that the hot lookups of the DAOs in dao/hibernate are answered by the indexes of the liquibase changelog. The
+ * lookups are run against the empty database and the SQL generated by hibernate is explained. HSQL indexes foreign keys
+ * itself and answers lookups of foreign key columns with the index named after the constraint of the changelog. Lookups
+ * HSQL answers without an index of the changelog are only checked on PostgreSQL. The query plans are checked on HSQL
+ * and, if <code>queryplan.postgres.url</code> (and <code>queryplan.postgres.user</code>,
+ * <code>queryplan.postgres.password</code>) points to an empty PostgreSQL database, on PostgreSQL, which does not index
+ * foreign keys.
+ *
+ * @author mweise
+ */
+class QueryPlanTest {
+
+	private static final List<Lookup> LOOKUPS = new ArrayList<>();
+
+	static {
+		QueryPlanTest.LOOKUPS.add(new Lookup("host by uuid", "idx_host_uuid", "idx_host_uuid", em -> QueryPlanTest.dao(new HostDAOHib(), em).findByUuid("uuid")));
+		QueryPlanTest.LOOKUPS.add(new Lookup("hosts of template", "idx_host_templateid", "fk_host_template", em -> QueryPlanTest.dao(new HostDAOHib(), em).findHostsForTemplate(1L)));
+		QueryPlanTest.LOOKUPS.add(new Lookup("package states of host", "idx_packagestate_hostid", "fk_packagestate_host_rpm", em -> QueryPlanTest.dao(new PackageStateDAOHib(), em).findByHost(1L)));
+		QueryPlanTest.LOOKUPS.add(new Lookup("service states of host", "idx_servicestate_hostid", "fk_svcstate_host_svc", em -> QueryPlanTest.dao(new ServiceStateDAOHib(), em).findByHost(1L)));
+		QueryPlanTest.LOOKUPS.add(new Lookup("package version by name", "idx_packageversion_pkgname_version", "idx_packageversion_pkgname_version", em -> QueryPlanTest.dao(new PackageVersionDAOHib(), em).find("pkg", "1.0")));
+		QueryPlanTest.LOOKUPS.add(new Lookup("latest package version in range", "idx_packageversion_range", "idx_packageversion_range", em -> QueryPlanTest.dao(new PackageVersionDAOHib(), em).findLatestProvided("pkg", Collections.singletonList(1L), "1", "2")));
+		QueryPlanTest.LOOKUPS.add(new Lookup("package versions of package", "packageid_version", "packageid_version", em -> QueryPlanTest.dao(new PackageVersionDAOHib(), em).findByPackage(1L)));
+		QueryPlanTest.LOOKUPS.add(new Lookup("config value", "idx_configvalues_lookup", "idx_configvalues_lookup", em -> QueryPlanTest.dao(new ConfigValueDAOHib(), em).findBy("template", "service", "key")));
+		QueryPlanTest.LOOKUPS.add(new Lookup("config services of template", "idx_configvalues_lookup", "idx_configvalues_lookup", em -> QueryPlanTest.dao(new ConfigValueDAOHib(), em).findServicesForTemplate("template")));
+		// HSQL joins from the package versions, so the repo is not looked up by an index there
+		QueryPlanTest.LOOKUPS.add(new Lookup("package versions of repo", "idx_map_version_repo_repoid", null, em -> QueryPlanTest.dao(new PackageVersionDAOHib(), em).findByRepo(1L)));
+		QueryPlanTest.LOOKUPS.add(new Lookup("auth token", "idx_authtoken_token", "idx_authtoken_token", em -> QueryPlanTest.dao(new AuthTokenDAOHib(), em).findByToken("token")));
+		QueryPlanTest.LOOKUPS.add(new Lookup("jwt token", "idx_jwttoken_token", "idx_jwttoken_token", em -> QueryPlanTest.dao(new JWTTokenDAOHib(), em).findByToken("token")));
+	}
+
+
+	@Test
+	void testHSQLQueryPlans() throws Exception {
+		EmbeddedDatabase db = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.HSQL).setName(UUID.randomUUID().toString()).build();
+		try {
+			QueryPlanTest.migrate(db);
+			Map<Lookup, String> statements = QueryPlanTest.statements(db, "org.hibernate.dialect.HSQLDialect");
+			try (Connection con = db.getConnection()) {
+				for (Map.Entry<Lookup, String> statement : statements.entrySet()) {
+					Lookup lookup = statement.getKey();
+					if (lookup.hsqlIndex == null) {
+						continue;
+					}
+					String plan = QueryPlanTest.plan(con, "EXPLAIN PLAN FOR " + statement.getValue());
+					Assertions.assertTrue(plan.toLowerCase(Locale.ENGLISH).contains("index=" + lookup.hsqlIndex), lookup.name + " does not use " + lookup.hsqlIndex + ":\n" + statement.getValue() + "\n" + plan);
+				}
+			}
+		} finally {
+			db.shutdown();
+		}
+	}
+
+	@Test
+	void testPostgreSQLQueryPlans() throws Exception {
+		String url = System.getProperty("queryplan.postgres.url");
+		Assumptions.assumeTrue((url != null) && !url.isEmpty(), "queryplan.postgres.url is not set");
+		DataSource db = new DriverManagerDataSource(url, System.getProperty("queryplan.postgres.user"), System.getProperty("queryplan.postgres.password"));
+		QueryPlanTest.migrate(db);
+		Map<Lookup, String> statements = QueryPlanTest.statements(db, "org.hibernate.dialect.PostgreSQL95Dialect");
+		try (Connection con = db.getConnection()) {
+			try (Statement stmt = con.createStatement()) {
+				// the tables are empty, so a sequential scan would be cheaper otherwise
+				stmt.execute("SET enable_seqscan = off");
+			}
+			for (Map.Entry<Lookup, String> statement : statements.entrySet()) {
+				Lookup lookup = statement.getKey();
+				// untyped literals instead of parameters, they are coerced to the column type
+				String plan = QueryPlanTest.plan(con, "EXPLAIN " + statement.getValue().replace("?", "'1'"));
+				Assertions.assertTrue(plan.contains(" using " + lookup.index), lookup.name + " does not use " + lookup.index + ":\n" + statement.getValue() + "\n" + plan);
+			}
+		}
+	}
+
+	private static void migrate(DataSource db) throws Exception {
+		SpringLiquibase liquibase = new SpringLiquibase();
+		liquibase.setDataSource(db);
+		liquibase.setChangeLog("classpath:liquibase/changelog.xml");
+		liquibase.setResourceLoader(new DefaultResourceLoader());
+		liquibase.afterPropertiesSet();
+	}
+
+	/**
+	 * Runs the lookups and records the first statement hibernate sends for each of them.
+	 */
+	private static Map<Lookup, String> statements(DataSource db, String dialect) {
+		List<String> recorded = new ArrayList<>();
+		Map<String, Object> properties = new HashMap<>();
+		properties.put("hibernate.dialect", dialect);
+		properties.put("hibernate.session_factory.statement_inspector", (StatementInspector) sql -> {
+			recorded.add(sql);
+			return sql;
+		});
+		LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+		factory.setDataSource(db);
+		factory.setPackagesToScan("de.cinovo.cloudconductor.server.model");
+		factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+		factory.setJpaPropertyMap(properties);
+		factory.afterPropertiesSet();
+		EntityManagerFactory emf = factory.getObject();
+		Map<Lookup, String> statements = new LinkedHashMap<>();
+		try {
+			EntityManager em = emf.createEntityManager();
+			try {
+				for (Lookup lookup : QueryPlanTest.LOOKUPS) {
+					recorded.clear();
+					lookup.query.accept(em);
+					Assertions.assertFalse(recorded.isEmpty(), lookup.name + " did not query the database");
+					statements.put(lookup, recorded.get(0));
+				}
+			} finally {
+				em.close();
+			}
+		} finally {
+			factory.destroy();
+		}
+		return statements;
+	}
+
+	private static <D extends EntityDAOHibernate<?, ?>> D dao(D dao, EntityManager em) {
+		try {
+			Field field = EntityDAOHibernate.class.getDeclaredField("entityManager");
+			field.setAccessible(true);
+			field.set(dao, em);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+		return dao;
+	}
+
+	private static String plan(Connection con, String explain) throws SQLException {
+		StringBuilder plan = new StringBuilder();
+		try (PreparedStatement stmt = con.prepareStatement(explain)) {
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					plan.append(rs.getString(1)).append('\n');
+				}
+			}
+		}
+		return plan.toString();
+	}
+
+
+	private static final class Lookup {
+
+		private final String name;
+		private final String index;
+		private final String hsqlIndex;
+		private final Consumer<EntityManager> query;
+
+
+		/**
+		 * @param name      the name of the lookup
+		 * @param index     the index of the changelog expected to answer the lookup
+		 * @param hsqlIndex the index expected on HSQL, named after the constraint for foreign keys, null to skip HSQL
+		 * @param query     runs the lookup of the DAO
+		 */
+		Lookup(String name, String index, String hsqlIndex, Consumer<EntityManager> query) {
+			this.name = name;
+			this.index = index;
+			this.hsqlIndex = hsqlIndex;
+			this.query = query;
+		}
+	}
+}
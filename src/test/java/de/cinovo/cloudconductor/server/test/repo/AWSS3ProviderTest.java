@@ -0,0 +1,197 @@
+package de.cinovo.cloudconductor.server.test.repo;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import de.cinovo.cloudconductor.api.enums.RepoProviderType;
+import de.cinovo.cloudconductor.server.model.ERepo;
+import de.cinovo.cloudconductor.server.model.ERepoMirror;
+import de.cinovo.cloudconductor.server.repo.RepoEntry;
+import de.cinovo.cloudconductor.server.repo.provider.AWSS3Provider;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Runs the S3 provider against a minimal local S3 stand-in answering listings page by page.
+ *
+ * @author mweise
+ */
+class AWSS3ProviderTest {
+
+	private static final String BUCKET = "repos";
+	private static final int PAGE_SIZE = 2;
+	private static final Map<String, String> OBJECTS = new TreeMap<>();
+
+	private static HttpServer server;
+	private static int listRequests;
+
+
+	@BeforeAll
+	static void startStandIn() throws IOException {
+		AWSS3ProviderTest.OBJECTS.put("repo/", "");
+		for (int i = 0; i < 5; i++) {
+			AWSS3ProviderTest.OBJECTS.put("repo/package-" + i + ".rpm", "content of package " + i);
+		}
+		AWSS3ProviderTest.OBJECTS.put("repo/repodata/repomd.xml", "<repomd/>");
+		AWSS3ProviderTest.OBJECTS.put("repo/repodata/primary.xml.gz", "primary");
+		AWSS3ProviderTest.OBJECTS.put("repo/other/readme", "readme");
+
+		AWSS3ProviderTest.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		AWSS3ProviderTest.server.createContext("/", AWSS3ProviderTest::handle);
+		AWSS3ProviderTest.server.start();
+		System.setProperty("aws.s3.endpoint", "http://localhost:" + AWSS3ProviderTest.server.getAddress().getPort());
+	}
+
+	@AfterAll
+	static void stopStandIn() {
+		System.clearProperty("aws.s3.endpoint");
+		AWSS3ProviderTest.server.stop(0);
+	}
+
+	@Test
+	void testPaginatedListing() {
+		AWSS3Provider provider = AWSS3ProviderTest.provider();
+		AWSS3ProviderTest.listRequests = 0;
+		List<RepoEntry> entries = provider.getEntries("repo/");
+		List<String> files = entries.stream().filter(e -> !e.isDirectory()).map(RepoEntry::getName).collect(Collectors.toList());
+		List<String> dirs = entries.stream().filter(RepoEntry::isDirectory).map(RepoEntry::getName).collect(Collectors.toList());
+
+		Assertions.assertEquals(5, files.size());
+		Assertions.assertTrue(files.contains("package-4.rpm"));
+		Assertions.assertEquals(2, dirs.size());
+		Assertions.assertTrue(dirs.contains("repodata"));
+		Assertions.assertTrue(dirs.contains("other"));
+		// 8 results including the folder marker in pages of 2
+		Assertions.assertEquals(4, AWSS3ProviderTest.listRequests);
+	}
+
+	@Test
+	void testRangedGet() throws IOException {
+		AWSS3Provider provider = AWSS3ProviderTest.provider();
+		try (InputStream in = provider.getEntryStream("repo/package-3.rpm", 11, 17)) {
+			Assertions.assertEquals("package", StreamUtils.copyToString(in, StandardCharsets.UTF_8));
+		}
+		try (InputStream in = provider.getEntryStream("repo/package-3.rpm")) {
+			Assertions.assertEquals("content of package 3", StreamUtils.copyToString(in, StandardCharsets.UTF_8));
+		}
+	}
+
+	private static AWSS3Provider provider() {
+		ERepo repo = new ERepo();
+		repo.setName("S3");
+		ERepoMirror mirror = new ERepoMirror();
+		mirror.setProviderType(RepoProviderType.AWSS3);
+		mirror.setBucketName(AWSS3ProviderTest.BUCKET);
+		mirror.setAccessKeyId("test-" + AWSS3ProviderTest.server.getAddress().getPort());
+		mirror.setSecretKey("secret");
+		return new AWSS3Provider(mirror, repo);
+	}
+
+	private static void handle(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		Map<String, String> query = AWSS3ProviderTest.query(exchange.getRequestURI().getRawQuery());
+		if (path.equals("/" + AWSS3ProviderTest.BUCKET) || path.equals("/" + AWSS3ProviderTest.BUCKET + "/")) {
+			AWSS3ProviderTest.list(exchange, query);
+			return;
+		}
+		String key = path.substring(AWSS3ProviderTest.BUCKET.length() + 2);
+		String content = AWSS3ProviderTest.OBJECTS.get(key);
+		if (content == null) {
+			exchange.sendResponseHeaders(404, -1);
+			exchange.close();
+			return;
+		}
+		byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+		int status = 200;
+		String range = exchange.getRequestHeaders().getFirst("Range");
+		if (range != null) {
+			String[] bounds = range.substring("bytes=".length()).split("-");
+			int start = Integer.parseInt(bounds[0]);
+			int end = Math.min(Integer.parseInt(bounds[1]), bytes.length - 1);
+			exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + bytes.length);
+			bytes = new String(bytes, StandardCharsets.UTF_8).substring(start, end + 1).getBytes(StandardCharsets.UTF_8);
+			status = 206;
+		}
+		exchange.getResponseHeaders().add("ETag", "\"" + DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8)) + "\"");
+		exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private static void list(HttpExchange exchange, Map<String, String> query) throws IOException {
+		AWSS3ProviderTest.listRequests++;
+		String prefix = query.getOrDefault("prefix", "");
+		String delimiter = query.get("delimiter");
+		TreeSet<String> results = new TreeSet<>();
+		for (String key : AWSS3ProviderTest.OBJECTS.keySet()) {
+			if (!key.startsWith(prefix)) {
+				continue;
+			}
+			int index = (delimiter == null) ? -1 : key.indexOf(delimiter, prefix.length());
+			results.add((index < 0) ? key : key.substring(0, index + 1));
+		}
+		List<String> all = new ArrayList<>(results);
+		int start = query.containsKey("continuation-token") ? Integer.parseInt(query.get("continuation-token")) : 0;
+		int end = Math.min(start + AWSS3ProviderTest.PAGE_SIZE, all.size());
+		boolean truncated = end < all.size();
+
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+		xml.append("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">");
+		xml.append("<Name>").append(AWSS3ProviderTest.BUCKET).append("</Name><Prefix>").append(prefix).append("</Prefix>");
+		xml.append("<KeyCount>").append(end - start).append("</KeyCount><MaxKeys>").append(AWSS3ProviderTest.PAGE_SIZE).append("</MaxKeys>");
+		xml.append("<IsTruncated>").append(truncated).append("</IsTruncated>");
+		if (truncated) {
+			xml.append("<NextContinuationToken>").append(end).append("</NextContinuationToken>");
+		}
+		for (String result : all.subList(start, end)) {
+			if (AWSS3ProviderTest.OBJECTS.containsKey(result)) {
+				xml.append("<Contents><Key>").append(result).append("</Key><LastModified>2024-01-01T00:00:00.000Z</LastModified>");
+				xml.append("<ETag>\"").append(DigestUtils.md5DigestAsHex(AWSS3ProviderTest.OBJECTS.get(result).getBytes(StandardCharsets.UTF_8))).append("\"</ETag>");
+				xml.append("<Size>").append(AWSS3ProviderTest.OBJECTS.get(result).length()).append("</Size><StorageClass>STANDARD</StorageClass></Contents>");
+			} else {
+				xml.append("<CommonPrefixes><Prefix>").append(result).append("</Prefix></CommonPrefixes>");
+			}
+		}
+		xml.append("</ListBucketResult>");
+
+		byte[] bytes = xml.toString().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/xml");
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private static Map<String, String> query(String rawQuery) throws IOException {
+		Map<String, String> query = new HashMap<>();
+		if (rawQuery == null) {
+			return query;
+		}
+		for (String param : rawQuery.split("&")) {
+			String[] pair = param.split("=", 2);
+			query.put(URLDecoder.decode(pair[0], "UTF-8"), (pair.length > 1) ? URLDecoder.decode(pair[1], "UTF-8") : "");
+		}
+		return query;
+	}
+}
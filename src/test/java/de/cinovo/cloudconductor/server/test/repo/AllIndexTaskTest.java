@@ -0,0 +1,208 @@
+package de.cinovo.cloudconductor.server.test.repo;
+
+import de.cinovo.cloudconductor.api.model.PackageVersion;
+import de.cinovo.cloudconductor.server.dao.IRepoDAO;
+import de.cinovo.cloudconductor.server.handler.RepoHandler;
+import de.cinovo.cloudconductor.server.model.ERepo;
+import de.cinovo.cloudconductor.server.model.ERepoMirror;
+import de.cinovo.cloudconductor.server.repo.RepoEntry;
+import de.cinovo.cloudconductor.server.repo.importer.IPackageImport;
+import de.cinovo.cloudconductor.server.repo.importer.IRepoImport;
+import de.cinovo.cloudconductor.server.repo.indexer.IRepoIndexer;
+import de.cinovo.cloudconductor.server.repo.provider.IRepoProvider;
+import de.cinovo.cloudconductor.server.tasks.AllIndexTask;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Runs index cycles over repos of which one blocks while reading its index.
+ *
+ * @author mweise
+ */
+class AllIndexTaskTest {
+
+	private final Map<Long, ERepo> repos = new LinkedHashMap<>();
+	private final BlockingQueue<String> imported = new LinkedBlockingQueue<>();
+	private final CountDownLatch blocking = new CountDownLatch(1);
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final AtomicInteger blockedCalls = new AtomicInteger();
+
+
+	@Test
+	void testBlockedRepoDoesNotDelayOthers() throws Exception {
+		// the ids are not used by other tests, as the locks of the repos are shared
+		this.addRepo(9001L, "blocked");
+		this.addRepo(9002L, "first");
+		this.addRepo(9003L, "second");
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			AllIndexTask task = new AllIndexTask(this.repoDAO(), new TestRepoHandler(), this.packageImport(), executor, 1, TimeUnit.MINUTES, 0);
+			task.run();
+			Assertions.assertTrue(this.blocking.await(10, TimeUnit.SECONDS));
+			Assertions.assertEquals(new HashSet<>(Arrays.asList("first", "second")), this.awaitImports(2));
+
+			// the thread left has finished the other repos
+			executor.submit(() -> {}).get(10, TimeUnit.SECONDS);
+			// the next cycle indexes the other repos again while the blocked one is still running
+			task.run();
+			Assertions.assertEquals(new HashSet<>(Arrays.asList("first", "second")), this.awaitImports(2));
+			Assertions.assertEquals(1, this.blockedCalls.get());
+
+			this.release.countDown();
+			Assertions.assertEquals(Collections.singleton("blocked"), this.awaitImports(1));
+		} finally {
+			this.release.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	private Set<String> awaitImports(int count) throws InterruptedException {
+		Set<String> names = new HashSet<>();
+		for (int i = 0; i < count; i++) {
+			String name = this.imported.poll(10, TimeUnit.SECONDS);
+			Assertions.assertNotNull(name, "imported so far: " + names);
+			names.add(name);
+		}
+		return names;
+	}
+
+	private void addRepo(long id, String name) {
+		ERepo repo = new ERepo();
+		repo.setId(id);
+		repo.setName(name);
+		this.repos.put(id, repo);
+	}
+
+	private IRepoDAO repoDAO() {
+		return (IRepoDAO) Proxy.newProxyInstance(IRepoDAO.class.getClassLoader(), new Class<?>[] {IRepoDAO.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "findList":
+					return new ArrayList<>(this.repos.values());
+				case "findById":
+					return this.repos.get(args[0]);
+				case "save":
+					return args[0];
+				default:
+					throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	private IPackageImport packageImport() {
+		return repo -> new IRepoImport() {
+
+			@Override
+			public void accept(PackageVersion packageVersion) {
+				// nothing to write
+			}
+
+			@Override
+			public void finish() {
+				AllIndexTaskTest.this.imported.add(repo.getName());
+			}
+		};
+	}
+
+
+	private final class TestRepoHandler extends RepoHandler {
+
+		@Override
+		public ERepoMirror findPrimaryMirror(ERepo repo) {
+			ERepoMirror mirror = new ERepoMirror();
+			mirror.setBasePath(repo.getName());
+			return mirror;
+		}
+
+		@Override
+		public IRepoProvider findRepoProvider(ERepoMirror mirror, ERepo erepo) {
+			return new TestProvider(erepo.getName());
+		}
+
+		@Override
+		public IRepoIndexer findRepoIndexer(ERepoMirror mirror) {
+			return new IRepoIndexer() {
+
+				@Override
+				public Set<PackageVersion> getRepoIndex(IRepoProvider provider) {
+					PackageVersion pv = new PackageVersion();
+					pv.setName(provider.getRepoName());
+					pv.setVersion("1.0-1");
+					return Collections.singleton(pv);
+				}
+
+				@Override
+				public RepoEntry getRepoEntry(IRepoProvider provider) {
+					return provider.getEntry("index");
+				}
+			};
+		}
+	}
+
+	private final class TestProvider implements IRepoProvider {
+
+		private final String repoName;
+
+
+		TestProvider(String repoName) {
+			this.repoName = repoName;
+		}
+
+		@Override
+		public List<RepoEntry> getEntries(String folder) {
+			return null;
+		}
+
+		@Override
+		public RepoEntry getEntry(String key) {
+			if ("blocked".equals(this.repoName)) {
+				AllIndexTaskTest.this.blockedCalls.incrementAndGet();
+				AllIndexTaskTest.this.blocking.countDown();
+				try {
+					AllIndexTaskTest.this.release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			RepoEntry entry = new RepoEntry();
+			entry.setName(key);
+			entry.setChecksum(UUID.randomUUID().toString());
+			return entry;
+		}
+
+		@Override
+		public InputStream getEntryStream(String key) {
+			return null;
+		}
+
+		@Override
+		public boolean isListable() {
+			return false;
+		}
+
+		@Override
+		public String getRepoName() {
+			return this.repoName;
+		}
+	}
+}
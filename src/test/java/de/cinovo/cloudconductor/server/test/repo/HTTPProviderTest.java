@@ -0,0 +1,185 @@
+package de.cinovo.cloudconductor.server.test.repo;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import de.cinovo.cloudconductor.api.enums.RepoProviderType;
+import de.cinovo.cloudconductor.server.model.ERepo;
+import de.cinovo.cloudconductor.server.model.ERepoMirror;
+import de.cinovo.cloudconductor.server.repo.RepoEntry;
+import de.cinovo.cloudconductor.server.repo.provider.HTTPProvider;
+import org.apache.http.client.utils.DateUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Runs the HTTP provider against a local web server answering conditional requests.
+ *
+ * @author mweise
+ */
+class HTTPProviderTest {
+
+	private static final Date MODIFIED = new Date(1700000000000L);
+	private static final Map<String, String> FILES = new ConcurrentHashMap<>();
+	// files served without ETag and Last-Modified
+	private static final String NO_VALIDATORS = "/repo/plain.xml";
+
+	private static HttpServer server;
+	// the status of every request, e.g. "GET /repo/repomd.xml 200"
+	private static final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+
+
+	@BeforeAll
+	static void startStandIn() throws IOException {
+		HTTPProviderTest.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		HTTPProviderTest.server.createContext("/", HTTPProviderTest::handle);
+		HTTPProviderTest.server.start();
+	}
+
+	@AfterAll
+	static void stopStandIn() {
+		HTTPProviderTest.server.stop(0);
+	}
+
+	@BeforeEach
+	void reset() {
+		HTTPProviderTest.requests.clear();
+	}
+
+	@Test
+	void testUnchangedEntry() throws IOException {
+		HTTPProviderTest.FILES.put("/repo/unchanged.xml", "<repomd>unchanged</repomd>");
+		RepoEntry first = HTTPProviderTest.provider().getEntry("unchanged.xml");
+		Assertions.assertEquals(HTTPProviderTest.md5("<repomd>unchanged</repomd>"), first.getChecksum());
+		Assertions.assertEquals(26, first.getSize());
+		Assertions.assertEquals(HTTPProviderTest.MODIFIED, first.getModified());
+
+		// a new provider, as providers are created per request, sends the validators of the first fetch
+		HTTPProvider provider = HTTPProviderTest.provider();
+		RepoEntry second = provider.getEntry("unchanged.xml");
+		Assertions.assertEquals(first.getChecksum(), second.getChecksum());
+		Assertions.assertEquals(first.getSize(), second.getSize());
+		Assertions.assertEquals(first.getModified(), second.getModified());
+		Assertions.assertEquals(first.getContentType(), second.getContentType());
+		Assertions.assertEquals("unchanged.xml", second.getName());
+		Assertions.assertEquals("GET /repo/unchanged.xml 200", HTTPProviderTest.requests.get(0));
+		Assertions.assertEquals("GET /repo/unchanged.xml 304", HTTPProviderTest.requests.get(1));
+
+		// nothing was downloaded on 304, so the content is requested for the stream
+		try (InputStream in = provider.getEntryStream("unchanged.xml")) {
+			Assertions.assertEquals("<repomd>unchanged</repomd>", StreamUtils.copyToString(in, StandardCharsets.UTF_8));
+		}
+		Assertions.assertEquals(3, HTTPProviderTest.requests.size());
+	}
+
+	@Test
+	void testChangedEntry() {
+		HTTPProviderTest.FILES.put("/repo/changed.xml", "<repomd>before</repomd>");
+		RepoEntry first = HTTPProviderTest.provider().getEntry("changed.xml");
+		HTTPProviderTest.FILES.put("/repo/changed.xml", "<repomd>after</repomd>");
+		RepoEntry second = HTTPProviderTest.provider().getEntry("changed.xml");
+
+		Assertions.assertEquals(HTTPProviderTest.md5("<repomd>before</repomd>"), first.getChecksum());
+		Assertions.assertEquals(HTTPProviderTest.md5("<repomd>after</repomd>"), second.getChecksum());
+		Assertions.assertEquals(2, HTTPProviderTest.requests.size());
+		Assertions.assertTrue(HTTPProviderTest.requests.stream().allMatch(r -> r.endsWith(" 200")), HTTPProviderTest.requests.toString());
+	}
+
+	@Test
+	void testEntryWithoutValidators() {
+		HTTPProviderTest.FILES.put(HTTPProviderTest.NO_VALIDATORS, "<repomd>plain</repomd>");
+		HTTPProviderTest.provider().getEntry("plain.xml");
+		RepoEntry second = HTTPProviderTest.provider().getEntry("plain.xml");
+
+		// there is nothing to validate with, so the entry is fetched again
+		Assertions.assertEquals(HTTPProviderTest.md5("<repomd>plain</repomd>"), second.getChecksum());
+		Assertions.assertEquals(2, HTTPProviderTest.requests.size());
+		Assertions.assertTrue(HTTPProviderTest.requests.stream().allMatch(r -> r.endsWith(" 200")), HTTPProviderTest.requests.toString());
+	}
+
+	@Test
+	void testBufferedBody() throws IOException {
+		HTTPProviderTest.FILES.put("/repo/buffered.rpm", "content of the package");
+		HTTPProvider provider = HTTPProviderTest.provider();
+		provider.getEntry("buffered.rpm");
+		// the body downloaded for the checksum is streamed without a second request
+		try (InputStream in = provider.getEntryStream("buffered.rpm")) {
+			Assertions.assertEquals("content of the package", StreamUtils.copyToString(in, StandardCharsets.UTF_8));
+		}
+		Assertions.assertEquals(1, HTTPProviderTest.requests.size());
+
+		// the buffer is used once
+		try (InputStream in = provider.getEntryStream("buffered.rpm")) {
+			Assertions.assertEquals("content of the package", StreamUtils.copyToString(in, StandardCharsets.UTF_8));
+		}
+		Assertions.assertEquals(2, HTTPProviderTest.requests.size());
+	}
+
+	private static HTTPProvider provider() {
+		ERepo repo = new ERepo();
+		repo.setName("HTTP");
+		ERepoMirror mirror = new ERepoMirror();
+		mirror.setProviderType(RepoProviderType.HTTP);
+		mirror.setBasePath("http://localhost:" + HTTPProviderTest.server.getAddress().getPort() + "/repo");
+		return new HTTPProvider(mirror, repo);
+	}
+
+	private static String md5(String content) {
+		// the provider drops leading zeros
+		return new BigInteger(1, DigestUtils.md5Digest(content.getBytes(StandardCharsets.UTF_8))).toString(16);
+	}
+
+	private static void handle(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		String content = HTTPProviderTest.FILES.get(path);
+		if (content == null) {
+			HTTPProviderTest.respond(exchange, path, 404, null);
+			return;
+		}
+		byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+		String etag = "\"" + DigestUtils.md5DigestAsHex(bytes) + "\"";
+		if (!path.equals(HTTPProviderTest.NO_VALIDATORS)) {
+			exchange.getResponseHeaders().add("ETag", etag);
+			exchange.getResponseHeaders().add("Last-Modified", DateUtils.formatDate(HTTPProviderTest.MODIFIED));
+		}
+		exchange.getResponseHeaders().add("Content-Type", "application/xml");
+		if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+			HTTPProviderTest.respond(exchange, path, 304, null);
+		} else {
+			HTTPProviderTest.respond(exchange, path, 200, bytes);
+		}
+	}
+
+	private static void respond(HttpExchange exchange, String path, int status, byte[] body) throws IOException {
+		// recorded before the response is sent, the client may go on as soon as it is read
+		HTTPProviderTest.requests.add(exchange.getRequestMethod() + " " + path + " " + status);
+		if (body == null) {
+			exchange.sendResponseHeaders(status, -1);
+		} else {
+			exchange.sendResponseHeaders(status, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		}
+		exchange.close();
+	}
+}
@@ -0,0 +1,161 @@
+package de.cinovo.cloudconductor.server.test.repo;
+
+import de.cinovo.cloudconductor.api.model.PackageVersion;
+import de.cinovo.cloudconductor.server.repo.RepoEntry;
+import de.cinovo.cloudconductor.server.repo.indexer.RPMIndexer;
+import de.cinovo.cloudconductor.server.repo.provider.IRepoProvider;
+import de.cinovo.cloudconductor.server.test.util.BenchmarkMeter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Indexes a generated primary.xml with the former and the current RPM indexer and reports time, allocated and retained
+ * memory. Only runs if the number of packages is given, e.g.
+ * <code>mvn test -Dtest=IndexerBenchmarkTest -Dbenchmark.packages=50000</code>.
+ *
+ * @author mweise
+ */
+@EnabledIfSystemProperty(named = "benchmark.packages", matches = "\\d+")
+class IndexerBenchmarkTest {
+
+	private static final int DEPENDENCIES = 30;
+	private static final int DEPENDENCY_NAMES = 5000;
+	// keeps the collected index reachable until the retained memory was measured
+	private static volatile Object sink;
+
+
+	private static class GeneratedProvider implements IRepoProvider {
+
+		private final byte[] primary;
+
+
+		GeneratedProvider(byte[] primary) {
+			this.primary = primary;
+		}
+
+		@Override
+		public List<RepoEntry> getEntries(String folder) {
+			return null;
+		}
+
+		@Override
+		public RepoEntry getEntry(String key) {
+			RepoEntry fil = new RepoEntry();
+			fil.setName(key);
+			fil.setDirectory(false);
+			fil.setModified(new Date());
+			fil.setSize(0L);
+			fil.setChecksum(UUID.randomUUID().toString());
+			return fil;
+		}
+
+		@Override
+		public InputStream getEntryStream(String key) {
+			if (key.equals("repodata/repomd.xml")) {
+				String repomd = "<repomd xmlns=\"http://linux.duke.edu/metadata/repo\"><data type=\"primary\"><location href=\"repodata/primary.xml.gz\"/></data></repomd>";
+				return new ByteArrayInputStream(repomd.getBytes(StandardCharsets.UTF_8));
+			}
+			return new ByteArrayInputStream(this.primary);
+		}
+
+		@Override
+		public boolean isListable() {
+			return false;
+		}
+
+		@Override
+		public String getRepoName() {
+			return "BENCHMARK";
+		}
+
+	}
+
+
+	@Test
+	void benchmarkRPM() throws Exception {
+		int packages = Integer.parseInt(System.getProperty("benchmark.packages"));
+		GeneratedProvider provider = new GeneratedProvider(IndexerBenchmarkTest.generate(packages));
+		LegacyRPMIndexer legacy = new LegacyRPMIndexer();
+		RPMIndexer indexer = new RPMIndexer();
+
+		IndexerBenchmarkTest.run("before", packages, () -> IndexerBenchmarkTest.keep(legacy.getRepoIndex(provider)));
+		IndexerBenchmarkTest.run("StAX collected", packages, () -> IndexerBenchmarkTest.keep(indexer.getRepoIndex(provider)));
+		// the import only keeps the versions of the current batch
+		IndexerBenchmarkTest.run("StAX streamed", packages, () -> {
+			AtomicInteger count = new AtomicInteger();
+			indexer.streamRepoIndex(provider, pv -> count.incrementAndGet());
+			return count.get();
+		});
+	}
+
+	private static void run(String name, int packages, Callable<Integer> indexing) throws Exception {
+		// warm up
+		indexing.call();
+		IndexerBenchmarkTest.sink = null;
+
+		long heapBefore = BenchmarkMeter.usedHeap();
+		BenchmarkMeter meter = BenchmarkMeter.start();
+		int indexed = indexing.call();
+		long duration = meter.elapsedNanos();
+		long allocated = meter.allocatedBytes();
+		long retained = BenchmarkMeter.usedHeap() - heapBefore;
+		IndexerBenchmarkTest.sink = null;
+
+		Assertions.assertEquals(packages, indexed);
+		System.out.println(String.format("%s: %d packages in %d ms, %d MB allocated, %d MB retained", name, packages, TimeUnit.NANOSECONDS.toMillis(duration), allocated >> 20, retained >> 20));
+	}
+
+	private static int keep(Set<PackageVersion> index) {
+		IndexerBenchmarkTest.sink = index;
+		return index.size();
+	}
+
+	private static byte[] generate(int packages) throws IOException {
+		Random random = new Random(42);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(out), StandardCharsets.UTF_8)) {
+			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+			writer.write("<metadata xmlns=\"http://linux.duke.edu/metadata/common\" xmlns:rpm=\"http://linux.duke.edu/metadata/rpm\" packages=\"" + packages + "\">\n");
+			for (int i = 0; i < packages; i++) {
+				writer.write("<package type=\"rpm\">\n  <name>package-" + i + "</name>\n  <arch>x86_64</arch>\n");
+				writer.write("  <version epoch=\"0\" ver=\"1." + (i % 17) + "\" rel=\"" + i + ".el7\"/>\n");
+				writer.write("  <summary>Generated package " + i + "</summary>\n  <description>Generated package " + i + " for benchmarking the indexer.</description>\n");
+				writer.write("  <format>\n    <rpm:license>GPL</rpm:license>\n    <rpm:provides>\n");
+				writer.write("      <rpm:entry name=\"package-" + i + "\" flags=\"EQ\" epoch=\"0\" ver=\"1." + (i % 17) + "\" rel=\"" + i + ".el7\"/>\n");
+				writer.write("    </rpm:provides>\n    <rpm:requires>\n");
+				for (int d = 0; d < IndexerBenchmarkTest.DEPENDENCIES; d++) {
+					int dep = random.nextInt(IndexerBenchmarkTest.DEPENDENCY_NAMES);
+					if ((dep % 3) == 0) {
+						writer.write("      <rpm:entry name=\"lib" + dep + ".so.1()(64bit)\"/>\n");
+					} else {
+						writer.write("      <rpm:entry name=\"lib" + dep + "\" flags=\"GE\" epoch=\"0\" ver=\"" + (dep % 5) + ".0\"/>\n");
+					}
+				}
+				writer.write("    </rpm:requires>\n    <file>/usr/bin/package-" + i + "</file>\n  </format>\n</package>\n");
+			}
+			writer.write("</metadata>\n");
+		}
+		return out.toByteArray();
+	}
+
+}
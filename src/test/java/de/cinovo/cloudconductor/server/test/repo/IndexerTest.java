@@ -1,18 +1,35 @@
 package de.cinovo.cloudconductor.server.test.repo;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.luben.zstd.Zstd;
+import de.cinovo.cloudconductor.api.enums.DependencyType;
+import de.cinovo.cloudconductor.api.model.Dependency;
 import de.cinovo.cloudconductor.api.model.PackageVersion;
 import de.cinovo.cloudconductor.server.repo.RepoEntry;
 import de.cinovo.cloudconductor.server.repo.indexer.RPMIndexer;
 import de.cinovo.cloudconductor.server.repo.provider.IRepoProvider;
 import de.taimos.dvalin.jaxrs.MapperFactory;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.springframework.util.StreamUtils;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Copyright 2015 Cinovo AG<br>
@@ -23,6 +40,8 @@ import java.util.UUID;
  */
 class IndexerTest {
 	
+	private static final String PRIMARY_GZ = "repodata/50f181f6e9801a0efa490850576c607ea3506cd7b4ed0e1e2d96f89e9e28bab2-primary.xml.gz";
+	
 	private static class ClasspathProvider implements IRepoProvider {
 		
 		@Override
@@ -74,4 +93,95 @@ class IndexerTest {
 		}
 	}
 	
+	/**
+	 * @throws Exception on error
+	 */
+	@Test
+	void testRPMStream() throws Exception {
+		RPMIndexer indexer = new RPMIndexer();
+		
+		List<PackageVersion> versions = new ArrayList<>();
+		Assertions.assertTrue(indexer.streamRepoIndex(new ClasspathProvider(), versions::add));
+		Assertions.assertEquals(4, versions.size());
+		
+		Dependency jdk = null;
+		for (PackageVersion pv : versions) {
+			Assertions.assertTrue(pv.getName().startsWith("cloudconductor"));
+			Assertions.assertEquals(Collections.singleton("TESTREPO"), pv.getRepos());
+			// duplicate entries of /bin/sh are merged
+			Assertions.assertEquals(4, pv.getDependencies().size());
+			Dependency pvJdk = pv.getDependencies().stream().filter(d -> d.getName().equals("jdk")).findFirst().orElse(null);
+			Assertions.assertNotNull(pvJdk);
+			Assertions.assertEquals(DependencyType.REQUIRES, pvJdk.getType());
+			Assertions.assertEquals(">=", pvJdk.getOperator());
+			Assertions.assertEquals("1.7", pvJdk.getVersion());
+			if (jdk != null) {
+				Assertions.assertSame(jdk, pvJdk);
+			}
+			jdk = pvJdk;
+		}
+		Assertions.assertTrue(versions.stream().anyMatch(pv -> pv.getName().equals("cloudconductor-agent") && pv.getVersion().equals("2.6-1")));
+	}
+	
+	/**
+	 * @throws Exception on error
+	 */
+	@Test
+	void testRPMCompressions() throws Exception {
+		byte[] primary;
+		try (InputStream in = new GZIPInputStream(this.getClass().getClassLoader().getResourceAsStream(IndexerTest.PRIMARY_GZ))) {
+			primary = StreamUtils.copyToByteArray(in);
+		}
+		ByteArrayOutputStream xz = new ByteArrayOutputStream();
+		try (OutputStream out = new XZOutputStream(xz, new LZMA2Options())) {
+			out.write(primary);
+		}
+		
+		Map<String, byte[]> files = new HashMap<>();
+		files.put("repodata/primary.xml.xz", xz.toByteArray());
+		files.put("repodata/primary.xml.zst", Zstd.compress(primary));
+		files.put("repodata/primary.sqlite.bz2", new byte[0]);
+		
+		MapProvider provider = new MapProvider(files, IndexerTest.repomd("repodata/primary.xml.xz", "repodata/primary.sqlite.bz2"));
+		List<PackageVersion> versions = new ArrayList<>();
+		Assertions.assertTrue(new RPMIndexer().streamRepoIndex(provider, versions::add));
+		Assertions.assertEquals(4, versions.size());
+		Assertions.assertTrue(provider.read.contains("repodata/primary.xml.xz"));
+		
+		// zstd is preferred over xz
+		provider = new MapProvider(files, IndexerTest.repomd("repodata/primary.xml.xz", "repodata/primary.xml.zst"));
+		versions.clear();
+		Assertions.assertTrue(new RPMIndexer().streamRepoIndex(provider, versions::add));
+		Assertions.assertEquals(4, versions.size());
+		Assertions.assertTrue(provider.read.contains("repodata/primary.xml.zst"));
+		Assertions.assertFalse(provider.read.contains("repodata/primary.xml.xz"));
+	}
+	
+	private static byte[] repomd(String... primaryHREFs) {
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><repomd xmlns=\"http://linux.duke.edu/metadata/repos\">");
+		for (String href : primaryHREFs) {
+			xml.append("<data type=\"").append(href.contains("sqlite") ? "primary_db" : "primary").append("\"><location href=\"").append(href).append("\"/></data>");
+		}
+		return xml.append("</repomd>").toString().getBytes(StandardCharsets.UTF_8);
+	}
+	
+	
+	private static class MapProvider extends ClasspathProvider {
+		
+		private final Map<String, byte[]> files = new HashMap<>();
+		private final Set<String> read = new HashSet<>();
+		
+		
+		MapProvider(Map<String, byte[]> files, byte[] repomd) {
+			this.files.putAll(files);
+			this.files.put("repodata/repomd.xml", repomd);
+		}
+		
+		@Override
+		public InputStream getEntryStream(String key) {
+			this.read.add(key);
+			return new ByteArrayInputStream(this.files.get(key));
+		}
+	}
+	
 }
@@ -0,0 +1,168 @@
+package de.cinovo.cloudconductor.server.test.repo;
+
+import de.cinovo.cloudconductor.server.repo.RepoEntry;
+import de.cinovo.cloudconductor.server.repo.RepoFileCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Streams files through the repo file cache and checks which of them are kept.
+ *
+ * @author mweise
+ */
+class RepoFileCacheTest {
+
+	@TempDir
+	File dir;
+
+
+	@Test
+	void testHitAfterCompleteRead() throws Exception {
+		RepoFileCache cache = this.cache(10);
+		byte[] content = "content of package 1".getBytes(StandardCharsets.UTF_8);
+		RepoEntry entry = RepoFileCacheTest.entry("package-1.rpm", content);
+
+		Assertions.assertNull(cache.get(entry));
+		Assertions.assertEquals(1, cache.getMisses());
+		RepoFileCacheTest.readFully(cache.put(entry, new ByteArrayInputStream(content)));
+
+		try (FileChannel channel = cache.get(entry)) {
+			Assertions.assertNotNull(channel);
+			Assertions.assertArrayEquals(content, RepoFileCacheTest.read(channel));
+		}
+		Assertions.assertEquals(1, cache.getHits());
+		Assertions.assertEquals(content.length, cache.getSize());
+	}
+
+	@Test
+	void testIncompleteReadDiscarded() throws Exception {
+		RepoFileCache cache = this.cache(10);
+		byte[] content = "content of package 2".getBytes(StandardCharsets.UTF_8);
+		RepoEntry entry = RepoFileCacheTest.entry("package-2.rpm", content);
+
+		try (InputStream in = cache.put(entry, new ByteArrayInputStream(content))) {
+			Assertions.assertEquals(7, in.read(new byte[7]));
+		}
+		Assertions.assertNull(cache.get(entry));
+		Assertions.assertEquals(0, cache.getSize());
+		Assertions.assertArrayEquals(new String[0], this.dir.list());
+	}
+
+	@Test
+	void testMismatchDiscarded() throws Exception {
+		RepoFileCache cache = this.cache(10);
+		byte[] content = "content of package 3".getBytes(StandardCharsets.UTF_8);
+
+		RepoEntry wrongSize = RepoFileCacheTest.entry("package-3.rpm", content);
+		wrongSize.setSize(content.length + 1);
+		RepoFileCacheTest.readFully(cache.put(wrongSize, new ByteArrayInputStream(content)));
+		Assertions.assertNull(cache.get(wrongSize));
+
+		RepoEntry wrongHash = RepoFileCacheTest.entry("package-3.rpm", content);
+		wrongHash.setChecksum(DigestUtils.md5DigestAsHex("other content".getBytes(StandardCharsets.UTF_8)));
+		RepoFileCacheTest.readFully(cache.put(wrongHash, new ByteArrayInputStream(content)));
+		Assertions.assertNull(cache.get(wrongHash));
+
+		Assertions.assertEquals(0, cache.getSize());
+		Assertions.assertArrayEquals(new String[0], this.dir.list());
+	}
+
+	@Test
+	void testLeastRecentlyUsedEvicted() throws Exception {
+		RepoFileCache cache = this.cache(1);
+		RepoEntry first = this.store(cache, "first.rpm", 'a');
+		RepoEntry second = this.store(cache, "second.rpm", 'b');
+		// the first file is used again, so the second one is the least recently used one
+		cache.get(first).close();
+		RepoEntry third = this.store(cache, "third.rpm", 'c');
+
+		Assertions.assertNull(cache.get(second));
+		try (FileChannel channel = cache.get(first)) {
+			Assertions.assertNotNull(channel);
+		}
+		try (FileChannel channel = cache.get(third)) {
+			Assertions.assertNotNull(channel);
+		}
+		Assertions.assertEquals(2 * (400 * 1024), cache.getSize());
+		Assertions.assertEquals(2, this.dir.list().length);
+	}
+
+	@Test
+	void testInitRegistersCachedFiles() throws Exception {
+		RepoFileCache cache = this.cache(10);
+		byte[] content = "content of package 4".getBytes(StandardCharsets.UTF_8);
+		RepoEntry entry = RepoFileCacheTest.entry("package-4.rpm", content);
+		RepoFileCacheTest.readFully(cache.put(entry, new ByteArrayInputStream(content)));
+		// left over by a restart while a file was streamed
+		Files.write(new File(this.dir, "leftover.tmp").toPath(), content);
+
+		RepoFileCache restarted = this.cache(10);
+		try (FileChannel channel = restarted.get(entry)) {
+			Assertions.assertNotNull(channel);
+			Assertions.assertArrayEquals(content, RepoFileCacheTest.read(channel));
+		}
+		Assertions.assertEquals(content.length, restarted.getSize());
+		Assertions.assertFalse(new File(this.dir, "leftover.tmp").exists());
+	}
+
+	private RepoEntry store(RepoFileCache cache, String name, char fill) throws IOException {
+		byte[] content = new byte[400 * 1024];
+		Arrays.fill(content, (byte) fill);
+		RepoEntry entry = RepoFileCacheTest.entry(name, content);
+		RepoFileCacheTest.readFully(cache.put(entry, new ByteArrayInputStream(content)));
+		return entry;
+	}
+
+	private RepoFileCache cache(long maxSizeMB) throws ReflectiveOperationException {
+		RepoFileCache cache = new RepoFileCache();
+		RepoFileCacheTest.set(cache, "cacheDir", this.dir.getAbsolutePath());
+		RepoFileCacheTest.set(cache, "maxSizeMB", maxSizeMB);
+		cache.init();
+		Assertions.assertTrue(cache.isEnabled());
+		return cache;
+	}
+
+	private static void set(Object target, String name, Object value) throws ReflectiveOperationException {
+		Field field = target.getClass().getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(target, value);
+	}
+
+	private static RepoEntry entry(String name, byte[] content) {
+		RepoEntry entry = new RepoEntry();
+		entry.setName(name);
+		entry.setSize(content.length);
+		entry.setChecksum(DigestUtils.md5DigestAsHex(content));
+		return entry;
+	}
+
+	private static void readFully(InputStream in) throws IOException {
+		try (InputStream stream = in) {
+			StreamUtils.drain(stream);
+		}
+	}
+
+	private static byte[] read(FileChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+		while (buffer.hasRemaining() && (channel.read(buffer) >= 0)) {
+			// read until the buffer is full
+		}
+		return buffer.array();
+	}
+}
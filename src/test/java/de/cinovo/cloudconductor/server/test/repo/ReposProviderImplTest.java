@@ -0,0 +1,221 @@
+package de.cinovo.cloudconductor.server.test.repo;
+
+import de.cinovo.cloudconductor.server.handler.RepoHandler;
+import de.cinovo.cloudconductor.server.repo.RepoEntry;
+import de.cinovo.cloudconductor.server.repo.RepoFileCache;
+import de.cinovo.cloudconductor.server.repo.ReposProviderImpl;
+import de.cinovo.cloudconductor.server.repo.provider.IRepoProvider;
+import org.apache.cxf.jaxrs.impl.RequestImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.http.client.utils.DateUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.DigestUtils;
+
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Requests a file of an in-memory repo with ranges and preconditions.
+ *
+ * @author mweise
+ */
+class ReposProviderImplTest {
+
+	private static final String REPO = "repo";
+	private static final String FILE = "package.rpm";
+	private static final String CONTENT = "0123456789abcdefghij";
+	private static final String ETAG = "\"" + DigestUtils.md5DigestAsHex(ReposProviderImplTest.CONTENT.getBytes(StandardCharsets.UTF_8)) + "\"";
+	private static final Date MODIFIED = new Date(1700000000000L);
+
+	private static class MemoryProvider implements IRepoProvider {
+
+		@Override
+		public List<RepoEntry> getEntries(String folder) {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public RepoEntry getEntry(String key) {
+			if (!ReposProviderImplTest.FILE.equals(key)) {
+				return null;
+			}
+			RepoEntry entry = new RepoEntry();
+			entry.setName(key);
+			entry.setSize(ReposProviderImplTest.CONTENT.length());
+			entry.setModified(ReposProviderImplTest.MODIFIED);
+			entry.setChecksum(ReposProviderImplTest.ETAG.replace("\"", ""));
+			entry.setContentType("application/octet-stream");
+			return entry;
+		}
+
+		@Override
+		public InputStream getEntryStream(String key) {
+			return new ByteArrayInputStream(ReposProviderImplTest.CONTENT.getBytes(StandardCharsets.UTF_8));
+		}
+
+		@Override
+		public boolean isListable() {
+			return false;
+		}
+
+		@Override
+		public String getRepoName() {
+			return ReposProviderImplTest.REPO;
+		}
+	}
+
+
+	@Test
+	void testWholeFile() throws Exception {
+		Response response = ReposProviderImplTest.get(null, null, ReposProviderImplTest.request("GET"));
+		Assertions.assertEquals(200, response.getStatus());
+		Assertions.assertEquals(ReposProviderImplTest.CONTENT, ReposProviderImplTest.body(response));
+		Assertions.assertEquals("20", response.getHeaderString("Content-Length"));
+		Assertions.assertEquals("bytes", response.getHeaderString("Accept-Ranges"));
+	}
+
+	@Test
+	void testRanges() throws Exception {
+		Response closed = ReposProviderImplTest.get("bytes=2-5", null, ReposProviderImplTest.request("GET"));
+		ReposProviderImplTest.assertPartial(closed, "2345", "bytes 2-5/20");
+
+		// the last 4 bytes
+		Response suffix = ReposProviderImplTest.get("bytes=-4", null, ReposProviderImplTest.request("GET"));
+		ReposProviderImplTest.assertPartial(suffix, "ghij", "bytes 16-19/20");
+
+		Response open = ReposProviderImplTest.get("bytes=15-", null, ReposProviderImplTest.request("GET"));
+		ReposProviderImplTest.assertPartial(open, "fghij", "bytes 15-19/20");
+
+		// the end of the range is limited to the size of the file
+		Response beyond = ReposProviderImplTest.get("bytes=18-100", null, ReposProviderImplTest.request("GET"));
+		ReposProviderImplTest.assertPartial(beyond, "ij", "bytes 18-19/20");
+	}
+
+	@Test
+	void testUnsatisfiableRanges() {
+		for (String range : new String[] {"bytes=20-", "bytes=100-200", "bytes=-0"}) {
+			Response response = ReposProviderImplTest.get(range, null, ReposProviderImplTest.request("GET"));
+			Assertions.assertEquals(416, response.getStatus(), range);
+			Assertions.assertEquals("bytes */20", response.getHeaderString("Content-Range"), range);
+		}
+	}
+
+	@Test
+	void testIgnoredRanges() throws Exception {
+		// multiple and reversed ranges are answered with the whole file
+		for (String range : new String[] {"bytes=0-1,4-5", "bytes=5-2", "bytes=-", "items=0-1"}) {
+			Response response = ReposProviderImplTest.get(range, null, ReposProviderImplTest.request("GET"));
+			Assertions.assertEquals(200, response.getStatus(), range);
+			Assertions.assertEquals(ReposProviderImplTest.CONTENT, ReposProviderImplTest.body(response), range);
+		}
+	}
+
+	@Test
+	void testIfRange() throws Exception {
+		Response etagMatch = ReposProviderImplTest.get("bytes=2-5", ReposProviderImplTest.ETAG, ReposProviderImplTest.request("GET"));
+		ReposProviderImplTest.assertPartial(etagMatch, "2345", "bytes 2-5/20");
+
+		Response dateMatch = ReposProviderImplTest.get("bytes=2-5", DateUtils.formatDate(ReposProviderImplTest.MODIFIED), ReposProviderImplTest.request("GET"));
+		ReposProviderImplTest.assertPartial(dateMatch, "2345", "bytes 2-5/20");
+
+		// the file changed since the first part was downloaded, so the whole file is sent
+		for (String ifRange : new String[] {"\"other\"", "W/" + ReposProviderImplTest.ETAG, DateUtils.formatDate(new Date(0))}) {
+			Response mismatch = ReposProviderImplTest.get("bytes=2-5", ifRange, ReposProviderImplTest.request("GET"));
+			Assertions.assertEquals(200, mismatch.getStatus(), ifRange);
+			Assertions.assertNull(mismatch.getHeaderString("Content-Range"), ifRange);
+			Assertions.assertEquals(ReposProviderImplTest.CONTENT, ReposProviderImplTest.body(mismatch), ifRange);
+		}
+	}
+
+	@Test
+	void testIfNoneMatch() throws Exception {
+		Response get = ReposProviderImplTest.get(null, null, ReposProviderImplTest.request("GET", "If-None-Match", ReposProviderImplTest.ETAG));
+		Assertions.assertEquals(304, get.getStatus());
+		Assertions.assertNull(get.getEntity());
+
+		Response head = ReposProviderImplTest.provider().head(ReposProviderImplTest.REPO, ReposProviderImplTest.FILE, ReposProviderImplTest.request("HEAD", "If-None-Match", ReposProviderImplTest.ETAG));
+		Assertions.assertEquals(304, head.getStatus());
+
+		Response changed = ReposProviderImplTest.get(null, null, ReposProviderImplTest.request("GET", "If-None-Match", "\"other\""));
+		Assertions.assertEquals(200, changed.getStatus());
+		Assertions.assertEquals(ReposProviderImplTest.CONTENT, ReposProviderImplTest.body(changed));
+	}
+
+	@Test
+	void testHead() {
+		Response head = ReposProviderImplTest.provider().head(ReposProviderImplTest.REPO, ReposProviderImplTest.FILE, ReposProviderImplTest.request("HEAD"));
+		Assertions.assertEquals(200, head.getStatus());
+		Assertions.assertNull(head.getEntity());
+		Assertions.assertEquals("20", head.getHeaderString("Content-Length"));
+		Assertions.assertEquals(ReposProviderImplTest.ETAG, head.getHeaderString("ETag"));
+		Assertions.assertEquals(DateUtils.formatDate(ReposProviderImplTest.MODIFIED), head.getHeaderString("Last-Modified"));
+	}
+
+	private static void assertPartial(Response response, String body, String contentRange) throws IOException {
+		Assertions.assertEquals(206, response.getStatus(), contentRange);
+		Assertions.assertEquals(contentRange, response.getHeaderString("Content-Range"));
+		Assertions.assertEquals(String.valueOf(body.length()), response.getHeaderString("Content-Length"), contentRange);
+		Assertions.assertEquals(body, ReposProviderImplTest.body(response), contentRange);
+	}
+
+	private static Response get(String range, String ifRange, Request request) {
+		return ReposProviderImplTest.provider().get(ReposProviderImplTest.REPO, ReposProviderImplTest.FILE, range, ifRange, request);
+	}
+
+	private static ReposProviderImpl provider() {
+		ReposProviderImpl impl = new ReposProviderImpl();
+		ReposProviderImplTest.set(impl, "repoHandler", new RepoHandler() {
+
+			@Override
+			public IRepoProvider findRepoProvider(String repoName) {
+				return ReposProviderImplTest.REPO.equals(repoName) ? new MemoryProvider() : null;
+			}
+		});
+		// not initialized, so the cache is disabled
+		ReposProviderImplTest.set(impl, "repoFileCache", new RepoFileCache());
+		return impl;
+	}
+
+	private static Request request(String method, String... headers) {
+		Map<String, List<String>> protocolHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		for (int i = 0; i < headers.length; i += 2) {
+			protocolHeaders.put(headers[i], Collections.singletonList(headers[i + 1]));
+		}
+		Message message = new MessageImpl();
+		message.put(Message.HTTP_REQUEST_METHOD, method);
+		message.put(Message.PROTOCOL_HEADERS, protocolHeaders);
+		return new RequestImpl(message);
+	}
+
+	private static String body(Response response) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		((StreamingOutput) response.getEntity()).write(out);
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static void set(Object target, String name, Object value) {
+		try {
+			Field field = target.getClass().getDeclaredField(name);
+			field.setAccessible(true);
+			field.set(target, value);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
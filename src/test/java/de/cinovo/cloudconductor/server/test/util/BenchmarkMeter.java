@@ -0,0 +1,61 @@
+package de.cinovo.cloudconductor.server.test.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Measures the time passed and the memory allocated by the current thread for the benchmarks.
+ *
+ * @author mweise
+ */
+public final class BenchmarkMeter {
+
+	private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private final long threadId = Thread.currentThread().getId();
+	private final long allocatedBefore = BenchmarkMeter.THREADS.getThreadAllocatedBytes(this.threadId);
+	private final long start = System.nanoTime();
+
+
+	private BenchmarkMeter() {
+		// started by start()
+	}
+
+	/**
+	 * @return a meter of the current thread, started now
+	 */
+	public static BenchmarkMeter start() {
+		return new BenchmarkMeter();
+	}
+
+	/**
+	 * @return the nanoseconds since the start
+	 */
+	public long elapsedNanos() {
+		return System.nanoTime() - this.start;
+	}
+
+	/**
+	 * @return the bytes allocated by the thread since the start, must be called on the thread started on
+	 */
+	public long allocatedBytes() {
+		return BenchmarkMeter.THREADS.getThreadAllocatedBytes(this.threadId) - this.allocatedBefore;
+	}
+
+	/**
+	 * Collects the garbage a few times first, so the objects still reachable are left.
+	 *
+	 * @return the used heap in bytes
+	 * @throws InterruptedException if interrupted while waiting for the collection
+	 */
+	public static long usedHeap() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			TimeUnit.MILLISECONDS.sleep(100);
+		}
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
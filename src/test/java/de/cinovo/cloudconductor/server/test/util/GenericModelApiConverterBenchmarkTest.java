@@ -0,0 +1,60 @@
+package de.cinovo.cloudconductor.server.test.util;
+
+import de.cinovo.cloudconductor.api.model.Host;
+import de.cinovo.cloudconductor.api.model.Settings;
+import de.cinovo.cloudconductor.server.model.EHost;
+import de.cinovo.cloudconductor.server.model.EServerOptions;
+import de.cinovo.cloudconductor.server.util.GenericModelApiConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Converts hosts and server options with the former and the current model conversion and reports throughput and
+ * allocated memory. Only runs if the number of conversions is given, e.g.
+ * <code>mvn test -Dtest=GenericModelApiConverterBenchmarkTest -Dbenchmark.conversions=1000000</code>.
+ *
+ * @author mweise
+ */
+@EnabledIfSystemProperty(named = "benchmark.conversions", matches = "\\d+")
+class GenericModelApiConverterBenchmarkTest {
+
+	private static final int ROUNDS = 5;
+	// keeps the conversions from being optimized away
+	private static volatile Object sink;
+
+
+	@Test
+	void benchmarkConversion() {
+		int count = Integer.parseInt(System.getProperty("benchmark.conversions"));
+		EHost host = GenericModelApiConverterTest.host();
+		EServerOptions options = GenericModelApiConverterTest.options();
+
+		GenericModelApiConverterBenchmarkTest.run("before EHost", count, host, Host.class, LegacyGenericModelApiConverter::convert);
+		GenericModelApiConverterBenchmarkTest.run("cached EHost", count, host, Host.class, GenericModelApiConverter::convert);
+		GenericModelApiConverterBenchmarkTest.run("before EServerOptions", count, options, Settings.class, LegacyGenericModelApiConverter::convert);
+		GenericModelApiConverterBenchmarkTest.run("cached EServerOptions", count, options, Settings.class, GenericModelApiConverter::convert);
+	}
+
+	private static <O, D> void run(String name, int count, O origin, Class<D> destinationClass, BiFunction<O, Class<D>, D> converter) {
+		// warm up
+		for (int i = 0; i < count; i++) {
+			converter.apply(origin, destinationClass);
+		}
+
+		BenchmarkMeter meter = BenchmarkMeter.start();
+		for (int r = 0; r < GenericModelApiConverterBenchmarkTest.ROUNDS; r++) {
+			for (int i = 0; i < count; i++) {
+				GenericModelApiConverterBenchmarkTest.sink = converter.apply(origin, destinationClass);
+			}
+		}
+		long duration = meter.elapsedNanos() / GenericModelApiConverterBenchmarkTest.ROUNDS;
+		long allocated = meter.allocatedBytes() / GenericModelApiConverterBenchmarkTest.ROUNDS;
+		long perSecond = (count * TimeUnit.SECONDS.toNanos(1)) / Math.max(duration, 1);
+		System.out.println(String.format("%s: %d conversions in %d ms (%d/s), %d bytes allocated per conversion", name, count, TimeUnit.NANOSECONDS.toMillis(duration), perSecond, allocated / count));
+	}
+}
@@ -0,0 +1,158 @@
+package de.cinovo.cloudconductor.server.test.util;
+
+import de.cinovo.cloudconductor.api.interfaces.INamed;
+import de.cinovo.cloudconductor.api.model.Host;
+import de.cinovo.cloudconductor.api.model.Settings;
+import de.cinovo.cloudconductor.server.model.EHost;
+import de.cinovo.cloudconductor.server.model.EServerOptions;
+import de.cinovo.cloudconductor.server.util.GenericModelApiConverter;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Checks that {@link GenericModelApiConverter} converts like the former uncached conversion.
+ *
+ * @author mweise
+ */
+class GenericModelApiConverterTest {
+
+	@Test
+	void testSameValuesAsBefore() throws Exception {
+		EHost host = GenericModelApiConverterTest.host();
+		GenericModelApiConverterTest.assertSameFields(LegacyGenericModelApiConverter.convert(host, Host.class), GenericModelApiConverter.convert(host, Host.class));
+
+		EServerOptions options = GenericModelApiConverterTest.options();
+		Settings settings = GenericModelApiConverter.convert(options, Settings.class);
+		GenericModelApiConverterTest.assertSameFields(LegacyGenericModelApiConverter.convert(options, Settings.class), settings);
+		GenericModelApiConverterTest.assertSameFields(LegacyGenericModelApiConverter.convert(settings, EServerOptions.class), GenericModelApiConverter.convert(settings, EServerOptions.class));
+
+		Origin origin = new Origin();
+		GenericModelApiConverterTest.assertSameFields(LegacyGenericModelApiConverter.convert(origin, Destination.class), GenericModelApiConverter.convert(origin, Destination.class));
+	}
+
+	@Test
+	void testConversions() {
+		Destination destination = GenericModelApiConverter.convert(new Origin(), Destination.class);
+		Assertions.assertEquals("1.5", destination.amount);
+		Assertions.assertEquals(new BigDecimal("2.5"), destination.price);
+		Assertions.assertEquals(new DateTime(1000L), destination.created);
+		Assertions.assertEquals(new Date(2000L), destination.modified);
+		Assertions.assertEquals("named", destination.owner);
+		Assertions.assertEquals(Arrays.asList("a", "b"), destination.tags);
+		Assertions.assertEquals(new HashSet<>(Arrays.asList("a", "b")), destination.labels);
+		Assertions.assertEquals(Collections.singletonMap("k", "v"), destination.properties);
+		// the getter is used if there is one, the field if it fails
+		Assertions.assertEquals("by getter", destination.name);
+		Assertions.assertEquals("field", destination.broken);
+		Assertions.assertEquals(42, destination.count);
+		// no conversion from Long to int, the primitive keeps its value
+		Assertions.assertEquals(7, destination.incompatible);
+		Assertions.assertEquals("base", destination.inherited);
+		Assertions.assertSame(Destination.class, destination.getClass());
+	}
+
+	static EHost host() {
+		EHost host = new EHost();
+		host.setId(1L);
+		host.setName("host1");
+		host.setDescription("a host");
+		host.setTemplateId(2L);
+		host.setLastSeen(1234L);
+		host.setAgentId(3L);
+		host.setUuid("123123-123123-123123");
+		return host;
+	}
+
+	static EServerOptions options() {
+		EServerOptions options = new EServerOptions();
+		options.setName("settings");
+		options.setAllowautoupdate(true);
+		options.setHostAliveTimer(5);
+		options.setHostAliveTimerUnit(TimeUnit.HOURS);
+		options.setDisallowUninstall(new HashSet<>(Arrays.asList("kernel", "glibc")));
+		return options;
+	}
+
+	private static void assertSameFields(Object expected, Object actual) throws IllegalAccessException {
+		Assertions.assertSame(expected.getClass(), actual.getClass());
+		for (Class<?> clazz = expected.getClass(); !clazz.equals(Object.class); clazz = clazz.getSuperclass()) {
+			for (Field field : clazz.getDeclaredFields()) {
+				if (!Modifier.isStatic(field.getModifiers())) {
+					field.setAccessible(true);
+					Assertions.assertEquals(field.get(expected), field.get(actual), field.getName());
+				}
+			}
+		}
+	}
+
+
+	static class Named implements INamed {
+
+		@Override
+		public String getName() {
+			return "named";
+		}
+	}
+
+	static class Base {
+
+		String inherited = "base";
+	}
+
+	static class Origin extends Base {
+
+		BigDecimal amount = new BigDecimal("1.5");
+		String price = "2.5";
+		Date created = new Date(1000L);
+		DateTime modified = new DateTime(2000L);
+		Named owner = new Named();
+		List<String> tags = Arrays.asList("a", "b");
+		Set<String> labels = new HashSet<>(Arrays.asList("a", "b"));
+		Map<String, String> properties = Collections.singletonMap("k", "v");
+		String name = "field";
+		String broken = "field";
+		int count = 42;
+		Long incompatible = 8L;
+
+
+		public String getName() {
+			return "by getter";
+		}
+
+		public String getBroken() {
+			throw new IllegalStateException("broken getter");
+		}
+	}
+
+	static class Destination {
+
+		String inherited;
+		String amount;
+		BigDecimal price;
+		DateTime created;
+		Date modified;
+		String owner;
+		List<String> tags;
+		Set<String> labels;
+		Map<String, String> properties;
+		String name;
+		String broken;
+		int count;
+		int incompatible = 7;
+	}
+}
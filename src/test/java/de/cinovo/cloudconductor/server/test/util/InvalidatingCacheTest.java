@@ -0,0 +1,125 @@
+package de.cinovo.cloudconductor.server.test.util;
+
+import de.cinovo.cloudconductor.server.util.InvalidatingCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Builds values of an {@link InvalidatingCache} concurrently and checks which callers build, wait or get the expired
+ * value.
+ *
+ * @author mweise
+ */
+class InvalidatingCacheTest {
+
+	@Test
+	void testConcurrentCallersWaitForBuild() throws Exception {
+		AtomicInteger builds = new AtomicInteger();
+		CountDownLatch building = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		InvalidatingCache<String, Integer> cache = new InvalidatingCache<>(60, key -> {
+			building.countDown();
+			InvalidatingCacheTest.await(release);
+			return builds.incrementAndGet();
+		});
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Integer> first = executor.submit(() -> cache.get("key"));
+			Assertions.assertTrue(building.await(10, TimeUnit.SECONDS));
+			Future<Integer> second = executor.submit(() -> cache.get("key"));
+			release.countDown();
+			Assertions.assertEquals(1, first.get(10, TimeUnit.SECONDS));
+			Assertions.assertEquals(1, second.get(10, TimeUnit.SECONDS));
+			Assertions.assertEquals(1, cache.get("key"));
+			Assertions.assertEquals(1, builds.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void testExpiredValueUsedWhileRebuilt() throws Exception {
+		AtomicInteger builds = new AtomicInteger();
+		CountDownLatch building = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		// values expire at once
+		InvalidatingCache<String, Integer> cache = new InvalidatingCache<>(0, key -> {
+			if (builds.get() > 0) {
+				building.countDown();
+				InvalidatingCacheTest.await(release);
+			}
+			return builds.incrementAndGet();
+		});
+		Assertions.assertEquals(1, cache.get("key"));
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Integer> rebuild = executor.submit(() -> cache.get("key"));
+			Assertions.assertTrue(building.await(10, TimeUnit.SECONDS));
+			Assertions.assertEquals(1, cache.get("key"));
+			release.countDown();
+			Assertions.assertEquals(2, rebuild.get(10, TimeUnit.SECONDS));
+			Assertions.assertEquals(2, builds.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void testInvalidationDuringBuild() throws Exception {
+		AtomicInteger builds = new AtomicInteger();
+		CountDownLatch building = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger calls = new AtomicInteger();
+		InvalidatingCache<String, Integer> cache = new InvalidatingCache<>(60, key -> {
+			if (calls.getAndIncrement() == 0) {
+				building.countDown();
+				InvalidatingCacheTest.await(release);
+			}
+			return builds.incrementAndGet();
+		});
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Integer> stale = executor.submit(() -> cache.get("key"));
+			Assertions.assertTrue(building.await(10, TimeUnit.SECONDS));
+			cache.invalidate("key");
+			// the running build may have read the state before the change, so it is not joined
+			Assertions.assertEquals(1, cache.get("key"));
+			release.countDown();
+			Assertions.assertEquals(2, stale.get(10, TimeUnit.SECONDS));
+			// the value built before the invalidation is not kept
+			Assertions.assertEquals(1, cache.get("key"));
+			Assertions.assertEquals(2, builds.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void testNullNotKept() {
+		AtomicInteger builds = new AtomicInteger();
+		InvalidatingCache<String, Integer> cache = new InvalidatingCache<>(60, key -> {
+			builds.incrementAndGet();
+			return null;
+		});
+		Assertions.assertNull(cache.get("key"));
+		Assertions.assertNull(cache.get("key"));
+		Assertions.assertEquals(2, builds.get());
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			Assertions.assertTrue(latch.await(10, TimeUnit.SECONDS));
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package de.cinovo.cloudconductor.server.test.util;
+
+import de.cinovo.cloudconductor.server.dao.IPackageDAO;
+import de.cinovo.cloudconductor.server.model.EPackage;
+import de.cinovo.cloudconductor.server.util.PackageIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Looks up packages in the {@link PackageIndex} and counts the queries sent to the package DAO.
+ *
+ * @author mweise
+ */
+class PackageIndexTest {
+
+	private final Map<String, EPackage> table = new ConcurrentHashMap<>();
+	private final List<String> queries = Collections.synchronizedList(new ArrayList<>());
+
+
+	@Test
+	void testUnknownNamesQueriedOnce() throws Exception {
+		this.table.put("bash", PackageIndexTest.pkg("bash"));
+		PackageIndex index = this.index();
+
+		Map<String, EPackage> first = index.findByNames(Arrays.asList("bash", "kernel", "glibc"));
+		Assertions.assertEquals(Collections.singleton("bash"), first.keySet());
+		Assertions.assertEquals(Arrays.asList("findList", "findByName [kernel, glibc]"), this.queries);
+
+		// the packages unknown to the server are not looked up again
+		this.queries.clear();
+		Map<String, EPackage> second = index.findByNames(Arrays.asList("bash", "kernel", "glibc"));
+		Assertions.assertEquals(Collections.singleton("bash"), second.keySet());
+		Assertions.assertEquals(Collections.emptyList(), this.queries);
+	}
+
+	@Test
+	void testCreatedPackageFoundAfterInvalidation() throws Exception {
+		PackageIndex index = this.index();
+		Assertions.assertTrue(index.findByNames(Collections.singleton("kernel")).isEmpty());
+
+		this.table.put("kernel", PackageIndexTest.pkg("kernel"));
+		index.invalidate();
+		Assertions.assertEquals(Collections.singleton("kernel"), index.findByNames(Collections.singleton("kernel")).keySet());
+	}
+
+	private PackageIndex index() throws ReflectiveOperationException {
+		IPackageDAO dao = (IPackageDAO) Proxy.newProxyInstance(IPackageDAO.class.getClassLoader(), new Class<?>[] {IPackageDAO.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "findList":
+					this.queries.add("findList");
+					return new ArrayList<>(this.table.values());
+				case "findByName":
+					List<String> names = new ArrayList<>();
+					((Iterable<?>) args[0]).forEach(name -> names.add((String) name));
+					this.queries.add("findByName " + names);
+					List<EPackage> found = new ArrayList<>();
+					names.stream().map(this.table::get).filter(p -> p != null).forEach(found::add);
+					return found;
+				default:
+					throw new UnsupportedOperationException(method.getName());
+			}
+		});
+		PackageIndex index = new PackageIndex();
+		PackageIndexTest.set(index, "packageDAO", dao);
+		PackageIndexTest.set(index, "ttl", 60L);
+		index.init();
+		return index;
+	}
+
+	private static EPackage pkg(String name) {
+		EPackage pkg = new EPackage();
+		pkg.setName(name);
+		return pkg;
+	}
+
+	private static void set(Object target, String name, Object value) throws ReflectiveOperationException {
+		Field field = target.getClass().getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(target, value);
+	}
+}
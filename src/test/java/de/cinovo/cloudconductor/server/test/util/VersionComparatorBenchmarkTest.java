@@ -0,0 +1,60 @@
+package de.cinovo.cloudconductor.server.test.util;
+
+import de.cinovo.cloudconductor.server.util.comparators.VersionStringComparator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Sorts generated versions with the former and the current version comparator and reports time and allocated memory.
+ * Only runs if the number of versions is given, e.g.
+ * <code>mvn test -Dtest=VersionComparatorBenchmarkTest -Dbenchmark.versions=50000</code>.
+ *
+ * @author mweise
+ */
+@EnabledIfSystemProperty(named = "benchmark.versions", matches = "\\d+")
+class VersionComparatorBenchmarkTest {
+
+	private static final int ROUNDS = 5;
+
+
+	@Test
+	void benchmarkVersionComparator() {
+		int count = Integer.parseInt(System.getProperty("benchmark.versions"));
+		Random random = new Random(42);
+		List<String> versions = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			versions.add(random.nextInt(5) + "." + random.nextInt(30) + "." + random.nextInt(100) + "-" + random.nextInt(50) + ".el" + (6 + random.nextInt(3)));
+		}
+
+		int legacy = VersionComparatorBenchmarkTest.run("before", new LegacyVersionStringComparator(), versions);
+		int current = VersionComparatorBenchmarkTest.run("VersionKey", new VersionStringComparator(), versions);
+		Assertions.assertEquals(legacy, current);
+	}
+
+	private static int run(String name, Comparator<String> comparator, List<String> versions) {
+		// warm up
+		new TreeSet<>(comparator).addAll(versions);
+
+		BenchmarkMeter meter = BenchmarkMeter.start();
+		int size = 0;
+		for (int i = 0; i < VersionComparatorBenchmarkTest.ROUNDS; i++) {
+			TreeSet<String> sorted = new TreeSet<>(comparator);
+			sorted.addAll(versions);
+			size = sorted.size();
+		}
+		long duration = meter.elapsedNanos() / VersionComparatorBenchmarkTest.ROUNDS;
+		long allocated = meter.allocatedBytes() / VersionComparatorBenchmarkTest.ROUNDS;
+		System.out.println(String.format("%s: %d versions sorted in %d ms, %d MB allocated", name, versions.size(), TimeUnit.NANOSECONDS.toMillis(duration), allocated >> 20));
+		return size;
+	}
+}
@@ -0,0 +1,136 @@
+package de.cinovo.cloudconductor.server.test.util;
+
+import de.cinovo.cloudconductor.server.util.comparators.VersionKey;
+import de.cinovo.cloudconductor.server.util.comparators.VersionStringComparator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Copyright 2024 Cinovo AG<br>
+ * <br>
+ * Checks that {@link VersionKey} orders versions like the former {@link VersionStringComparator} and like rpmvercmp
+ * where the comparator always followed it.
+ *
+ * @author mweise
+ */
+class VersionKeyTest {
+
+	// the cases of the rpm test suite the comparator agrees with, it differs for separators, tilde and 10xyz/10.1xyz
+	private static final String[][] RPMVERCMP = { //
+			{"1.0", "1.0", "0"}, {"1.0", "2.0", "-1"}, {"2.0.1", "2.0.1", "0"}, {"2.0", "2.0.1", "-1"}, //
+			{"2.0.1a", "2.0.1a", "0"}, {"2.0.1a", "2.0.1", "1"}, {"5.5p1", "5.5p1", "0"}, {"5.5p1", "5.5p2", "-1"}, //
+			{"5.5p10", "5.5p10", "0"}, {"5.5p1", "5.5p10", "-1"}, {"xyz10", "xyz10", "0"}, {"xyz10", "xyz10.1", "-1"}, //
+			{"xyz.4", "xyz.4", "0"}, {"xyz.4", "8", "-1"}, {"xyz.4", "2", "-1"}, {"5.5p2", "5.6p1", "-1"}, //
+			{"5.6p1", "6.5p1", "-1"}, {"10b2", "10a1", "1"}, {"10a2", "10b2", "-1"}, {"1.0aa", "1.0aa", "0"}, //
+			{"1.0a", "1.0aa", "-1"}, {"10.0001", "10.0001", "0"}, {"10.0001", "10.0039", "-1"}, {"4.999.9", "5.0", "-1"}, //
+			{"20101121", "20101121", "0"}, {"20101121", "20101122", "-1"}, {"2_0", "2_0", "0"}, {"a", "a", "0"}, //
+			{"a+", "a+", "0"}, {"+a", "+a", "0"}, {"+_", "+_", "0"}, {"1.0~rc1", "1.0~rc1", "0"}, {"1.0~rc1", "1.0~rc2", "-1"}};
+
+	private static final String[] SPECIAL = {"", "0", "00", "000", "1", "01", "1.0", "1.0.", "1..0", ".1", "..", ".", "-", "-1", "1-", "1-0", "1-1", "1-01", "1.0-1", "1.0-1.el7", "1.0-1.el8", "1.0-10.el7", "1.0-2.el7_9", "a", "a1", "1a", "1a1", "0.0.0", "1.00", "1.000", "00012", "12", "2.6-1", "2.6-1.1", "2.6.0-1", "1234567890123456789", "1234567890123456788", "01234567890123456789", "99999999999999999999999", "100000000000000000000000", "1.0-rc1", "1.0-rc.1", "1.0-alpha", "1.0-beta-2", "1.0~rc1", "1.0_1", "v1", "V1", "é1", "1é"};
+
+
+	@Test
+	void testRPMVerCmp() {
+		for (String[] testCase : VersionKeyTest.RPMVERCMP) {
+			int expected = Integer.parseInt(testCase[2]);
+			Assertions.assertEquals(expected, Integer.signum(VersionKey.of(testCase[0]).compareTo(VersionKey.of(testCase[1]))), testCase[0] + " <=> " + testCase[1]);
+			Assertions.assertEquals(-expected, Integer.signum(VersionKey.of(testCase[1]).compareTo(VersionKey.of(testCase[0]))), testCase[1] + " <=> " + testCase[0]);
+		}
+	}
+
+	@Test
+	void testSameOrderAsBefore() {
+		List<String> versions = new ArrayList<>(Arrays.asList(VersionKeyTest.SPECIAL));
+		versions.addAll(VersionKeyTest.randomVersions(new Random(42), 400));
+		Comparator<String> legacy = new LegacyVersionStringComparator();
+		Comparator<String> comparator = new VersionStringComparator();
+		for (String a : versions) {
+			for (String b : versions) {
+				Assertions.assertEquals(Integer.signum(legacy.compare(a, b)), Integer.signum(comparator.compare(a, b)), a + " <=> " + b);
+			}
+		}
+	}
+
+	@Test
+	void testSortKey() {
+		List<String> versions = new ArrayList<>(Arrays.asList(VersionKeyTest.SPECIAL));
+		versions.addAll(VersionKeyTest.randomVersions(new Random(7), 400));
+		versions.add("1.2.3.4.5.6.7.8-1");
+		versions.add("1.2.3.4.5.6.7.0-1");
+		for (String a : versions) {
+			for (String b : versions) {
+				int expected = Integer.signum(VersionKey.of(a).compareTo(VersionKey.of(b)));
+				Assertions.assertEquals(expected, Integer.signum(VersionKeyTest.compareUnsigned(VersionKey.of(a).getSortKey(), VersionKey.of(b).getSortKey())), a + " <=> " + b);
+			}
+		}
+	}
+
+	@Test
+	void testRangePart() {
+		Assertions.assertEquals("1", VersionKey.of("1.2.3-4").getRangePart(0));
+		Assertions.assertEquals("2", VersionKey.of("1.2.3-4").getRangePart(1));
+		Assertions.assertEquals("3", VersionKey.of("1.2.3-4").getRangePart(2));
+		Assertions.assertEquals("2", VersionKey.of("1.2-3").getRangePart(1));
+		Assertions.assertNull(VersionKey.of("1.2-3").getRangePart(2));
+		Assertions.assertNull(VersionKey.of("1-2.3").getRangePart(1));
+		Assertions.assertNull(VersionKey.of("1.2").getRangePart(1));
+		Assertions.assertNull(VersionKey.of("1").getRangePart(0));
+		Assertions.assertEquals("", VersionKey.of(".1.2").getRangePart(0));
+	}
+
+	@Test
+	void testCache() {
+		String version = new String("1.2.3-4.el7".toCharArray());
+		Assertions.assertSame(VersionKey.of(version), VersionKey.of("1.2.3-4.el7"));
+		Assertions.assertEquals("1.2.3-4.el7", VersionKey.of(version).getVersion());
+		Assertions.assertEquals(0, VersionKey.of("1.02").compareTo(VersionKey.of("1.02")));
+	}
+
+	private static int compareUnsigned(byte[] a, byte[] b) {
+		for (int i = 0; i < Math.min(a.length, b.length); i++) {
+			int c = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+			if (c != 0) {
+				return c;
+			}
+		}
+		return Integer.compare(a.length, b.length);
+	}
+
+	static List<String> randomVersions(Random random, int count) {
+		String[] alpha = {"a", "b", "rc", "el", "alpha", "_", "~", "+", "p"};
+		List<String> versions = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			StringBuilder version = new StringBuilder();
+			int tokens = 1 + random.nextInt(7);
+			for (int t = 0; t < tokens; t++) {
+				switch (random.nextInt(6)) {
+					case 0:
+						version.append('.');
+						break;
+					case 1:
+						version.append(alpha[random.nextInt(alpha.length)]);
+						break;
+					case 2:
+						version.append('0').append(random.nextInt(3));
+						break;
+					case 3:
+						if (version.indexOf("-") < 0) {
+							version.append('-');
+						}
+						break;
+					default:
+						version.append(random.nextInt(20));
+						break;
+				}
+			}
+			versions.add(version.toString());
+		}
+		return versions;
+	}
+}